@@ -16,27 +16,37 @@
 package org.reaktivity.nukleus.tcp.internal;
 
 import static java.lang.String.format;
+import static org.agrona.BitUtil.isPowerOfTwo;
 import static org.agrona.CloseHelper.quietClose;
 import static org.agrona.LangUtil.rethrowUnchecked;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.WatchService;
+import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
 import org.agrona.ErrorHandler;
 import org.agrona.concurrent.AtomicBuffer;
-import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.broadcast.BroadcastTransmitter;
 import org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer;
 import org.agrona.concurrent.ringbuffer.RingBuffer;
 import org.agrona.concurrent.status.CountersManager;
 import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.TcpConfiguration.Mode;
+import org.reaktivity.nukleus.tcp.internal.conductor.RouteJournal;
+import org.reaktivity.nukleus.tcp.internal.events.EventLog;
 import org.reaktivity.nukleus.tcp.internal.layouts.ControlLayout;
+import org.reaktivity.nukleus.tcp.internal.layouts.EventsLayout;
+import org.reaktivity.nukleus.tcp.internal.layouts.RoutesLayout;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayoutPool;
+import org.reaktivity.nukleus.tcp.internal.util.Capacities;
+import org.reaktivity.nukleus.tcp.internal.util.WeightedScheduler;
 
 public final class Context implements Closeable
 {
@@ -45,12 +55,16 @@ public final class Context implements Closeable
     private boolean readonly;
     private Path configDirectory;
     private ControlLayout controlRO;
+    private EventsLayout eventsRO;
+    private EventLog events = EventLog.NONE;
+    private RoutesLayout routesRO;
+    private RouteJournal routes = RouteJournal.NONE;
+    private StreamsLayoutPool streamsLayouts;
     private int maximumStreamsCount;
-    private int streamsBufferCapacity;
-    private int throttleBufferCapacity;
+    private Capacities streamsCapacities;
+    private Capacities throttleCapacities;
     private Function<String, Path> captureStreamsPath;
     private BiFunction<String, String, Path> routeStreamsPath;
-    private IdleStrategy idleStrategy;
     private ErrorHandler errorHandler;
     private CountersManager countersManager;
     private Counters counters;
@@ -64,6 +78,28 @@ public final class Context implements Closeable
 
     private int maximumControlResponseLength;
 
+    private String outputLocalAddresses;
+    private String outputLocalPorts;
+    private boolean outputLingerZero;
+    private String outputBalancer;
+    private int outputEjectFailures;
+    private long outputEjectMillis;
+    private boolean splice;
+    private int spliceBufferSize;
+    private int spliceBufferPoolSize;
+    private boolean profile;
+    private boolean controlThread;
+    private Function<String, String> socketOptions;
+    private Mode mode;
+    private int readBatchSize;
+    private int readQuota;
+    private int writeQuota;
+    private int conductorBudget;
+    private int acceptBudget;
+    private Map<String, Integer> schedulerWeights;
+    private int writeWindowSize;
+    private int writeWindowThreshold;
+
     public Context readonly(
         boolean readonly)
     {
@@ -81,20 +117,22 @@ public final class Context implements Closeable
         return maximumStreamsCount;
     }
 
-    public int streamsBufferCapacity()
+    public int streamsCapacity(
+        String name)
     {
-        return streamsBufferCapacity;
+        return streamsCapacities.capacity(name);
     }
 
-    public int throttleBufferCapacity()
+    public int throttleCapacity(
+        String name)
     {
-        return throttleBufferCapacity;
+        return throttleCapacities.capacity(name);
     }
 
     public int maxMessageLength()
     {
-        // see RingBuffer.maxMessageLength()
-        return streamsBufferCapacity / 8;
+        // see RingBuffer.maxMessageLength(), sized for the largest streams ring
+        return streamsCapacities.maxCapacity() / 8;
     }
 
     public int maxControlResponseLength()
@@ -102,6 +140,294 @@ public final class Context implements Closeable
         return maximumControlResponseLength;
     }
 
+    public Context outputLocalAddresses(
+        String outputLocalAddresses)
+    {
+        this.outputLocalAddresses = outputLocalAddresses;
+        return this;
+    }
+
+    public String outputLocalAddresses()
+    {
+        return outputLocalAddresses;
+    }
+
+    public Context outputLocalPorts(
+        String outputLocalPorts)
+    {
+        this.outputLocalPorts = outputLocalPorts;
+        return this;
+    }
+
+    public String outputLocalPorts()
+    {
+        return outputLocalPorts;
+    }
+
+    public Context outputLingerZero(
+        boolean outputLingerZero)
+    {
+        this.outputLingerZero = outputLingerZero;
+        return this;
+    }
+
+    public boolean outputLingerZero()
+    {
+        return outputLingerZero;
+    }
+
+    public Context outputBalancer(
+        String outputBalancer)
+    {
+        this.outputBalancer = outputBalancer;
+        return this;
+    }
+
+    public String outputBalancer()
+    {
+        return outputBalancer;
+    }
+
+    public Context outputEjectFailures(
+        int outputEjectFailures)
+    {
+        this.outputEjectFailures = outputEjectFailures;
+        return this;
+    }
+
+    public int outputEjectFailures()
+    {
+        return outputEjectFailures;
+    }
+
+    public Context outputEjectMillis(
+        long outputEjectMillis)
+    {
+        this.outputEjectMillis = outputEjectMillis;
+        return this;
+    }
+
+    public long outputEjectMillis()
+    {
+        return outputEjectMillis;
+    }
+
+    public Context splice(
+        boolean splice)
+    {
+        this.splice = splice;
+        return this;
+    }
+
+    public boolean splice()
+    {
+        return splice;
+    }
+
+    public Context spliceBufferSize(
+        int spliceBufferSize)
+    {
+        this.spliceBufferSize = spliceBufferSize;
+        return this;
+    }
+
+    public int spliceBufferSize()
+    {
+        return spliceBufferSize;
+    }
+
+    public Context spliceBufferPoolSize(
+        int spliceBufferPoolSize)
+    {
+        this.spliceBufferPoolSize = spliceBufferPoolSize;
+        return this;
+    }
+
+    public int spliceBufferPoolSize()
+    {
+        return spliceBufferPoolSize;
+    }
+
+    public Context events(
+        EventLog events)
+    {
+        this.events = events;
+        return this;
+    }
+
+    public EventLog events()
+    {
+        return events;
+    }
+
+    public Context routes(
+        RouteJournal routes)
+    {
+        this.routes = routes;
+        return this;
+    }
+
+    public RouteJournal routes()
+    {
+        return routes;
+    }
+
+    public Context streamsLayouts(
+        StreamsLayoutPool streamsLayouts)
+    {
+        this.streamsLayouts = streamsLayouts;
+        return this;
+    }
+
+    public StreamsLayoutPool streamsLayouts()
+    {
+        return streamsLayouts;
+    }
+
+    public Context profile(
+        boolean profile)
+    {
+        this.profile = profile;
+        return this;
+    }
+
+    public boolean profile()
+    {
+        return profile;
+    }
+
+    public Context controlThread(
+        boolean controlThread)
+    {
+        this.controlThread = controlThread;
+        return this;
+    }
+
+    public boolean controlThread()
+    {
+        return controlThread;
+    }
+
+    public Context mode(
+        Mode mode)
+    {
+        this.mode = mode;
+        return this;
+    }
+
+    public Mode mode()
+    {
+        return mode;
+    }
+
+    public Context readBatchSize(
+        int readBatchSize)
+    {
+        this.readBatchSize = readBatchSize;
+        return this;
+    }
+
+    public int readBatchSize()
+    {
+        return readBatchSize;
+    }
+
+    public Context readQuota(
+        int readQuota)
+    {
+        this.readQuota = readQuota;
+        return this;
+    }
+
+    public int readQuota()
+    {
+        return readQuota;
+    }
+
+    public Context writeQuota(
+        int writeQuota)
+    {
+        this.writeQuota = writeQuota;
+        return this;
+    }
+
+    public int writeQuota()
+    {
+        return writeQuota;
+    }
+
+    public Context conductorBudget(
+        int conductorBudget)
+    {
+        this.conductorBudget = conductorBudget;
+        return this;
+    }
+
+    public int conductorBudget()
+    {
+        return conductorBudget;
+    }
+
+    public Context acceptBudget(
+        int acceptBudget)
+    {
+        this.acceptBudget = acceptBudget;
+        return this;
+    }
+
+    public int acceptBudget()
+    {
+        return acceptBudget;
+    }
+
+    public Context schedulerWeights(
+        Map<String, Integer> schedulerWeights)
+    {
+        this.schedulerWeights = schedulerWeights;
+        return this;
+    }
+
+    public Map<String, Integer> schedulerWeights()
+    {
+        return schedulerWeights;
+    }
+
+    public Context writeWindowSize(
+        int writeWindowSize)
+    {
+        this.writeWindowSize = writeWindowSize;
+        return this;
+    }
+
+    public int writeWindowSize()
+    {
+        return writeWindowSize;
+    }
+
+    public Context writeWindowThreshold(
+        int writeWindowThreshold)
+    {
+        this.writeWindowThreshold = writeWindowThreshold;
+        return this;
+    }
+
+    public int writeWindowThreshold()
+    {
+        return writeWindowThreshold;
+    }
+
+    public Context socketOptions(
+        Function<String, String> socketOptions)
+    {
+        this.socketOptions = socketOptions;
+        return this;
+    }
+
+    public Function<String, String> socketOptions()
+    {
+        return socketOptions;
+    }
+
     public Context watchService(
         WatchService watchService)
     {
@@ -150,18 +476,6 @@ public final class Context implements Closeable
         return routeStreamsPath;
     }
 
-    public Context idleStrategy(
-        IdleStrategy idleStrategy)
-    {
-        this.idleStrategy = idleStrategy;
-        return this;
-    }
-
-    public IdleStrategy idleStrategy()
-    {
-        return idleStrategy;
-    }
-
     public Context errorHandler(
         ErrorHandler errorHandler)
     {
@@ -248,6 +562,15 @@ public final class Context implements Closeable
 
     public Context conclude(
         Configuration config)
+    {
+        final TcpConfiguration tcpConfig =
+                config instanceof TcpConfiguration ? (TcpConfiguration) config : new TcpConfiguration();
+        return conclude(config, tcpConfig);
+    }
+
+    public Context conclude(
+        Configuration config,
+        TcpConfiguration tcpConfig)
     {
         try
         {
@@ -255,12 +578,57 @@ public final class Context implements Closeable
 
             this.maximumStreamsCount = config.maximumStreamsCount();
 
-            this.streamsBufferCapacity = config.streamsBufferCapacity();
+            this.streamsCapacities = Capacities.parse(tcpConfig.streamsCapacities(), config.streamsBufferCapacity());
 
-            this.throttleBufferCapacity = config.throttleBufferCapacity();
+            this.throttleCapacities = Capacities.parse(tcpConfig.throttleCapacities(), config.throttleBufferCapacity());
 
             this.maximumControlResponseLength = config.responseBufferCapacity() / 8;
 
+            outputLocalAddresses(tcpConfig.outputLocalAddresses());
+            outputLocalPorts(tcpConfig.outputLocalPorts());
+            outputLingerZero(tcpConfig.outputLingerZero());
+            outputBalancer(tcpConfig.outputBalancer());
+            outputEjectFailures(tcpConfig.outputEjectFailures());
+            outputEjectMillis(tcpConfig.outputEjectMillis());
+            splice(tcpConfig.splice());
+            spliceBufferSize(tcpConfig.spliceBufferSize());
+            spliceBufferPoolSize(tcpConfig.spliceBufferPoolSize());
+            profile(tcpConfig.profile());
+            controlThread(tcpConfig.controlThread());
+            socketOptions(tcpConfig::socketOptions);
+
+            final int readBatchSize = tcpConfig.readBatchSize();
+            final int writeWindowSize = tcpConfig.writeWindowSize();
+            final int writeWindowThreshold = tcpConfig.writeWindowThreshold();
+            final int readQuota = tcpConfig.readQuota();
+            final int writeQuota = tcpConfig.writeQuota();
+            final int conductorBudget = tcpConfig.conductorBudget();
+            final int acceptBudget = tcpConfig.acceptBudget();
+
+            if (readBatchSize < 0 || writeWindowSize <= 0 || writeWindowThreshold < 0 ||
+                writeWindowThreshold > writeWindowSize || spliceBufferSize() <= 0 || spliceBufferPoolSize() < 0)
+            {
+                throw new IllegalArgumentException(format("Illegal tcp tuning: readBatchSize=%d, " +
+                        "writeWindowSize=%d, writeWindowThreshold=%d, spliceBufferSize=%d, spliceBufferPoolSize=%d",
+                        readBatchSize, writeWindowSize, writeWindowThreshold, spliceBufferSize(), spliceBufferPoolSize()));
+            }
+
+            if (readQuota < 0 || writeQuota < 0 || conductorBudget < 0 || acceptBudget < 0)
+            {
+                throw new IllegalArgumentException(format("Illegal tcp quotas: readQuota=%d, writeQuota=%d, " +
+                        "conductorBudget=%d, acceptBudget=%d", readQuota, writeQuota, conductorBudget, acceptBudget));
+            }
+
+            mode(tcpConfig.mode());
+            readBatchSize(readBatchSize != 0 ? Math.min(readBatchSize, maxMessageLength()) : maxMessageLength());
+            writeWindowSize(writeWindowSize);
+            writeWindowThreshold(writeWindowThreshold);
+            readQuota(readQuota);
+            writeQuota(writeQuota);
+            conductorBudget(conductorBudget);
+            acceptBudget(acceptBudget);
+            schedulerWeights(WeightedScheduler.parseWeights(tcpConfig.schedulerWeights()));
+
             // default FileSystem cannot be closed
             watchService(FileSystems.getDefault().newWatchService());
             streamsPath(configDirectory.resolve("tcp/streams"));
@@ -284,6 +652,17 @@ public final class Context implements Closeable
             conductorResponses(new BroadcastTransmitter(conductorResponseBuffer()));
 
             concludeCounters();
+
+            concludeEvents(tcpConfig.eventsCapacity());
+
+            concludeStreamsLayouts(tcpConfig.streamsPoolSize(), tcpConfig.streamsPrefault());
+
+            concludeRoutes(tcpConfig.routesCapacity());
+
+            logger().info(format("tcp mode=%s, readBatchSize=%d, writeWindowSize=%d, " +
+                    "writeWindowThreshold=%d, socketOptions=\"%s\", streamsCapacities=\"%s\", throttleCapacities=\"%s\"",
+                    mode(), readBatchSize(), writeWindowSize(), writeWindowThreshold(),
+                    tcpConfig.socketOptions("default"), streamsCapacities, throttleCapacities));
         }
         catch (Exception ex)
         {
@@ -298,6 +677,72 @@ public final class Context implements Closeable
     {
         quietClose(watchService);
         quietClose(controlRO);
+        quietClose(eventsRO);
+        quietClose(routesRO);
+        quietClose(streamsLayouts);
+    }
+
+    private void concludeEvents(
+        int capacity)
+    {
+        if (capacity < 0 || (capacity != 0 && (!isPowerOfTwo(capacity) || capacity < EventLog.ENTRY_LENGTH)))
+        {
+            throw new IllegalArgumentException(format("Illegal tcp events capacity: %d", capacity));
+        }
+
+        // readonly contexts, such as the controller, do not record events
+        if (!readonly() && capacity != 0)
+        {
+            this.eventsRO = new EventsLayout.Builder()
+                    .path(configDirectory.resolve("tcp/events"))
+                    .capacity(capacity)
+                    .readonly(false)
+                    .build();
+
+            events(new EventLog(eventsRO));
+        }
+    }
+
+    private void concludeRoutes(
+        int capacity)
+    {
+        if (capacity < 0)
+        {
+            throw new IllegalArgumentException(format("Illegal tcp routes capacity: %d", capacity));
+        }
+
+        // readonly contexts, such as the controller, do not journal routes
+        if (!readonly() && capacity != 0)
+        {
+            this.routesRO = new RoutesLayout.Builder()
+                    .path(configDirectory.resolve("tcp/routes"))
+                    .capacity(capacity)
+                    .readonly(false)
+                    .build();
+
+            routes(new RouteJournal(routesRO));
+        }
+    }
+
+    private void concludeStreamsLayouts(
+        int poolSize,
+        boolean prefault) throws IOException
+    {
+        if (poolSize < 0)
+        {
+            throw new IllegalArgumentException(format("Illegal tcp streams pool size: %d", poolSize));
+        }
+
+        streamsLayouts(new StreamsLayoutPool(configDirectory.resolve("tcp/pool"), poolSize, prefault));
+
+        if (prefault && !readonly())
+        {
+            // pre-faulting a disk backed mapping still incurs write back, prefer a memory backed file store
+            Files.createDirectories(streamsPath);
+            final String type = Files.getFileStore(streamsPath).type();
+            logger().info(format("tcp streams prefault=true, poolSize=%d, fileStore=%s%s", poolSize, type,
+                    "tmpfs".equals(type) ? "" : " (not memory backed)"));
+        }
     }
 
     private void concludeCounters()
@@ -15,18 +15,40 @@
  */
 package org.reaktivity.nukleus.tcp.internal;
 
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.agrona.concurrent.status.AtomicCounter;
 import org.agrona.concurrent.status.CountersManager;
 
 public final class Counters implements AutoCloseable
 {
+    private final CountersManager countersManager;
     private final AtomicCounter routesSourced;
     private final AtomicCounter streamsSourced;
+    private final AtomicCounter splicedStreams;
+    private final AtomicCounter splicedBytes;
+    private final AtomicCounter reclaimedBytes;
+    private final AtomicCounter readQuotaExhausted;
+    private final AtomicCounter writeQuotaExhausted;
+    private final Map<InetAddress, AtomicCounter> connectsByAddress;
+    private final Map<InetAddress, AtomicCounter> connectFailuresByAddress;
+    private final Map<String, AtomicCounter> profilesByLabel;
 
     Counters(CountersManager countersManager)
     {
+        this.countersManager = countersManager;
         routesSourced = countersManager.newCounter("routesSourced");
         streamsSourced = countersManager.newCounter("streamsSourced");
+        splicedStreams = countersManager.newCounter("splicedStreams");
+        splicedBytes = countersManager.newCounter("splicedBytes");
+        reclaimedBytes = countersManager.newCounter("reclaimedBytes");
+        readQuotaExhausted = countersManager.newCounter("readQuotaExhausted");
+        writeQuotaExhausted = countersManager.newCounter("writeQuotaExhausted");
+        connectsByAddress = new HashMap<>();
+        connectFailuresByAddress = new HashMap<>();
+        profilesByLabel = new HashMap<>();
     }
 
     @Override
@@ -34,6 +56,14 @@ public final class Counters implements AutoCloseable
     {
         routesSourced.close();
         streamsSourced.close();
+        splicedStreams.close();
+        splicedBytes.close();
+        reclaimedBytes.close();
+        readQuotaExhausted.close();
+        writeQuotaExhausted.close();
+        connectsByAddress.values().forEach(AtomicCounter::close);
+        connectFailuresByAddress.values().forEach(AtomicCounter::close);
+        profilesByLabel.values().forEach(AtomicCounter::close);
     }
 
     public AtomicCounter routesSourced()
@@ -45,4 +75,55 @@ public final class Counters implements AutoCloseable
     {
         return streamsSourced;
     }
+
+    public AtomicCounter splicedStreams()
+    {
+        return splicedStreams;
+    }
+
+    public AtomicCounter splicedBytes()
+    {
+        return splicedBytes;
+    }
+
+    public AtomicCounter reclaimedBytes()
+    {
+        return reclaimedBytes;
+    }
+
+    public AtomicCounter readQuotaExhausted()
+    {
+        return readQuotaExhausted;
+    }
+
+    public AtomicCounter writeQuotaExhausted()
+    {
+        return writeQuotaExhausted;
+    }
+
+    public AtomicCounter connects(
+        InetAddress localAddress)
+    {
+        return connectsByAddress.computeIfAbsent(localAddress, a -> newCounter("connects", a));
+    }
+
+    public AtomicCounter connectFailures(
+        InetAddress localAddress)
+    {
+        return connectFailuresByAddress.computeIfAbsent(localAddress, a -> newCounter("connectFailures", a));
+    }
+
+    public AtomicCounter profile(
+        String component,
+        String metric)
+    {
+        return profilesByLabel.computeIfAbsent(String.format("%s.%s", component, metric), countersManager::newCounter);
+    }
+
+    private AtomicCounter newCounter(
+        String name,
+        InetAddress localAddress)
+    {
+        return countersManager.newCounter(String.format("%s[%s]", name, localAddress.getHostAddress()));
+    }
 }
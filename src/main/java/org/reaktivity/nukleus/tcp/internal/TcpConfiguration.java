@@ -0,0 +1,396 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal;
+
+import java.util.Locale;
+import java.util.Properties;
+
+import org.reaktivity.nukleus.Configuration;
+
+/**
+ * TCP nukleus specific configuration, complementing the common nukleus {@code Configuration}.
+ * <p>
+ * A {@code TcpConfiguration} can be supplied wherever a {@code Configuration} is expected, such as when launching
+ * a reaktor, so that TCP properties are read from the same properties as the common configuration.
+ */
+public final class TcpConfiguration extends Configuration
+{
+    public static final String OUTPUT_LOCAL_ADDRESSES_PROPERTY_NAME = "nukleus.tcp.output.local.addresses";
+
+    public static final String OUTPUT_LOCAL_PORTS_PROPERTY_NAME = "nukleus.tcp.output.local.ports";
+
+    public static final String OUTPUT_LINGER_ZERO_PROPERTY_NAME = "nukleus.tcp.output.linger.zero";
+
+    public static final String OUTPUT_BALANCER_PROPERTY_NAME = "nukleus.tcp.output.balancer";
+
+    public static final String OUTPUT_EJECT_FAILURES_PROPERTY_NAME = "nukleus.tcp.output.eject.failures";
+
+    public static final String OUTPUT_EJECT_MILLIS_PROPERTY_NAME = "nukleus.tcp.output.eject.millis";
+
+    public static final String MODE_PROPERTY_NAME = "nukleus.tcp.mode";
+
+    public static final String READ_BATCH_SIZE_PROPERTY_NAME = "nukleus.tcp.read.batch.size";
+
+    public static final String WRITE_WINDOW_SIZE_PROPERTY_NAME = "nukleus.tcp.write.window.size";
+
+    public static final String WRITE_WINDOW_THRESHOLD_PROPERTY_NAME = "nukleus.tcp.write.window.threshold";
+
+    public static final String SOCKET_OPTIONS_PROPERTY_NAME = "nukleus.tcp.socket.options";
+
+    public static final String SPLICE_PROPERTY_NAME = "nukleus.tcp.splice";
+
+    public static final String SPLICE_BUFFER_SIZE_PROPERTY_NAME = "nukleus.tcp.splice.buffer.size";
+
+    public static final String SPLICE_BUFFER_POOL_SIZE_PROPERTY_NAME = "nukleus.tcp.splice.buffer.pool.size";
+
+    public static final String PROFILE_PROPERTY_NAME = "nukleus.tcp.profile";
+
+    public static final String EVENTS_CAPACITY_PROPERTY_NAME = "nukleus.tcp.events.capacity";
+
+    public static final String CONTROL_THREAD_PROPERTY_NAME = "nukleus.tcp.control.thread";
+
+    public static final String STREAMS_CAPACITIES_PROPERTY_NAME = "nukleus.tcp.streams.capacities";
+
+    public static final String THROTTLE_CAPACITIES_PROPERTY_NAME = "nukleus.tcp.throttle.capacities";
+
+    public static final String STREAMS_PREFAULT_PROPERTY_NAME = "nukleus.tcp.streams.prefault";
+
+    public static final String STREAMS_POOL_SIZE_PROPERTY_NAME = "nukleus.tcp.streams.pool.size";
+
+    public static final String ROUTES_CAPACITY_PROPERTY_NAME = "nukleus.tcp.routes.capacity";
+
+    public static final String READ_QUOTA_PROPERTY_NAME = "nukleus.tcp.read.quota";
+
+    public static final String WRITE_QUOTA_PROPERTY_NAME = "nukleus.tcp.write.quota";
+
+    public static final String CONDUCTOR_BUDGET_PROPERTY_NAME = "nukleus.tcp.conductor.budget";
+
+    public static final String ACCEPT_BUDGET_PROPERTY_NAME = "nukleus.tcp.accept.budget";
+
+    public static final String SCHEDULER_WEIGHTS_PROPERTY_NAME = "nukleus.tcp.scheduler.weights";
+
+    private static final String OUTPUT_LOCAL_ADDRESSES_DEFAULT = "";
+
+    private static final String OUTPUT_LOCAL_PORTS_DEFAULT = "";
+
+    private static final boolean OUTPUT_LINGER_ZERO_DEFAULT = false;
+
+    private static final String OUTPUT_BALANCER_DEFAULT = "round-robin";
+
+    private static final int OUTPUT_EJECT_FAILURES_DEFAULT = 3;
+
+    private static final long OUTPUT_EJECT_MILLIS_DEFAULT = 10000L;
+
+    private static final String MODE_DEFAULT = "default";
+
+    private static final boolean SPLICE_DEFAULT = false;
+
+    private static final int SPLICE_BUFFER_SIZE_DEFAULT = 65536;
+
+    private static final int SPLICE_BUFFER_POOL_SIZE_DEFAULT = 64;
+
+    private static final boolean PROFILE_DEFAULT = false;
+
+    private static final int EVENTS_CAPACITY_DEFAULT = 1024 * 1024;
+
+    private static final boolean CONTROL_THREAD_DEFAULT = true;
+
+    private static final String STREAMS_CAPACITIES_DEFAULT = "";
+
+    private static final String THROTTLE_CAPACITIES_DEFAULT = "";
+
+    private static final boolean STREAMS_PREFAULT_DEFAULT = false;
+
+    private static final int STREAMS_POOL_SIZE_DEFAULT = 0;
+
+    private static final int ROUTES_CAPACITY_DEFAULT = 0;
+
+    private static final int READ_QUOTA_DEFAULT = 0;
+
+    private static final int WRITE_QUOTA_DEFAULT = 0;
+
+    private static final int CONDUCTOR_BUDGET_DEFAULT = 0;
+
+    private static final int ACCEPT_BUDGET_DEFAULT = 0;
+
+    private static final String SCHEDULER_WEIGHTS_DEFAULT = "";
+
+    private final Properties properties;
+
+    public TcpConfiguration()
+    {
+        this(System.getProperties());
+    }
+
+    public TcpConfiguration(
+        Properties properties)
+    {
+        super(properties);
+        this.properties = properties;
+    }
+
+    public String outputLocalAddresses()
+    {
+        return property(OUTPUT_LOCAL_ADDRESSES_PROPERTY_NAME, OUTPUT_LOCAL_ADDRESSES_DEFAULT);
+    }
+
+    public String outputLocalPorts()
+    {
+        return property(OUTPUT_LOCAL_PORTS_PROPERTY_NAME, OUTPUT_LOCAL_PORTS_DEFAULT);
+    }
+
+    public boolean outputLingerZero()
+    {
+        return booleanProperty(OUTPUT_LINGER_ZERO_PROPERTY_NAME, OUTPUT_LINGER_ZERO_DEFAULT);
+    }
+
+    public String outputBalancer()
+    {
+        return property(OUTPUT_BALANCER_PROPERTY_NAME, OUTPUT_BALANCER_DEFAULT);
+    }
+
+    public int outputEjectFailures()
+    {
+        return integerProperty(OUTPUT_EJECT_FAILURES_PROPERTY_NAME, OUTPUT_EJECT_FAILURES_DEFAULT);
+    }
+
+    public long outputEjectMillis()
+    {
+        return longProperty(OUTPUT_EJECT_MILLIS_PROPERTY_NAME, OUTPUT_EJECT_MILLIS_DEFAULT);
+    }
+
+    public Mode mode()
+    {
+        return Mode.valueOf(property(MODE_PROPERTY_NAME, MODE_DEFAULT).toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the maximum bytes read from a channel per read, or {@code 0} for the maximum message length.
+     */
+    public int readBatchSize()
+    {
+        return integerProperty(READ_BATCH_SIZE_PROPERTY_NAME, mode().readBatchSize);
+    }
+
+    public int writeWindowSize()
+    {
+        return integerProperty(WRITE_WINDOW_SIZE_PROPERTY_NAME, mode().writeWindowSize);
+    }
+
+    /**
+     * Returns the written bytes accumulated before a window update is sent, trading update frequency for latency.
+     * Only {@code WINDOW} frames are coalesced, data is still written to the channel as it arrives.
+     */
+    public int writeWindowThreshold()
+    {
+        return integerProperty(WRITE_WINDOW_THRESHOLD_PROPERTY_NAME, mode().writeWindowThreshold);
+    }
+
+    /**
+     * Returns the socket options profile for the given route scope, such as {@code input.8080}
+     * or {@code output.example.com:8080}, falling back to the default profile.
+     */
+    public String socketOptions(
+        String scope)
+    {
+        final String defaultValue = property(SOCKET_OPTIONS_PROPERTY_NAME, mode().socketOptions);
+        return property(String.format("%s.%s", SOCKET_OPTIONS_PROPERTY_NAME, scope), defaultValue);
+    }
+
+    public boolean splice()
+    {
+        return booleanProperty(SPLICE_PROPERTY_NAME, SPLICE_DEFAULT);
+    }
+
+    /**
+     * Returns the bytes buffered in each direction of a spliced connection pair.
+     */
+    public int spliceBufferSize()
+    {
+        return integerProperty(SPLICE_BUFFER_SIZE_PROPERTY_NAME, SPLICE_BUFFER_SIZE_DEFAULT);
+    }
+
+    /**
+     * Returns the number of released splice buffers kept for reuse, or {@code 0} to disable pooling.
+     */
+    public int spliceBufferPoolSize()
+    {
+        return integerProperty(SPLICE_BUFFER_POOL_SIZE_PROPERTY_NAME, SPLICE_BUFFER_POOL_SIZE_DEFAULT);
+    }
+
+    /**
+     * Returns whether per-component duty cycle counters are maintained, at the cost of two clock reads per component.
+     */
+    public boolean profile()
+    {
+        return booleanProperty(PROFILE_PROPERTY_NAME, PROFILE_DEFAULT);
+    }
+
+    /**
+     * Returns the capacity in bytes of the {@code tcp/events} log, or {@code 0} to disable it.
+     */
+    public int eventsCapacity()
+    {
+        return integerProperty(EVENTS_CAPACITY_PROPERTY_NAME, EVENTS_CAPACITY_DEFAULT);
+    }
+
+    /**
+     * Returns whether route commands are prepared on a control thread, keeping name resolution, listener binding
+     * and layout mapping out of the nukleus duty cycle.
+     */
+    public boolean controlThread()
+    {
+        return booleanProperty(CONTROL_THREAD_PROPERTY_NAME, CONTROL_THREAD_DEFAULT);
+    }
+
+    /**
+     * Returns streams ring capacities by nukleus name, such as {@code "bulk*=67108864,control*=65536"},
+     * overriding {@code nukleus.streams.buffer.capacity} for matching targets and sources.
+     */
+    public String streamsCapacities()
+    {
+        return property(STREAMS_CAPACITIES_PROPERTY_NAME, STREAMS_CAPACITIES_DEFAULT);
+    }
+
+    /**
+     * Returns throttle ring capacities by nukleus name, overriding {@code nukleus.throttle.buffer.capacity}.
+     */
+    public String throttleCapacities()
+    {
+        return property(THROTTLE_CAPACITIES_PROPERTY_NAME, THROTTLE_CAPACITIES_DEFAULT);
+    }
+
+    /**
+     * Returns whether stream layouts are touched page by page when mapped, moving page faults off the data path.
+     */
+    public boolean streamsPrefault()
+    {
+        return booleanProperty(STREAMS_PREFAULT_PROPERTY_NAME, STREAMS_PREFAULT_DEFAULT);
+    }
+
+    /**
+     * Returns the number of released target stream layouts kept mapped for reuse, or {@code 0} to disable pooling.
+     */
+    public int streamsPoolSize()
+    {
+        return integerProperty(STREAMS_POOL_SIZE_PROPERTY_NAME, STREAMS_POOL_SIZE_DEFAULT);
+    }
+
+    /**
+     * Returns the capacity in bytes of the {@code tcp/routes} journal, restored on restart, or {@code 0} to disable it.
+     */
+    public int routesCapacity()
+    {
+        return integerProperty(ROUTES_CAPACITY_PROPERTY_NAME, ROUTES_CAPACITY_DEFAULT);
+    }
+
+    /**
+     * Returns the bytes each reader may read per duty cycle across its streams, or {@code 0} for no limit.
+     * Streams not read once the quota is spent are read first on the next duty cycle.
+     */
+    public int readQuota()
+    {
+        return integerProperty(READ_QUOTA_PROPERTY_NAME, READ_QUOTA_DEFAULT);
+    }
+
+    /**
+     * Returns the frames each writer partition may handle per duty cycle, or {@code 0} for no limit.
+     */
+    public int writeQuota()
+    {
+        return integerProperty(WRITE_QUOTA_PROPERTY_NAME, WRITE_QUOTA_DEFAULT);
+    }
+
+    /**
+     * Returns the route commands, and prepared commands, the conductor applies per duty cycle, or {@code 0} for no limit.
+     */
+    public int conductorBudget()
+    {
+        return integerProperty(CONDUCTOR_BUDGET_PROPERTY_NAME, CONDUCTOR_BUDGET_DEFAULT);
+    }
+
+    /**
+     * Returns the connections the acceptor accepts per duty cycle across its listeners, or {@code 0} for no limit.
+     */
+    public int acceptBudget()
+    {
+        return integerProperty(ACCEPT_BUDGET_PROPERTY_NAME, ACCEPT_BUDGET_DEFAULT);
+    }
+
+    /**
+     * Returns the duty cycle weights by component name, such as {@code "router=4,conductor=1,acceptor=1"},
+     * where unweighted components run every duty cycle.
+     */
+    public String schedulerWeights()
+    {
+        return property(SCHEDULER_WEIGHTS_PROPERTY_NAME, SCHEDULER_WEIGHTS_DEFAULT);
+    }
+
+    public enum Mode
+    {
+        DEFAULT(0, 8192, 0, ""),
+        LATENCY(8192, 8192, 0, "nodelay"),
+        THROUGHPUT(0, 65536, 32768, "rcvbuf=262144,sndbuf=262144");
+
+        private final int readBatchSize;
+        private final int writeWindowSize;
+        private final int writeWindowThreshold;
+        private final String socketOptions;
+
+        Mode(
+            int readBatchSize,
+            int writeWindowSize,
+            int writeWindowThreshold,
+            String socketOptions)
+        {
+            this.readBatchSize = readBatchSize;
+            this.writeWindowSize = writeWindowSize;
+            this.writeWindowThreshold = writeWindowThreshold;
+            this.socketOptions = socketOptions;
+        }
+    }
+
+    private String property(
+        String key,
+        String defaultValue)
+    {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    private boolean booleanProperty(
+        String key,
+        boolean defaultValue)
+    {
+        String value = properties.getProperty(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    private int integerProperty(
+        String key,
+        int defaultValue)
+    {
+        String value = properties.getProperty(key);
+        return value != null ? Integer.decode(value) : defaultValue;
+    }
+
+    private long longProperty(
+        String key,
+        long defaultValue)
+    {
+        String value = properties.getProperty(key);
+        return value != null ? Long.decode(value) : defaultValue;
+    }
+}
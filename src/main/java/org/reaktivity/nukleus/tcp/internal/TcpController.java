@@ -17,19 +17,33 @@ package org.reaktivity.nukleus.tcp.internal;
 
 import static java.nio.ByteBuffer.allocateDirect;
 import static java.nio.ByteOrder.nativeOrder;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
 import static org.reaktivity.nukleus.tcp.internal.util.IpUtil.inetAddress;
 
 import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.agrona.DirectBuffer;
-import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.broadcast.BroadcastReceiver;
 import org.agrona.concurrent.broadcast.CopyBroadcastReceiver;
 import org.agrona.concurrent.ringbuffer.RingBuffer;
 import org.reaktivity.nukleus.Controller;
+import org.reaktivity.nukleus.tcp.internal.conductor.RouteBatch;
 import org.reaktivity.nukleus.tcp.internal.types.Flyweight;
 import org.reaktivity.nukleus.tcp.internal.types.control.ErrorFW;
 import org.reaktivity.nukleus.tcp.internal.types.control.Role;
@@ -40,16 +54,21 @@ import org.reaktivity.nukleus.tcp.internal.types.control.TcpRouteExFW;
 import org.reaktivity.nukleus.tcp.internal.types.control.UnrouteFW;
 import org.reaktivity.nukleus.tcp.internal.types.control.UnroutedFW;
 
-
+/**
+ * Sends control commands to the tcp nukleus and completes their futures from its responses.
+ * <p>
+ * Commands may be sent from any number of threads, each encoding into its own buffers before writing to the
+ * many-to-one command ring. Responses are received by whichever caller of {@code process()} holds the receiver,
+ * including a daemon polling thread started with the first command, so callers need not pump {@code process()}.
+ * <p>
+ * Futures are completed on the common fork join pool rather than the receiving thread, so dependent stages
+ * may send further commands and join on them without stalling the receiver.
+ */
 public final class TcpController implements Controller
 {
     private static final int MAX_SEND_LENGTH = 1024; // TODO: Configuration and Context
 
-    // TODO: thread-safe flyweights or command queue from public methods
-    private final RouteFW.Builder routeRW = new RouteFW.Builder();
-    private final UnrouteFW.Builder unrouteRW = new UnrouteFW.Builder();
-
-    private final TcpRouteExFW.Builder routeExRW = new TcpRouteExFW.Builder();
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(this::newEncoder);
 
     private final ErrorFW errorRO = new ErrorFW();
     private final RoutedFW routedRO = new RoutedFW();
@@ -58,24 +77,46 @@ public final class TcpController implements Controller
     private final Context context;
     private final RingBuffer conductorCommands;
     private final CopyBroadcastReceiver conductorResponses;
-    private final AtomicBuffer atomicBuffer;
-    private final Long2ObjectHashMap<CompletableFuture<?>> promisesByCorrelationId;
+    private final Map<Long, CompletableFuture<?>> promisesByCorrelationId;
+    private final Map<Long, long[]> batchResultsByCorrelationId;
+    private final Lock receiveLock;
+    private final Queue<Long> pendingAborts;
+    private final Queue<Encoder> allEncoders;
+    private final Executor completer;
+
+    private volatile Thread poller;
+    private volatile boolean closed;
 
     public TcpController(Context context)
     {
         this.context = context;
         this.conductorCommands = context.conductorCommands();
         this.conductorResponses = new CopyBroadcastReceiver(new BroadcastReceiver(context.conductorResponseBuffer()));
-        this.atomicBuffer = new UnsafeBuffer(allocateDirect(MAX_SEND_LENGTH).order(nativeOrder()));
-        this.promisesByCorrelationId = new Long2ObjectHashMap<>();
+        this.promisesByCorrelationId = new ConcurrentHashMap<>();
+        this.batchResultsByCorrelationId = new ConcurrentHashMap<>();
+        this.receiveLock = new ReentrantLock();
+        this.pendingAborts = new ConcurrentLinkedQueue<>();
+        this.allEncoders = new ConcurrentLinkedQueue<>();
+        this.completer = ForkJoinPool.commonPool();
     }
 
     @Override
     public int process()
     {
-        int weight = 0;
+        int weight = abortRouteBatches();
 
-        weight += conductorResponses.receive(this::handleResponse);
+        // single consumer receiver, concurrent callers make progress via the holder
+        if (receiveLock.tryLock())
+        {
+            try
+            {
+                weight += conductorResponses.receive(this::handleResponse);
+            }
+            finally
+            {
+                receiveLock.unlock();
+            }
+        }
 
         return weight;
     }
@@ -83,6 +124,19 @@ public final class TcpController implements Controller
     @Override
     public void close() throws Exception
     {
+        closed = true;
+
+        final Thread poller = this.poller;
+        if (poller != null)
+        {
+            poller.join();
+        }
+
+        // thread local encoders outlive close on other sending threads, so drop their buffers here
+        encoders.remove();
+        allEncoders.forEach(Encoder::release);
+        allEncoders.clear();
+
         context.close();
     }
 
@@ -109,9 +163,18 @@ public final class TcpController implements Controller
     {
         final CompletableFuture<Long> promise = new CompletableFuture<>();
 
+        if (closed)
+        {
+            commandFailed(promise, "controller closed");
+            return promise;
+        }
+
+        final Encoder encoder = encoders.get();
+        final AtomicBuffer atomicBuffer = encoder.atomicBuffer;
+
         long correlationId = conductorCommands.nextCorrelationId();
 
-        RouteFW routeRO = routeRW.wrap(atomicBuffer, 0, atomicBuffer.capacity())
+        RouteFW routeRO = encoder.routeRW.wrap(atomicBuffer, 0, atomicBuffer.capacity())
                                  .correlationId(correlationId)
                                  .role(b -> b.set(role))
                                  .state(b -> b.set(state))
@@ -119,16 +182,14 @@ public final class TcpController implements Controller
                                  .sourceRef(sourceRef)
                                  .target(target)
                                  .targetRef(targetRef)
-                                 .extension(b -> b.set(visitRouteEx(address)))
+                                 .extension(b -> b.set(encoder.visitRouteEx(address)))
                                  .build();
 
+        commandSent(correlationId, promise);
+
         if (!conductorCommands.write(routeRO.typeId(), routeRO.buffer(), routeRO.offset(), routeRO.length()))
         {
-            commandSendFailed(promise);
-        }
-        else
-        {
-            commandSent(correlationId, promise);
+            commandSendFailed(correlationId, promise);
         }
 
         return promise;
@@ -145,9 +206,18 @@ public final class TcpController implements Controller
     {
         final CompletableFuture<Void> promise = new CompletableFuture<>();
 
+        if (closed)
+        {
+            commandFailed(promise, "controller closed");
+            return promise;
+        }
+
+        final Encoder encoder = encoders.get();
+        final AtomicBuffer atomicBuffer = encoder.atomicBuffer;
+
         long correlationId = conductorCommands.nextCorrelationId();
 
-        UnrouteFW unrouteRO = unrouteRW.wrap(atomicBuffer, 0, atomicBuffer.capacity())
+        UnrouteFW unrouteRO = encoder.unrouteRW.wrap(atomicBuffer, 0, atomicBuffer.capacity())
                                  .correlationId(correlationId)
                                  .role(b -> b.set(role))
                                  .state(b -> b.set(state))
@@ -155,21 +225,117 @@ public final class TcpController implements Controller
                                  .sourceRef(sourceRef)
                                  .target(target)
                                  .targetRef(targetRef)
-                                 .extension(b -> b.set(visitRouteEx(address)))
+                                 .extension(b -> b.set(encoder.visitRouteEx(address)))
                                  .build();
 
+        commandSent(correlationId, promise);
+
         if (!conductorCommands.write(unrouteRO.typeId(), unrouteRO.buffer(), unrouteRO.offset(), unrouteRO.length()))
         {
-            commandSendFailed(promise);
+            commandSendFailed(correlationId, promise);
+        }
+
+        return promise;
+    }
+
+    /**
+     * Returns a new batch of routes and unroutes, sent with a single correlation when applied.
+     */
+    public TcpRouteBatch routes()
+    {
+        return new TcpRouteBatch(this);
+    }
+
+    CompletableFuture<long[]> doRouteBatch(
+        List<RouteBatch.Entry> entries)
+    {
+        final CompletableFuture<long[]> promise = new CompletableFuture<>();
+
+        if (closed)
+        {
+            commandFailed(promise, "controller closed");
+            return promise;
         }
-        else
+
+        final AtomicBuffer batchBuffer = encoders.get().batchBuffer();
+
+        final long correlationId = conductorCommands.nextCorrelationId();
+
+        batchResultsByCorrelationId.put(correlationId, new long[entries.size()]);
+        commandSent(correlationId, promise);
+
+        boolean partial = false;
+        int count = 0;
+        int limit = RouteBatch.ENTRIES_OFFSET;
+
+        for (int i = 0; i < entries.size(); i++)
         {
-            commandSent(correlationId, promise);
+            final RouteBatch.Entry entry = entries.get(i);
+
+            if (count != 0 && limit + RouteBatch.encodedLength(entry) > batchBuffer.capacity())
+            {
+                if (!writeRouteBatch(batchBuffer, correlationId, 0, count, limit))
+                {
+                    batchSendFailed(correlationId, promise, partial);
+                    return promise;
+                }
+
+                partial = true;
+                count = 0;
+                limit = RouteBatch.ENTRIES_OFFSET;
+            }
+
+            limit = RouteBatch.encode(batchBuffer, limit, entry);
+            count++;
+        }
+
+        if (!writeRouteBatch(batchBuffer, correlationId, RouteBatch.FLAG_FINAL, count, limit))
+        {
+            batchSendFailed(correlationId, promise, partial);
         }
 
         return promise;
     }
 
+    private void batchSendFailed(
+        long correlationId,
+        CompletableFuture<long[]> promise,
+        boolean partial)
+    {
+        batchResultsByCorrelationId.remove(correlationId);
+        commandSendFailed(correlationId, promise);
+
+        if (partial)
+        {
+            // discards the frames already sent, retried until written
+            pendingAborts.add(correlationId);
+            abortRouteBatches();
+        }
+    }
+
+    private int abortRouteBatches()
+    {
+        int weight = 0;
+
+        for (Long correlationId = pendingAborts.peek(); correlationId != null; correlationId = pendingAborts.peek())
+        {
+            final AtomicBuffer abortBuffer = encoders.get().atomicBuffer;
+            abortBuffer.putLong(RouteBatch.CORRELATION_ID_OFFSET, correlationId);
+            abortBuffer.putInt(RouteBatch.FLAGS_OFFSET, RouteBatch.FLAG_ABORT);
+            abortBuffer.putInt(RouteBatch.COUNT_OFFSET, 0);
+
+            if (!conductorCommands.write(RouteBatch.ROUTE_BATCH_TYPE_ID, abortBuffer, 0, RouteBatch.ENTRIES_OFFSET))
+            {
+                break;
+            }
+
+            pendingAborts.remove(correlationId);
+            weight++;
+        }
+
+        return weight;
+    }
+
     public TcpStreams streams(
         String source,
         String target)
@@ -177,19 +343,18 @@ public final class TcpController implements Controller
         return new TcpStreams(context, source, target);
     }
 
-    private Flyweight.Builder.Visitor visitRouteEx(
-        InetAddress address)
+    private boolean writeRouteBatch(
+        AtomicBuffer batchBuffer,
+        long correlationId,
+        int flags,
+        int count,
+        int limit)
     {
-        if (address == null)
-        {
-            return (buffer, offset, limit) -> routeExRW.wrap(buffer, offset, limit).build().length();
-        }
+        batchBuffer.putLong(RouteBatch.CORRELATION_ID_OFFSET, correlationId);
+        batchBuffer.putInt(RouteBatch.FLAGS_OFFSET, flags);
+        batchBuffer.putInt(RouteBatch.COUNT_OFFSET, count);
 
-        return (buffer, offset, limit) ->
-            routeExRW.wrap(buffer, offset, limit)
-                     .address(a -> inetAddress(address, a::ipv4Address, a::ipv6Address))
-                     .build()
-                     .length();
+        return conductorCommands.write(RouteBatch.ROUTE_BATCH_TYPE_ID, batchBuffer, 0, limit);
     }
 
     private int handleResponse(
@@ -209,6 +374,9 @@ public final class TcpController implements Controller
         case UnroutedFW.TYPE_ID:
             handleUnroutedResponse(buffer, index, length);
             break;
+        case RouteBatch.ROUTED_BATCH_TYPE_ID:
+            handleRoutedBatchResponse(buffer, index);
+            break;
         default:
             break;
         }
@@ -263,36 +431,163 @@ public final class TcpController implements Controller
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void handleRoutedBatchResponse(
+        DirectBuffer buffer,
+        int index)
+    {
+        final long correlationId = buffer.getLong(index + RouteBatch.CORRELATION_ID_OFFSET);
+        final int flags = buffer.getInt(index + RouteBatch.FLAGS_OFFSET);
+        final int count = buffer.getInt(index + RouteBatch.COUNT_OFFSET);
+        final int failedIndex = buffer.getInt(index + RouteBatch.FAILED_INDEX_OFFSET);
+        final int first = buffer.getInt(index + RouteBatch.FIRST_INDEX_OFFSET);
+
+        final long[] results = batchResultsByCorrelationId.get(correlationId);
+        if (results != null)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                results[first + i] = buffer.getLong(index + RouteBatch.RESULTS_OFFSET + i * SIZE_OF_LONG);
+            }
+
+            if ((flags & RouteBatch.FLAG_FINAL) != 0)
+            {
+                batchResultsByCorrelationId.remove(correlationId);
+
+                CompletableFuture<long[]> promise =
+                        (CompletableFuture<long[]>) promisesByCorrelationId.remove(correlationId);
+                if (promise != null)
+                {
+                    if (failedIndex != -1)
+                    {
+                        commandFailed(promise, String.format("batch entry %d failed", failedIndex));
+                    }
+                    else
+                    {
+                        commandSucceeded(promise, results);
+                    }
+                }
+            }
+        }
+    }
+
     private void commandSent(
         final long correlationId,
         final CompletableFuture<?> promise)
     {
+        // registered before the command is written, as the poller may receive the response first
         promisesByCorrelationId.put(correlationId, promise);
+
+        if (poller == null)
+        {
+            startPoller();
+        }
     }
 
-    private <T> boolean commandSucceeded(
+    private synchronized void startPoller()
+    {
+        if (poller == null && !closed)
+        {
+            final Thread thread = new Thread(this::poll, "tcp-controller");
+            thread.setDaemon(true);
+            thread.start();
+            poller = thread;
+        }
+    }
+
+    private void poll()
+    {
+        final IdleStrategy idleStrategy = new BackoffIdleStrategy(64L, 64L, MICROSECONDS.toNanos(1L), MILLISECONDS.toNanos(1L));
+
+        while (!closed)
+        {
+            idleStrategy.idle(process());
+        }
+    }
+
+    private <T> void commandSucceeded(
         final CompletableFuture<T> promise)
     {
-        return commandSucceeded(promise, null);
+        commandSucceeded(promise, null);
     }
 
-    private <T> boolean commandSucceeded(
+    private <T> void commandSucceeded(
         final CompletableFuture<T> promise,
         final T value)
     {
-        return promise.complete(value);
+        completer.execute(() -> promise.complete(value));
     }
 
-    private boolean commandSendFailed(
+    private void commandSendFailed(
+        final long correlationId,
         final CompletableFuture<?> promise)
     {
-        return commandFailed(promise, "unable to offer command");
+        promisesByCorrelationId.remove(correlationId);
+        commandFailed(promise, "unable to offer command");
     }
 
-    private boolean commandFailed(
+    private void commandFailed(
         final CompletableFuture<?> promise,
         final String message)
     {
-        return promise.completeExceptionally(new IllegalStateException(message).fillInStackTrace());
+        final Throwable failure = new IllegalStateException(message).fillInStackTrace();
+        completer.execute(() -> promise.completeExceptionally(failure));
+    }
+
+    private Encoder newEncoder()
+    {
+        final Encoder encoder = new Encoder(conductorCommands.maxMsgLength());
+        allEncoders.add(encoder);
+        return encoder;
+    }
+
+    private static final class Encoder
+    {
+        private final RouteFW.Builder routeRW = new RouteFW.Builder();
+        private final UnrouteFW.Builder unrouteRW = new UnrouteFW.Builder();
+
+        private final TcpRouteExFW.Builder routeExRW = new TcpRouteExFW.Builder();
+
+        private final AtomicBuffer atomicBuffer;
+        private final int maxBatchLength;
+
+        private AtomicBuffer batchBuffer;
+
+        private Encoder(
+            int maxBatchLength)
+        {
+            this.atomicBuffer = new UnsafeBuffer(allocateDirect(MAX_SEND_LENGTH).order(nativeOrder()));
+            this.maxBatchLength = maxBatchLength;
+        }
+
+        private AtomicBuffer batchBuffer()
+        {
+            if (batchBuffer == null)
+            {
+                batchBuffer = new UnsafeBuffer(allocateDirect(maxBatchLength).order(nativeOrder()));
+            }
+
+            return batchBuffer;
+        }
+
+        private void release()
+        {
+            batchBuffer = null;
+        }
+
+        private Flyweight.Builder.Visitor visitRouteEx(
+            InetAddress address)
+        {
+            if (address == null)
+            {
+                return (buffer, offset, limit) -> routeExRW.wrap(buffer, offset, limit).build().length();
+            }
+
+            return (buffer, offset, limit) ->
+                routeExRW.wrap(buffer, offset, limit)
+                         .address(a -> inetAddress(address, a::ipv4Address, a::ipv6Address))
+                         .build()
+                         .length();
+        }
     }
 }
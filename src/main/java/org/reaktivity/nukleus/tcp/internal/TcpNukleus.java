@@ -15,20 +15,23 @@
  */
 package org.reaktivity.nukleus.tcp.internal;
 
-import java.io.Closeable;
+import static org.reaktivity.nukleus.tcp.internal.profiler.ProfiledNukleus.profile;
 
 import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.tcp.internal.acceptor.Acceptor;
 import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
 import org.reaktivity.nukleus.tcp.internal.connector.Connector;
 import org.reaktivity.nukleus.tcp.internal.router.Router;
+import org.reaktivity.nukleus.tcp.internal.splicer.Splicer;
+import org.reaktivity.nukleus.tcp.internal.util.WeightedScheduler;
 import org.reaktivity.nukleus.tcp.internal.watcher.Watcher;
 
-public final class TcpNukleus extends Nukleus.Composite
+public final class TcpNukleus implements Nukleus
 {
     static final String NAME = "tcp";
 
-    private final Closeable cleaner;
+    private final WeightedScheduler scheduler;
+    private final Context context;
 
     TcpNukleus(
         Conductor conductor,
@@ -36,10 +39,19 @@ public final class TcpNukleus extends Nukleus.Composite
         Watcher watcher,
         Acceptor acceptor,
         Connector connector,
-        Closeable cleanup)
+        Splicer splicer,
+        Context context)
     {
-        super(conductor, watcher, router, acceptor, connector);
-        this.cleaner = cleanup;
+        this.scheduler = new WeightedScheduler(context.schedulerWeights(),
+                profile(context, conductor), profile(context, watcher), profile(context, router),
+                profile(context, acceptor), profile(context, connector), profile(context, splicer));
+        this.context = context;
+    }
+
+    @Override
+    public int process()
+    {
+        return scheduler.process();
     }
 
     @Override
@@ -51,7 +63,13 @@ public final class TcpNukleus extends Nukleus.Composite
     @Override
     public void close() throws Exception
     {
-        super.close();
-        cleaner.close();
+        scheduler.close();
+        context.close();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[name=%s]", getClass().getSimpleName(), NAME);
     }
 }
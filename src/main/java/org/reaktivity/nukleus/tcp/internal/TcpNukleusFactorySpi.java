@@ -21,6 +21,7 @@ import org.reaktivity.nukleus.tcp.internal.acceptor.Acceptor;
 import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
 import org.reaktivity.nukleus.tcp.internal.connector.Connector;
 import org.reaktivity.nukleus.tcp.internal.router.Router;
+import org.reaktivity.nukleus.tcp.internal.splicer.Splicer;
 import org.reaktivity.nukleus.tcp.internal.watcher.Watcher;
 
 public final class TcpNukleusFactorySpi implements NukleusFactorySpi
@@ -40,20 +41,29 @@ public final class TcpNukleusFactorySpi implements NukleusFactorySpi
         Conductor conductor = new Conductor(context);
         Router router = new Router(context);
         Watcher watcher = new Watcher(context);
-        Acceptor acceptor = new Acceptor();
+        Acceptor acceptor = new Acceptor(context);
         Connector connector = new Connector(context);
+        Splicer splicer = new Splicer(context);
 
         router.setConductor(conductor);
         acceptor.setConductor(conductor);
 
         router.setAcceptor(acceptor);
         router.setConnector(connector);
+        splicer.setConnector(connector);
+
+        if (context.splice())
+        {
+            router.setSplicer(splicer);
+        }
 
         watcher.setRouter(router);
         conductor.setRouter(router);
         acceptor.setRouter(router);
         connector.setRouter(router);
 
-        return new TcpNukleus(conductor, router, watcher, acceptor, connector, context);
+        conductor.restoreRoutes();
+
+        return new TcpNukleus(conductor, router, watcher, acceptor, connector, splicer, context);
     }
 }
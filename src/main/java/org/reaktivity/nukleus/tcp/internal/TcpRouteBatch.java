@@ -0,0 +1,81 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal;
+
+import static org.reaktivity.nukleus.tcp.internal.conductor.RouteBatch.KIND_ROUTE;
+import static org.reaktivity.nukleus.tcp.internal.conductor.RouteBatch.KIND_UNROUTE;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.reaktivity.nukleus.tcp.internal.conductor.RouteBatch;
+import org.reaktivity.nukleus.tcp.internal.types.control.Role;
+import org.reaktivity.nukleus.tcp.internal.types.control.State;
+
+/**
+ * Collects routes and unroutes to be sent in as few command frames as possible and applied atomically,
+ * completing with the source reference of each entry in order, {@code 0} for unroutes.
+ */
+public final class TcpRouteBatch
+{
+    private final TcpController controller;
+    private final List<RouteBatch.Entry> entries;
+
+    TcpRouteBatch(
+        TcpController controller)
+    {
+        this.controller = controller;
+        this.entries = new ArrayList<>();
+    }
+
+    public TcpRouteBatch route(
+        Role role,
+        State state,
+        String source,
+        long sourceRef,
+        String target,
+        long targetRef,
+        InetAddress address)
+    {
+        entries.add(new RouteBatch.Entry(KIND_ROUTE, role, state, source, sourceRef, target, targetRef, address));
+        return this;
+    }
+
+    public TcpRouteBatch unroute(
+        Role role,
+        State state,
+        String source,
+        long sourceRef,
+        String target,
+        long targetRef,
+        InetAddress address)
+    {
+        entries.add(new RouteBatch.Entry(KIND_UNROUTE, role, state, source, sourceRef, target, targetRef, address));
+        return this;
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    public CompletableFuture<long[]> apply()
+    {
+        return controller.doRouteBatch(entries);
+    }
+}
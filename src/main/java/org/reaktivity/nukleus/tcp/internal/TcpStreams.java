@@ -32,8 +32,8 @@ public final class TcpStreams
         String target)
     {
         this.layout = new StreamsLayout.Builder()
-                .streamsCapacity(context.streamsBufferCapacity())
-                .throttleCapacity(context.throttleBufferCapacity())
+                .streamsCapacity(context.streamsCapacity(target))
+                .throttleCapacity(context.throttleCapacity(target))
                 .path(context.routeStreamsPath().apply(source, target))
                 .readonly(true)
                 .build();
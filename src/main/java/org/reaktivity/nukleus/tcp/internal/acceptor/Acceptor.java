@@ -35,6 +35,7 @@ import org.agrona.LangUtil;
 import org.agrona.nio.TransportPoller;
 import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.Reaktive;
+import org.reaktivity.nukleus.tcp.internal.Context;
 import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
 import org.reaktivity.nukleus.tcp.internal.router.Router;
 
@@ -44,8 +45,17 @@ import org.reaktivity.nukleus.tcp.internal.router.Router;
 @Reaktive
 public final class Acceptor extends TransportPoller implements Nukleus
 {
+    private final int acceptBudget;
+
     private Conductor conductor;
     private Router router;
+    private int accepts;
+
+    public Acceptor(
+        Context context)
+    {
+        this.acceptBudget = context.acceptBudget() != 0 ? context.acceptBudget() : Integer.MAX_VALUE;
+    }
 
     public void setConductor(
         Conductor conductor)
@@ -63,6 +73,7 @@ public final class Acceptor extends TransportPoller implements Nukleus
     public int process()
     {
         selectNow();
+        accepts = 0;
         return selectedKeySet.forEach(this::processAccept);
     }
 
@@ -86,11 +97,12 @@ public final class Acceptor extends TransportPoller implements Nukleus
         long correlationId,
         String sourceName,
         long sourceRef,
-        SocketAddress address)
+        SocketAddress address,
+        ServerSocketChannel serverChannel)
     {
         try
         {
-            final SelectionKey key = findOrRegisterKey(address);
+            final SelectionKey key = findOrRegisterKey(address, serverChannel);
 
             // TODO: detect collision on different source name for same key
             // TODO: maintain register count
@@ -141,6 +153,14 @@ public final class Acceptor extends TransportPoller implements Nukleus
     private int processAccept(
         SelectionKey selectionKey)
     {
+        if (accepts == acceptBudget)
+        {
+            // still acceptable, so selected again next duty cycle
+            return 0;
+        }
+
+        accepts++;
+
         try
         {
             final ServerSocketChannel serverChannel = channel(selectionKey);
@@ -169,9 +189,23 @@ public final class Acceptor extends TransportPoller implements Nukleus
     }
 
     private SelectionKey findOrRegisterKey(
-        SocketAddress address)
+        SocketAddress address,
+        ServerSocketChannel serverChannel)
     {
-        return findSelectionKey(address, this::registerKey);
+        if (serverChannel == null)
+        {
+            return findSelectionKey(address, this::registerKey);
+        }
+
+        // bound ahead of time by the control thread
+        final SelectionKey key = findSelectionKey(address, a -> registerKey(serverChannel));
+
+        if (key.channel() != serverChannel)
+        {
+            CloseHelper.quietClose(serverChannel);
+        }
+
+        return key;
     }
 
     private SelectionKey findSelectionKey(
@@ -184,7 +218,7 @@ public final class Acceptor extends TransportPoller implements Nukleus
                         .filter(k -> hasLocalAddress(channel(k), localAddress))
                         .findFirst();
 
-        return optional.orElse(mappingFunction.apply(localAddress));
+        return optional.orElseGet(() -> mappingFunction.apply(localAddress));
     }
 
     private SelectionKey registerKey(
@@ -197,6 +231,22 @@ public final class Acceptor extends TransportPoller implements Nukleus
             serverChannel.bind(localAddress);
             serverChannel.configureBlocking(false);
 
+            return registerKey(serverChannel);
+        }
+        catch (IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        // unreachable
+        return null;
+    }
+
+    private SelectionKey registerKey(
+        ServerSocketChannel serverChannel)
+    {
+        try
+        {
             return serverChannel.register(selector, OP_ACCEPT);
         }
         catch (IOException ex)
@@ -15,19 +15,37 @@
  */
 package org.reaktivity.nukleus.tcp.internal.conductor;
 
+import static java.net.StandardSocketOptions.SO_REUSEADDR;
+import static java.util.Collections.emptyList;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.reaktivity.nukleus.tcp.internal.router.RouteKind.OUTPUT_NEW;
 import static org.reaktivity.nukleus.tcp.internal.util.IpUtil.inetAddress;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+import org.agrona.CloseHelper;
 import org.agrona.DirectBuffer;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.broadcast.BroadcastTransmitter;
 import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.Reaktive;
 import org.reaktivity.nukleus.tcp.internal.Context;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayoutPool;
+import org.reaktivity.nukleus.tcp.internal.router.PreparedRoute;
+import org.reaktivity.nukleus.tcp.internal.router.RouteKind;
 import org.reaktivity.nukleus.tcp.internal.router.Router;
 import org.reaktivity.nukleus.tcp.internal.types.OctetsFW;
 import org.reaktivity.nukleus.tcp.internal.types.control.ErrorFW;
@@ -38,12 +56,15 @@ import org.reaktivity.nukleus.tcp.internal.types.control.State;
 import org.reaktivity.nukleus.tcp.internal.types.control.TcpRouteExFW;
 import org.reaktivity.nukleus.tcp.internal.types.control.UnrouteFW;
 import org.reaktivity.nukleus.tcp.internal.types.control.UnroutedFW;
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
 
 @Reaktive
 public final class Conductor implements Nukleus
 {
     private static final int SEND_BUFFER_CAPACITY = 1024; // TODO: Configuration and Context
 
+    private static final long RESTORE_CORRELATION_ID = -1L;
+
     private final RouteFW routeRO = new RouteFW();
     private final UnrouteFW unrouteRO = new UnrouteFW();
 
@@ -57,15 +78,39 @@ public final class Conductor implements Nukleus
 
     private final BroadcastTransmitter conductorResponses;
     private final AtomicBuffer sendBuffer;
+    private final Function<String, String> socketOptions;
+    private final Context context;
+    private final StreamsLayoutPool streamsLayouts;
+    private final BiFunction<String, String, Path> routeStreamsPath;
+    private final ControlExecutor control;
+    private final AtomicBuffer batchBuffer;
+    private final Long2ObjectHashMap<List<RouteBatch.Entry>> batchesByCorrelationId;
+    private final RouteJournal routes;
+    private final int commandBudget;
 
     private Router router;
 
+    private boolean capturing;
+    private long capturedCorrelationId;
+    private boolean capturedError;
+    private long capturedSourceRef;
+    private RuntimeException batchFailure;
+
     public Conductor(Context context)
     {
         this.conductorCommands = context.conductorCommands();
         this.conductorResponses = context.conductorResponses();
 
         this.sendBuffer = new UnsafeBuffer(new byte[SEND_BUFFER_CAPACITY]);
+        this.socketOptions = context.socketOptions();
+        this.context = context;
+        this.streamsLayouts = context.streamsLayouts();
+        this.routeStreamsPath = context.routeStreamsPath();
+        this.control = new ControlExecutor(context.controlThread());
+        this.batchBuffer = new UnsafeBuffer(new byte[context.maxControlResponseLength()]);
+        this.batchesByCorrelationId = new Long2ObjectHashMap<>();
+        this.routes = context.routes();
+        this.commandBudget = context.conductorBudget() != 0 ? context.conductorBudget() : Integer.MAX_VALUE;
     }
 
     public void setRouter(
@@ -74,10 +119,64 @@ public final class Conductor implements Nukleus
         this.router = router;
     }
 
+    /**
+     * Re-applies the routes journaled before restart, keeping their source references, so that listeners and
+     * stream layouts are in place before traffic is serviced.
+     */
+    public void restoreRoutes()
+    {
+        final List<RouteBatch.Entry> restored = routes.restore();
+        final AtomicCounter routesSourced = context.counters().routesSourced();
+
+        if (routesSourced.get() < routes.routesSourced())
+        {
+            routesSourced.set(routes.routesSourced());
+        }
+
+        int failures = 0;
+        router.routeUpdates().begin();
+        for (RouteBatch.Entry entry : restored)
+        {
+            capturing = true;
+            capturedCorrelationId = RESTORE_CORRELATION_ID;
+
+            try
+            {
+                final PreparedRoute prepared = prepareRoute(entry.role(), entry.state(), entry.source(), entry.sourceRef(),
+                        entry.target(), entry.targetRef(), entry.address());
+
+                if (!applyBatchEntry(RESTORE_CORRELATION_ID, entry, entry.sourceRef(), prepared, false))
+                {
+                    failures++;
+                }
+            }
+            catch (RuntimeException ex)
+            {
+                failures++;
+            }
+            finally
+            {
+                capturing = false;
+            }
+        }
+        router.routeUpdates().end();
+
+        if (!restored.isEmpty())
+        {
+            context.logger().info(String.format("tcp routes restored=%d, failed=%d", restored.size() - failures, failures));
+        }
+    }
+
     @Override
     public int process()
     {
-        return conductorCommands.read(this::handleCommand);
+        return conductorCommands.read(this::handleCommand, commandBudget) + control.process(commandBudget);
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        control.close();
     }
 
     @Override
@@ -89,6 +188,12 @@ public final class Conductor implements Nukleus
     public void onErrorResponse(
         long correlationId)
     {
+        if (capturing && correlationId == capturedCorrelationId)
+        {
+            capturedError = true;
+            return;
+        }
+
         ErrorFW errorRO = errorRW.wrap(sendBuffer, 0, sendBuffer.capacity())
                                  .correlationId(correlationId)
                                  .build();
@@ -100,6 +205,12 @@ public final class Conductor implements Nukleus
         long correlationId,
         long sourceRef)
     {
+        if (capturing && correlationId == capturedCorrelationId)
+        {
+            capturedSourceRef = sourceRef;
+            return;
+        }
+
         RoutedFW routedRO = routedRW.wrap(sendBuffer, 0, sendBuffer.capacity())
                                     .correlationId(correlationId)
                                     .sourceRef(sourceRef)
@@ -111,6 +222,11 @@ public final class Conductor implements Nukleus
     public void onUnroutedResponse(
         long correlationId)
     {
+        if (capturing && correlationId == capturedCorrelationId)
+        {
+            return;
+        }
+
         UnroutedFW unroutedRO = unroutedRW.wrap(sendBuffer, 0, sendBuffer.capacity())
                                           .correlationId(correlationId)
                                           .build();
@@ -128,6 +244,9 @@ public final class Conductor implements Nukleus
         case UnrouteFW.TYPE_ID:
             handleUnrouteCommand(buffer, index, length);
             break;
+        case RouteBatch.ROUTE_BATCH_TYPE_ID:
+            handleRouteBatchCommand(buffer, index);
+            break;
         default:
             // ignore unrecognized commands (forwards compatible)
             break;
@@ -153,7 +272,379 @@ public final class Conductor implements Nukleus
         final TcpRouteExFW routeEx = extension.get(routeExRO::wrap);
         final InetAddress address = inetAddress(routeEx.address());
 
-        router.doRoute(correlationId, role, state, source, sourceRef, target, targetRef, address);
+        final RouteBatch.Entry entry =
+                new RouteBatch.Entry(RouteBatch.KIND_ROUTE, role, state, source, sourceRef, target, targetRef, address);
+
+        control.execute(
+            () -> prepareRoute(role, state, source, sourceRef, target, targetRef, address),
+            prepared -> applyCommand(correlationId, entry, prepared));
+    }
+
+    private PreparedRoute prepareRoute(
+        Role role,
+        State state,
+        String source,
+        long sourceRef,
+        String target,
+        long targetRef,
+        InetAddress address)
+    {
+        SocketOptions options;
+        try
+        {
+            options = resolveSocketOptions(role, sourceRef, target, targetRef);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            return null;
+        }
+
+        final boolean established = state == State.ESTABLISHED;
+        final List<StreamsLayoutPool.Staged> layouts = new ArrayList<>();
+        InetSocketAddress remoteAddress = null;
+        ServerSocketChannel serverChannel = null;
+
+        switch (role)
+        {
+        case INPUT:
+            if (!established && "any".equals(source) && sourceRef > 0L && sourceRef <= 65535L && address != null)
+            {
+                serverChannel = bind(new InetSocketAddress(address, (int) sourceRef));
+                stageLayout(layouts, source, target);
+            }
+            else if (established && address == null && sourceRef >= 0L && sourceRef <= 65535L)
+            {
+                stageLayout(layouts, source, target);
+            }
+            break;
+        case OUTPUT:
+            if (!established && targetRef > 0L && targetRef <= 65535L && address == null &&
+                (sourceRef == 0L || RouteKind.match(sourceRef) == OUTPUT_NEW))
+            {
+                remoteAddress = new InetSocketAddress(target, (int) targetRef);
+
+                // reads replies from the remote address via the "any" reader, see Router.doRouteOutput
+                stageLayout(layouts, "any", source);
+            }
+            break;
+        }
+
+        return new PreparedRoute(options, remoteAddress, serverChannel, layouts);
+    }
+
+    private void applyCommand(
+        long correlationId,
+        RouteBatch.Entry entry,
+        PreparedRoute prepared)
+    {
+        boolean applied = false;
+
+        capturing = true;
+        capturedCorrelationId = correlationId;
+
+        try
+        {
+            applied = applyBatchEntry(correlationId, entry, entry.sourceRef(), prepared, false);
+        }
+        finally
+        {
+            capturing = false;
+
+            if (!applied)
+            {
+                onErrorResponse(correlationId);
+            }
+            else if (entry.kind() == RouteBatch.KIND_ROUTE)
+            {
+                final long sourceRef = capturedSourceRef;
+                journal(entry.sourceRef(sourceRef));
+                onRoutedResponse(correlationId, sourceRef);
+            }
+            else
+            {
+                journal(entry);
+                onUnroutedResponse(correlationId);
+            }
+        }
+    }
+
+    private void handleRouteBatchCommand(
+        DirectBuffer buffer,
+        int index)
+    {
+        final long correlationId = buffer.getLong(index + RouteBatch.CORRELATION_ID_OFFSET);
+        final int flags = buffer.getInt(index + RouteBatch.FLAGS_OFFSET);
+        final int count = buffer.getInt(index + RouteBatch.COUNT_OFFSET);
+
+        if ((flags & RouteBatch.FLAG_ABORT) != 0)
+        {
+            batchesByCorrelationId.remove(correlationId);
+            return;
+        }
+
+        final List<RouteBatch.Entry> entries = batchesByCorrelationId.computeIfAbsent(correlationId, c -> new ArrayList<>());
+
+        int progress = index + RouteBatch.ENTRIES_OFFSET;
+        for (int i = 0; i < count; i++)
+        {
+            final RouteBatch.Entry entry = RouteBatch.decode(buffer, progress);
+            entries.add(entry);
+            progress += RouteBatch.encodedLength(entry);
+        }
+
+        if ((flags & RouteBatch.FLAG_FINAL) != 0)
+        {
+            batchesByCorrelationId.remove(correlationId);
+
+            control.execute(
+                () -> prepareRouteBatch(entries),
+                prepared -> applyRouteBatch(correlationId, entries, prepared));
+        }
+    }
+
+    private List<PreparedRoute> prepareRouteBatch(
+        List<RouteBatch.Entry> entries)
+    {
+        final List<PreparedRoute> prepared = new ArrayList<>(entries.size());
+
+        for (RouteBatch.Entry entry : entries)
+        {
+            final Role role = entry.role();
+            final State state = entry.state();
+            final String target = entry.target();
+            final long targetRef = entry.targetRef();
+            final InetAddress address = entry.address();
+
+            if (entry.kind() == RouteBatch.KIND_ROUTE)
+            {
+                prepared.add(prepareRoute(role, state, entry.source(), entry.sourceRef(), target, targetRef, address));
+            }
+            else
+            {
+                prepared.add(prepareUnroute(role, state, target, targetRef, address));
+            }
+        }
+
+        return prepared;
+    }
+
+    private void applyRouteBatch(
+        long correlationId,
+        List<RouteBatch.Entry> entries,
+        List<PreparedRoute> prepared)
+    {
+        final long[] sourceRefs = new long[entries.size()];
+        int failedIndex;
+
+        capturing = true;
+        capturedCorrelationId = correlationId;
+        batchFailure = null;
+        router.routeUpdates().begin();
+
+        try
+        {
+            failedIndex = RouteBatch.apply(entries,
+                (i, entry, sourceRef, undo) -> tryApplyBatchEntry(correlationId, entry, sourceRef, prepared.get(i), undo),
+                () -> capturedSourceRef,
+                sourceRefs);
+        }
+        finally
+        {
+            capturing = false;
+            router.routeUpdates().end();
+        }
+
+        final RuntimeException failure = batchFailure;
+        batchFailure = null;
+
+        if (failedIndex != -1)
+        {
+            for (int i = failedIndex + 1; i < prepared.size(); i++)
+            {
+                final PreparedRoute unapplied = prepared.get(i);
+                if (unapplied != null)
+                {
+                    unapplied.release(streamsLayouts);
+                }
+            }
+        }
+
+        if (failedIndex == -1)
+        {
+            for (int i = 0; i < entries.size(); i++)
+            {
+                final RouteBatch.Entry entry = entries.get(i);
+                journal(entry.kind() == RouteBatch.KIND_ROUTE ? entry.sourceRef(sourceRefs[i]) : entry);
+            }
+        }
+
+        onRoutedBatchResponse(correlationId, failedIndex, failedIndex == -1 ? sourceRefs : new long[0]);
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    private boolean tryApplyBatchEntry(
+        long correlationId,
+        RouteBatch.Entry entry,
+        long sourceRef,
+        PreparedRoute prepared,
+        boolean undo)
+    {
+        try
+        {
+            return applyBatchEntry(correlationId, entry, sourceRef, prepared, undo);
+        }
+        catch (RuntimeException ex)
+        {
+            // reported once the batch is rolled back, undo failures are best effort
+            if (!undo)
+            {
+                batchFailure = ex;
+            }
+            return false;
+        }
+    }
+
+    private boolean applyBatchEntry(
+        long correlationId,
+        RouteBatch.Entry entry,
+        long sourceRef,
+        PreparedRoute prepared,
+        boolean undo)
+    {
+        final Role role = entry.role();
+        final State state = entry.state();
+        final String source = entry.source();
+        final String target = entry.target();
+        final long targetRef = entry.targetRef();
+        final InetAddress address = entry.address();
+        final boolean route = (entry.kind() == RouteBatch.KIND_ROUTE) != undo;
+
+        capturedError = prepared == null;
+        capturedSourceRef = 0L;
+
+        if (capturedError)
+        {
+            return false;
+        }
+
+        if (route)
+        {
+            final PreparedRoute reroute = undo ?
+                    new PreparedRoute(resolveSocketOptions(role, sourceRef, target, targetRef), null, null, emptyList()) :
+                    prepared;
+
+            reroute.offerLayouts(streamsLayouts);
+
+            try
+            {
+                router.doRoute(correlationId, role, state, source, sourceRef, target, targetRef, address, reroute);
+            }
+            finally
+            {
+                reroute.release(streamsLayouts);
+            }
+        }
+        else
+        {
+            router.doUnroute(correlationId, role, state, source, sourceRef, target, targetRef, address, prepared);
+        }
+
+        return !capturedError;
+    }
+
+    private void onRoutedBatchResponse(
+        long correlationId,
+        int failedIndex,
+        long[] sourceRefs)
+    {
+        final int capacity = (batchBuffer.capacity() - RouteBatch.RESULTS_OFFSET) / SIZE_OF_LONG;
+
+        int first = 0;
+        do
+        {
+            final int count = Math.min(capacity, sourceRefs.length - first);
+            final boolean last = first + count == sourceRefs.length;
+
+            batchBuffer.putLong(RouteBatch.CORRELATION_ID_OFFSET, correlationId);
+            batchBuffer.putInt(RouteBatch.FLAGS_OFFSET, last ? RouteBatch.FLAG_FINAL : 0);
+            batchBuffer.putInt(RouteBatch.COUNT_OFFSET, count);
+            batchBuffer.putInt(RouteBatch.FAILED_INDEX_OFFSET, failedIndex);
+            batchBuffer.putInt(RouteBatch.FIRST_INDEX_OFFSET, first);
+
+            for (int i = 0; i < count; i++)
+            {
+                batchBuffer.putLong(RouteBatch.RESULTS_OFFSET + i * SIZE_OF_LONG, sourceRefs[first + i]);
+            }
+
+            conductorResponses.transmit(RouteBatch.ROUTED_BATCH_TYPE_ID, batchBuffer, 0,
+                    RouteBatch.RESULTS_OFFSET + count * SIZE_OF_LONG);
+
+            first += count;
+        }
+        while (first < sourceRefs.length);
+    }
+
+    private void journal(
+        RouteBatch.Entry entry)
+    {
+        routes.append(entry, context.counters().routesSourced().get());
+    }
+
+    private void stageLayout(
+        List<StreamsLayoutPool.Staged> layouts,
+        String source,
+        String target)
+    {
+        final Path path = routeStreamsPath.apply(source, target);
+
+        if (!streamsLayouts.isMapped(path))
+        {
+            try
+            {
+                layouts.add(streamsLayouts.stage(path, context.streamsCapacity(target), context.throttleCapacity(target)));
+            }
+            catch (RuntimeException ex)
+            {
+                // mapped inline when applied instead
+            }
+        }
+    }
+
+    private static ServerSocketChannel bind(
+        InetSocketAddress localAddress)
+    {
+        ServerSocketChannel serverChannel = null;
+
+        try
+        {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(SO_REUSEADDR, true);
+            serverChannel.bind(localAddress);
+            serverChannel.configureBlocking(false);
+            return serverChannel;
+        }
+        catch (IOException ex)
+        {
+            // already bound by a previous route, or bound inline when applied to report the error
+            CloseHelper.quietClose(serverChannel);
+            return null;
+        }
+    }
+
+    private SocketOptions resolveSocketOptions(
+        Role role,
+        long sourceRef,
+        String target,
+        long targetRef)
+    {
+        final String scope = role == Role.INPUT ? String.format("input.%d", sourceRef)
+                                                : String.format("output.%s:%d", target, targetRef);
+
+        return SocketOptions.parse(socketOptions.apply(scope));
     }
 
     private void handleUnrouteCommand(
@@ -175,6 +666,30 @@ public final class Conductor implements Nukleus
         final TcpRouteExFW unrouteEx = extension.get(routeExRO::wrap);
         final InetAddress address = inetAddress(unrouteEx.address());
 
-        router.doUnroute(correlationId, role, state, source, sourceRef, target, targetRef, address);
+        final RouteBatch.Entry entry =
+                new RouteBatch.Entry(RouteBatch.KIND_UNROUTE, role, state, source, sourceRef, target, targetRef, address);
+
+        control.execute(
+            () -> prepareUnroute(role, state, target, targetRef, address),
+            prepared -> applyCommand(correlationId, entry, prepared));
+    }
+
+    private PreparedRoute prepareUnroute(
+        Role role,
+        State state,
+        String target,
+        long targetRef,
+        InetAddress address)
+    {
+        PreparedRoute prepared = PreparedRoute.NONE;
+
+        if (role == Role.OUTPUT && state != State.ESTABLISHED && address == null &&
+            targetRef >= 0L && targetRef <= 65535L)
+        {
+            final InetSocketAddress remoteAddress = new InetSocketAddress(target, (int) targetRef);
+            prepared = new PreparedRoute(SocketOptions.NONE, remoteAddress, null, emptyList());
+        }
+
+        return prepared;
     }
 }
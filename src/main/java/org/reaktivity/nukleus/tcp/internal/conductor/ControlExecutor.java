@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.conductor;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.agrona.LangUtil;
+import org.agrona.concurrent.OneToOneConcurrentArrayQueue;
+
+/**
+ * Runs the slow preparation of control commands on a dedicated thread, handing each prepared result back to the
+ * nukleus thread to be applied, in command order.
+ * <p>
+ * Without a control thread, commands are prepared and applied inline.
+ */
+public final class ControlExecutor implements AutoCloseable
+{
+    private static final int APPLY_QUEUE_CAPACITY = 1024;
+
+    private final ExecutorService executor;
+    private final OneToOneConcurrentArrayQueue<Runnable> applies;
+
+    public ControlExecutor(
+        boolean controlThread)
+    {
+        this.executor = controlThread ? Executors.newSingleThreadExecutor(ControlExecutor::newThread) : null;
+        this.applies = controlThread ? new OneToOneConcurrentArrayQueue<>(APPLY_QUEUE_CAPACITY) : null;
+    }
+
+    public <T> void execute(
+        Supplier<T> prepare,
+        Consumer<T> apply)
+    {
+        if (executor == null)
+        {
+            apply.accept(prepare.get());
+        }
+        else
+        {
+            executor.execute(() -> enqueue(prepare, apply));
+        }
+    }
+
+    /**
+     * Applies prepared commands on the nukleus thread, returning the number applied.
+     */
+    public int process()
+    {
+        return process(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Applies at most {@code limit} prepared commands on the nukleus thread, returning the number applied.
+     */
+    public int process(
+        int limit)
+    {
+        int applied = 0;
+
+        if (applies != null)
+        {
+            Runnable apply;
+            while (applied < limit && (apply = applies.poll()) != null)
+            {
+                apply.run();
+                applied++;
+            }
+        }
+
+        return applied;
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor.awaitTermination(1L, SECONDS);
+        }
+    }
+
+    private <T> void enqueue(
+        Supplier<T> prepare,
+        Consumer<T> apply)
+    {
+        Runnable prepared;
+
+        try
+        {
+            final T result = prepare.get();
+            prepared = () -> apply.accept(result);
+        }
+        catch (Throwable ex)
+        {
+            // surface unexpected failures on the nukleus thread error handler
+            prepared = () -> LangUtil.rethrowUnchecked(ex);
+        }
+
+        while (!applies.offer(prepared) && !Thread.currentThread().isInterrupted())
+        {
+            Thread.yield();
+        }
+    }
+
+    private static Thread newThread(
+        Runnable runnable)
+    {
+        final Thread thread = new Thread(runnable, "tcp-control");
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.conductor;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.agrona.BitUtil.SIZE_OF_BYTE;
+import static org.agrona.BitUtil.SIZE_OF_INT;
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.agrona.BitUtil.SIZE_OF_SHORT;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.agrona.DirectBuffer;
+import org.agrona.LangUtil;
+import org.agrona.MutableDirectBuffer;
+import org.reaktivity.nukleus.tcp.internal.types.control.Role;
+import org.reaktivity.nukleus.tcp.internal.types.control.State;
+
+/**
+ * Wire format of the batched route command and its response, carrying many routes and unroutes per frame.
+ * <p>
+ * A batch spans one or more command frames with the same correlation id, the last flagged {@code FLAG_FINAL},
+ * and is applied atomically once complete. A sender unable to complete a batch sends {@code FLAG_ABORT} instead,
+ * discarding the frames already sent. The response carries the resulting source references in order,
+ * again spanning as many frames as needed, or the index of the entry that failed after the batch was rolled back.
+ */
+public final class RouteBatch
+{
+    public static final int ROUTE_BATCH_TYPE_ID = 0x00000021;
+    public static final int ROUTED_BATCH_TYPE_ID = 0x40000021;
+
+    public static final int FLAG_FINAL = 0x01;
+    public static final int FLAG_ABORT = 0x02;
+
+    public static final byte KIND_ROUTE = 0;
+    public static final byte KIND_UNROUTE = 1;
+
+    public static final int CORRELATION_ID_OFFSET = 0;
+    public static final int FLAGS_OFFSET = CORRELATION_ID_OFFSET + SIZE_OF_LONG;
+    public static final int COUNT_OFFSET = FLAGS_OFFSET + SIZE_OF_INT;
+    public static final int ENTRIES_OFFSET = COUNT_OFFSET + SIZE_OF_INT;
+
+    public static final int FAILED_INDEX_OFFSET = COUNT_OFFSET + SIZE_OF_INT;
+    public static final int FIRST_INDEX_OFFSET = FAILED_INDEX_OFFSET + SIZE_OF_INT;
+    public static final int RESULTS_OFFSET = FIRST_INDEX_OFFSET + SIZE_OF_INT;
+
+    private static final int KIND_OFFSET = 0;
+    private static final int ROLE_OFFSET = KIND_OFFSET + SIZE_OF_BYTE;
+    private static final int STATE_OFFSET = ROLE_OFFSET + SIZE_OF_BYTE;
+    private static final int ADDRESS_LENGTH_OFFSET = STATE_OFFSET + SIZE_OF_BYTE;
+    private static final int SOURCE_REF_OFFSET = ADDRESS_LENGTH_OFFSET + SIZE_OF_BYTE;
+    private static final int TARGET_REF_OFFSET = SOURCE_REF_OFFSET + SIZE_OF_LONG;
+    private static final int SOURCE_LENGTH_OFFSET = TARGET_REF_OFFSET + SIZE_OF_LONG;
+    private static final int TARGET_LENGTH_OFFSET = SOURCE_LENGTH_OFFSET + SIZE_OF_SHORT;
+    private static final int ENTRY_HEADER_LENGTH = TARGET_LENGTH_OFFSET + SIZE_OF_SHORT;
+
+    private RouteBatch()
+    {
+        // no instances
+    }
+
+    /**
+     * Applies entries in order, recording the source reference assigned to each applied route. When an entry fails,
+     * the entries already applied are undone in reverse order, so the batch applies atomically.
+     *
+     * @return the index of the failed entry, or {@code -1} when all entries applied
+     */
+    public static int apply(
+        List<Entry> entries,
+        Applier applier,
+        LongSupplier appliedSourceRef,
+        long[] sourceRefs)
+    {
+        RuntimeException failure = null;
+        int failedIndex = -1;
+
+        for (int i = 0; i < entries.size() && failedIndex == -1; i++)
+        {
+            final Entry entry = entries.get(i);
+
+            try
+            {
+                if (applier.apply(i, entry, entry.sourceRef, false))
+                {
+                    sourceRefs[i] = entry.kind == KIND_ROUTE ? appliedSourceRef.getAsLong() : 0L;
+                }
+                else
+                {
+                    failedIndex = i;
+                }
+            }
+            catch (RuntimeException ex)
+            {
+                failure = ex;
+                failedIndex = i;
+            }
+        }
+
+        for (int i = failedIndex - 1; i >= 0; i--)
+        {
+            final Entry entry = entries.get(i);
+
+            // an unrouted entry is routed again with its original source reference
+            final long sourceRef = entry.kind == KIND_ROUTE ? sourceRefs[i] : entry.sourceRef;
+
+            try
+            {
+                applier.apply(i, entry, sourceRef, true);
+            }
+            catch (RuntimeException ex)
+            {
+                // best effort, the original failure is reported
+            }
+        }
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+
+        return failedIndex;
+    }
+
+    public static int encodedLength(
+        Entry entry)
+    {
+        return ENTRY_HEADER_LENGTH + entry.address.length + entry.source.length + entry.target.length;
+    }
+
+    public static int encode(
+        MutableDirectBuffer buffer,
+        int offset,
+        Entry entry)
+    {
+        buffer.putByte(offset + KIND_OFFSET, entry.kind);
+        buffer.putByte(offset + ROLE_OFFSET, (byte) entry.role.ordinal());
+        buffer.putByte(offset + STATE_OFFSET, (byte) entry.state.ordinal());
+        buffer.putByte(offset + ADDRESS_LENGTH_OFFSET, (byte) entry.address.length);
+        buffer.putLong(offset + SOURCE_REF_OFFSET, entry.sourceRef);
+        buffer.putLong(offset + TARGET_REF_OFFSET, entry.targetRef);
+        buffer.putShort(offset + SOURCE_LENGTH_OFFSET, (short) entry.source.length);
+        buffer.putShort(offset + TARGET_LENGTH_OFFSET, (short) entry.target.length);
+
+        int progress = offset + ENTRY_HEADER_LENGTH;
+        buffer.putBytes(progress, entry.address);
+        progress += entry.address.length;
+        buffer.putBytes(progress, entry.source);
+        progress += entry.source.length;
+        buffer.putBytes(progress, entry.target);
+        progress += entry.target.length;
+
+        return progress;
+    }
+
+    public static Entry decode(
+        DirectBuffer buffer,
+        int offset)
+    {
+        final byte[] address = new byte[buffer.getByte(offset + ADDRESS_LENGTH_OFFSET)];
+        final byte[] source = new byte[buffer.getShort(offset + SOURCE_LENGTH_OFFSET)];
+        final byte[] target = new byte[buffer.getShort(offset + TARGET_LENGTH_OFFSET)];
+
+        int progress = offset + ENTRY_HEADER_LENGTH;
+        buffer.getBytes(progress, address);
+        progress += address.length;
+        buffer.getBytes(progress, source);
+        progress += source.length;
+        buffer.getBytes(progress, target);
+
+        return new Entry(
+                buffer.getByte(offset + KIND_OFFSET),
+                Role.values()[buffer.getByte(offset + ROLE_OFFSET)],
+                State.values()[buffer.getByte(offset + STATE_OFFSET)],
+                source,
+                buffer.getLong(offset + SOURCE_REF_OFFSET),
+                target,
+                buffer.getLong(offset + TARGET_REF_OFFSET),
+                address);
+    }
+
+    @FunctionalInterface
+    public interface Applier
+    {
+        /**
+         * Applies the entry at {@code index}, or undoes it after it was applied, returning whether it succeeded.
+         */
+        boolean apply(
+            int index,
+            Entry entry,
+            long sourceRef,
+            boolean undo);
+    }
+
+    public static final class Entry
+    {
+        private final byte kind;
+        private final Role role;
+        private final State state;
+        private final byte[] source;
+        private final long sourceRef;
+        private final byte[] target;
+        private final long targetRef;
+        private final byte[] address;
+
+        public Entry(
+            byte kind,
+            Role role,
+            State state,
+            String source,
+            long sourceRef,
+            String target,
+            long targetRef,
+            InetAddress address)
+        {
+            this(kind, role, state, source.getBytes(UTF_8), sourceRef, target.getBytes(UTF_8), targetRef,
+                 address != null ? address.getAddress() : new byte[0]);
+        }
+
+        private Entry(
+            byte kind,
+            Role role,
+            State state,
+            byte[] source,
+            long sourceRef,
+            byte[] target,
+            long targetRef,
+            byte[] address)
+        {
+            this.kind = kind;
+            this.role = role;
+            this.state = state;
+            this.source = source;
+            this.sourceRef = sourceRef;
+            this.target = target;
+            this.targetRef = targetRef;
+            this.address = address;
+        }
+
+        public byte kind()
+        {
+            return kind;
+        }
+
+        public Role role()
+        {
+            return role;
+        }
+
+        public State state()
+        {
+            return state;
+        }
+
+        public String source()
+        {
+            return new String(source, UTF_8);
+        }
+
+        public long sourceRef()
+        {
+            return sourceRef;
+        }
+
+        public Entry sourceRef(
+            long sourceRef)
+        {
+            return new Entry(kind, role, state, source, sourceRef, target, targetRef, address);
+        }
+
+        public String target()
+        {
+            return new String(target, UTF_8);
+        }
+
+        public long targetRef()
+        {
+            return targetRef;
+        }
+
+        public InetAddress address()
+        {
+            InetAddress inetAddress = null;
+
+            if (address.length != 0)
+            {
+                try
+                {
+                    inetAddress = InetAddress.getByAddress(address);
+                }
+                catch (UnknownHostException ex)
+                {
+                    LangUtil.rethrowUnchecked(ex);
+                }
+            }
+
+            return inetAddress;
+        }
+    }
+}
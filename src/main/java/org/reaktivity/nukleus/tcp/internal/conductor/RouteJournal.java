@@ -0,0 +1,234 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.conductor;
+
+import static org.agrona.BitUtil.SIZE_OF_INT;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.reaktivity.nukleus.tcp.internal.layouts.RoutesLayout;
+
+/**
+ * Journals applied routes and unroutes to the mapped {@code tcp/routes} file, so that routes can be restored
+ * with the same source references when the nukleus restarts.
+ * <p>
+ * When full, the journal is compacted to the routes still applied, written to the other region of the layout
+ * before switching to it. If that does not make room, the journal is invalidated rather than restoring an
+ * incomplete set of routes. A torn journal also restores nothing, rather than the wrong routes.
+ */
+public final class RouteJournal
+{
+    public static final RouteJournal NONE = new RouteJournal(null);
+
+    private final RoutesLayout layout;
+
+    private int region;
+    private AtomicBuffer buffer;
+    private long position;
+
+    public RouteJournal(
+        RoutesLayout layout)
+    {
+        this.layout = layout;
+        this.region = layout != null ? layout.region() : 0;
+        this.buffer = layout != null ? layout.entriesBuffer(region) : null;
+        this.position = layout != null ? layout.position(region) : 0L;
+    }
+
+    public void append(
+        RouteBatch.Entry entry,
+        long routesSourced)
+    {
+        if (layout != null && layout.version() == RoutesLayout.ROUTES_VERSION)
+        {
+            final int length = RouteBatch.encodedLength(entry);
+
+            if (position + SIZE_OF_INT + length > buffer.capacity())
+            {
+                final List<RouteBatch.Entry> routes = routes();
+
+                if (routes != null)
+                {
+                    compact(routes);
+                }
+            }
+
+            if (position + SIZE_OF_INT + length > buffer.capacity())
+            {
+                layout.version(0);
+            }
+            else
+            {
+                write(entry);
+                layout.routesSourced(routesSourced);
+                layout.position(region, position);
+            }
+        }
+    }
+
+    /**
+     * Returns the routes still applied, in the order they were applied, compacting the journal to match.
+     */
+    public List<RouteBatch.Entry> restore()
+    {
+        List<RouteBatch.Entry> routes = routes();
+
+        if (routes == null)
+        {
+            routes = new ArrayList<>();
+        }
+
+        if (layout != null)
+        {
+            // an invalidated or torn journal restores nothing, then starts over
+            compact(routes);
+            layout.version(RoutesLayout.ROUTES_VERSION);
+        }
+
+        return routes;
+    }
+
+    public long routesSourced()
+    {
+        return layout != null ? layout.routesSourced() : 0L;
+    }
+
+    /**
+     * Returns the routes still applied, or {@code null} if the journal is torn.
+     */
+    private List<RouteBatch.Entry> routes()
+    {
+        final List<RouteBatch.Entry> routes = new ArrayList<>();
+
+        if (layout != null && layout.version() == RoutesLayout.ROUTES_VERSION)
+        {
+            if (position < 0L || position > buffer.capacity())
+            {
+                return null;
+            }
+
+            // folds each unroute with the earliest matching route
+            final Map<String, Deque<RouteBatch.Entry>> routesByKey = new LinkedHashMap<>();
+
+            int offset = 0;
+            while (offset < position)
+            {
+                final int length = buffer.getInt(offset);
+
+                if (length <= 0 || offset + SIZE_OF_INT + length > position)
+                {
+                    return null;
+                }
+
+                final RouteBatch.Entry entry = decode(offset + SIZE_OF_INT, length);
+
+                if (entry == null)
+                {
+                    return null;
+                }
+
+                final String key = key(entry);
+
+                if (entry.kind() == RouteBatch.KIND_ROUTE)
+                {
+                    routesByKey.computeIfAbsent(key, k -> new ArrayDeque<>()).add(entry);
+                }
+                else
+                {
+                    final Deque<RouteBatch.Entry> matching = routesByKey.get(key);
+                    if (matching != null)
+                    {
+                        matching.poll();
+                    }
+                }
+
+                offset += SIZE_OF_INT + length;
+            }
+
+            for (Iterator<Deque<RouteBatch.Entry>> i = routesByKey.values().iterator(); i.hasNext();)
+            {
+                routes.addAll(i.next());
+            }
+        }
+
+        return routes;
+    }
+
+    private RouteBatch.Entry decode(
+        int offset,
+        int length)
+    {
+        try
+        {
+            final RouteBatch.Entry entry = RouteBatch.decode(buffer, offset);
+            final byte kind = entry.kind();
+
+            if (RouteBatch.encodedLength(entry) != length ||
+                (kind != RouteBatch.KIND_ROUTE && kind != RouteBatch.KIND_UNROUTE))
+            {
+                return null;
+            }
+
+            return entry;
+        }
+        catch (RuntimeException ex)
+        {
+            // torn entry, such as an unknown role or state
+            return null;
+        }
+    }
+
+    private void compact(
+        List<RouteBatch.Entry> routes)
+    {
+        // write the other region, then switch to it, so the current region survives a crash until then
+        region = (region + 1) % RoutesLayout.REGION_COUNT;
+        buffer = layout.entriesBuffer(region);
+        position = 0L;
+
+        for (RouteBatch.Entry route : routes)
+        {
+            write(route);
+        }
+
+        layout.position(region, position);
+        layout.region(region);
+    }
+
+    private void write(
+        RouteBatch.Entry entry)
+    {
+        final int offset = (int) position;
+        final int limit = RouteBatch.encode(buffer, offset + SIZE_OF_INT, entry);
+
+        buffer.putInt(offset, limit - offset - SIZE_OF_INT);
+        position = limit;
+    }
+
+    private static String key(
+        RouteBatch.Entry entry)
+    {
+        return String.format("%s:%s:%s:%d:%s:%d:%s", entry.role(), entry.state(), entry.source(), entry.sourceRef(),
+                entry.target(), entry.targetRef(), entry.address());
+    }
+}
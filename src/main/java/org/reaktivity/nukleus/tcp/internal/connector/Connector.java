@@ -15,7 +15,13 @@
  */
 package org.reaktivity.nukleus.tcp.internal.connector;
 
+import static java.net.StandardSocketOptions.SO_LINGER;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.CONNECT;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.CONNECT_FAILED;
+
 import java.io.IOException;
+import java.net.BindException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
@@ -34,7 +40,12 @@ import org.reaktivity.nukleus.tcp.internal.router.Router;
 @Reaktive
 public final class Connector extends TransportPoller implements Nukleus
 {
+    private static final InetAddress ANY_LOCAL_ADDRESS = new InetSocketAddress(0).getAddress();
+    private static final int MAX_BIND_ATTEMPTS = 64;
+
     private final Context context;
+    private final LocalAddressPool localAddresses;
+    private final boolean lingerZero;
 
     private Router router;
 
@@ -42,6 +53,8 @@ public final class Connector extends TransportPoller implements Nukleus
         Context context)
     {
         this.context = context;
+        this.localAddresses = LocalAddressPool.parse(context.outputLocalAddresses(), context.outputLocalPorts());
+        this.lingerZero = context.outputLingerZero();
     }
 
     public void setRouter(
@@ -78,6 +91,8 @@ public final class Connector extends TransportPoller implements Nukleus
 
         try
         {
+            prepare(channel);
+
             if (channel.connect(remoteAddress))
             {
                 handleConnected(request);
@@ -94,6 +109,42 @@ public final class Connector extends TransportPoller implements Nukleus
         }
     }
 
+    public void prepare(
+        SocketChannel channel) throws IOException
+    {
+        if (lingerZero)
+        {
+            channel.setOption(SO_LINGER, 0);
+        }
+
+        if (localAddresses != null)
+        {
+            bindLocalAddress(channel);
+        }
+    }
+
+    private void bindLocalAddress(
+        SocketChannel channel) throws IOException
+    {
+        // no SO_REUSEADDR, so binding a tuple still in use fails and the next tuple is tried
+        BindException lastFailure = null;
+        for (int attempts = Math.min(localAddresses.size(), MAX_BIND_ATTEMPTS); attempts > 0; attempts--)
+        {
+            try
+            {
+                channel.bind(localAddresses.next());
+                return;
+            }
+            catch (BindException ex)
+            {
+                // local (address, port) tuple in use, try next
+                lastFailure = ex;
+            }
+        }
+
+        throw lastFailure;
+    }
+
     private void selectNow()
     {
         try
@@ -115,6 +166,10 @@ public final class Connector extends TransportPoller implements Nukleus
         try
         {
             channel.finishConnect();
+
+            // connected channel is handed off to reader and writer, so stop selecting for connect
+            selectionKey.cancel();
+
             handleConnected(request);
         }
         catch (Exception ex)
@@ -140,6 +195,9 @@ public final class Connector extends TransportPoller implements Nukleus
         final SocketChannel channel = request.channel();
         final InetSocketAddress address = request.address();
 
+        context.counters().connects(localAddress(channel)).increment();
+        context.events().record(CONNECT, sourceId, targetId);
+
         router.onConnected(sourceName, sourceRef, sourceId, targetName, targetId, targetRef, correlationId, channel, address);
     }
 
@@ -148,7 +206,26 @@ public final class Connector extends TransportPoller implements Nukleus
     {
         final String sourceName = request.sourceName();
         final long sourceId = request.sourceId();
+        final SocketChannel channel = request.channel();
+
+        context.counters().connectFailures(localAddress(channel)).increment();
+        context.events().record(CONNECT_FAILED, sourceId, 0L);
 
         router.onConnectFailed(sourceName, sourceId);
     }
+
+    private static InetAddress localAddress(
+        SocketChannel channel)
+    {
+        try
+        {
+            final InetSocketAddress localAddress = (InetSocketAddress) channel.getLocalAddress();
+            return localAddress != null ? localAddress.getAddress() : ANY_LOCAL_ADDRESS;
+        }
+        catch (IOException ex)
+        {
+            // channel already closed
+            return ANY_LOCAL_ADDRESS;
+        }
+    }
 }
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.connector;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads out-bound connections across (local address, local port) tuples, so that connection rates
+ * to the same remote address are not limited by a single local address ephemeral port range.
+ */
+public final class LocalAddressPool
+{
+    private final InetAddress[] addresses;
+    private final int minPort;
+    private final int ports;
+
+    private long index;
+
+    public LocalAddressPool(
+        List<InetAddress> addresses,
+        int minPort,
+        int maxPort)
+    {
+        if (minPort < 0 || maxPort > 65535 || minPort > maxPort)
+        {
+            throw new IllegalArgumentException(String.format("Illegal local port range: %d-%d", minPort, maxPort));
+        }
+
+        this.addresses = addresses.isEmpty() ? new InetAddress[] { null } : addresses.toArray(new InetAddress[0]);
+        this.minPort = minPort;
+        this.ports = maxPort - minPort + 1;
+    }
+
+    public int size()
+    {
+        return addresses.length * ports;
+    }
+
+    public InetSocketAddress next()
+    {
+        final long next = index++;
+        final InetAddress address = addresses[(int) (next % addresses.length)];
+        final int port = minPort + (int) ((next / addresses.length) % ports);
+
+        return address != null ? new InetSocketAddress(address, port) : new InetSocketAddress(port);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[addresses=%d, ports=%d-%d]",
+                getClass().getSimpleName(), addresses.length, minPort, minPort + ports - 1);
+    }
+
+    public static LocalAddressPool parse(
+        String addresses,
+        String ports)
+    {
+        final List<InetAddress> localAddresses = new ArrayList<>();
+        for (String address : addresses.split(","))
+        {
+            final String trimmed = address.trim();
+            if (!trimmed.isEmpty())
+            {
+                localAddresses.add(parseAddress(trimmed));
+            }
+        }
+
+        final String range = ports.trim();
+        if (localAddresses.isEmpty() && range.isEmpty())
+        {
+            return null;
+        }
+
+        int minPort = 0;
+        int maxPort = 0;
+        if (!range.isEmpty())
+        {
+            final int separator = range.indexOf('-');
+            minPort = Integer.parseInt(separator != -1 ? range.substring(0, separator).trim() : range);
+            maxPort = separator != -1 ? Integer.parseInt(range.substring(separator + 1).trim()) : minPort;
+        }
+
+        return new LocalAddressPool(localAddresses, minPort, maxPort);
+    }
+
+    private static InetAddress parseAddress(
+        String address)
+    {
+        try
+        {
+            return InetAddress.getByName(address);
+        }
+        catch (UnknownHostException ex)
+        {
+            throw new IllegalArgumentException("Unrecognized local address: " + address, ex);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.events;
+
+import static org.agrona.BitUtil.SIZE_OF_LONG;
+import static org.agrona.BitUtil.isPowerOfTwo;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.reaktivity.nukleus.tcp.internal.layouts.EventsLayout;
+
+/**
+ * Records stream lifecycle events to the mapped {@code tcp/events} file for post-mortem analysis,
+ * overwriting the oldest events on wrap so that the most recent history is always available.
+ * <p>
+ * Each event is a fixed size entry of timestamp, stream identifier, type-specific value and type,
+ * written by the nukleus thread only and published by an ordered write of the entry count.
+ */
+public final class EventLog
+{
+    public static final EventLog NONE = new EventLog(null);
+
+    public static final int ENTRY_LENGTH = 32;
+
+    public static final int TIMESTAMP_OFFSET = 0;
+    public static final int STREAM_ID_OFFSET = TIMESTAMP_OFFSET + SIZE_OF_LONG;
+    public static final int VALUE_OFFSET = STREAM_ID_OFFSET + SIZE_OF_LONG;
+    public static final int TYPE_OFFSET = VALUE_OFFSET + SIZE_OF_LONG;
+
+    private final EventsLayout layout;
+    private final AtomicBuffer buffer;
+    private final int mask;
+
+    private long position;
+
+    public EventLog(
+        EventsLayout layout)
+    {
+        this.layout = layout;
+        this.buffer = layout != null ? layout.eventsBuffer() : null;
+        this.mask = layout != null ? entries(buffer.capacity()) - 1 : 0;
+        this.position = layout != null ? layout.position() : 0L;
+    }
+
+    public void record(
+        EventType type,
+        long streamId,
+        long value)
+    {
+        if (buffer != null)
+        {
+            final int offset = offset(position, mask);
+
+            buffer.putLong(offset + TIMESTAMP_OFFSET, System.nanoTime());
+            buffer.putLong(offset + STREAM_ID_OFFSET, streamId);
+            buffer.putLong(offset + VALUE_OFFSET, value);
+            buffer.putInt(offset + TYPE_OFFSET, type.ordinal());
+
+            layout.position(++position);
+        }
+    }
+
+    /**
+     * Returns the number of entries in an events buffer of {@code capacity} bytes, which must be a power of two
+     * holding at least one entry so that writers and readers index the same slots.
+     */
+    public static int entries(
+        int capacity)
+    {
+        final int entries = capacity / ENTRY_LENGTH;
+
+        if (entries < 1 || !isPowerOfTwo(entries))
+        {
+            throw new IllegalArgumentException(String.format("Illegal tcp events capacity: %d", capacity));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Returns the byte offset of the slot for {@code position}, given a mask of one less than the entry count.
+     */
+    public static int offset(
+        long position,
+        int mask)
+    {
+        return (int) (position & mask) * ENTRY_LENGTH;
+    }
+}
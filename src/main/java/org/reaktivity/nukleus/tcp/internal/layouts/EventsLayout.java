@@ -0,0 +1,151 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.layouts;
+
+import static org.agrona.BitUtil.CACHE_LINE_LENGTH;
+import static org.agrona.BitUtil.isPowerOfTwo;
+import static org.agrona.IoUtil.createEmptyFile;
+import static org.agrona.IoUtil.mapExistingFile;
+import static org.agrona.IoUtil.unmap;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.agrona.BitUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Fixed size event log, overwriting the oldest entries on wrap.
+ * <pre>
+ * metadata: int version, int capacity, long start epoch millis, long start nano time (one cache line)
+ * position: long entries written (one cache line)
+ * entries:  capacity bytes of fixed size entries
+ * </pre>
+ */
+public final class EventsLayout extends Layout
+{
+    public static final int EVENTS_VERSION = 1;
+
+    private static final int FIELD_OFFSET_VERSION = 0;
+    private static final int FIELD_OFFSET_CAPACITY = FIELD_OFFSET_VERSION + BitUtil.SIZE_OF_INT;
+    private static final int FIELD_OFFSET_START_MILLIS = FIELD_OFFSET_CAPACITY + BitUtil.SIZE_OF_INT;
+    private static final int FIELD_OFFSET_START_NANOS = FIELD_OFFSET_START_MILLIS + BitUtil.SIZE_OF_LONG;
+    private static final int FIELD_OFFSET_POSITION = CACHE_LINE_LENGTH;
+
+    private static final int END_OF_META_DATA_OFFSET = FIELD_OFFSET_POSITION + CACHE_LINE_LENGTH;
+
+    private final AtomicBuffer metadataBuffer = new UnsafeBuffer(new byte[0]);
+    private final AtomicBuffer eventsBuffer = new UnsafeBuffer(new byte[0]);
+
+    public int version()
+    {
+        return metadataBuffer.getInt(FIELD_OFFSET_VERSION);
+    }
+
+    public long startMillis()
+    {
+        return metadataBuffer.getLong(FIELD_OFFSET_START_MILLIS);
+    }
+
+    public long startNanos()
+    {
+        return metadataBuffer.getLong(FIELD_OFFSET_START_NANOS);
+    }
+
+    public long position()
+    {
+        return metadataBuffer.getLongVolatile(FIELD_OFFSET_POSITION);
+    }
+
+    public void position(
+        long position)
+    {
+        metadataBuffer.putLongOrdered(FIELD_OFFSET_POSITION, position);
+    }
+
+    public AtomicBuffer eventsBuffer()
+    {
+        return eventsBuffer;
+    }
+
+    @Override
+    public void close()
+    {
+        unmap(metadataBuffer.byteBuffer());
+        unmap(eventsBuffer.byteBuffer());
+    }
+
+    public static final class Builder extends Layout.Builder<EventsLayout>
+    {
+        private Path path;
+        private int capacity;
+        private boolean readonly;
+
+        public Builder path(
+            Path path)
+        {
+            this.path = path;
+            return this;
+        }
+
+        public Builder capacity(
+            int capacity)
+        {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder readonly(
+            boolean readonly)
+        {
+            this.readonly = readonly;
+            return this;
+        }
+
+        @Override
+        public EventsLayout build()
+        {
+            final EventsLayout layout = new EventsLayout();
+            final File events = path.toFile();
+
+            if (!readonly)
+            {
+                if (!isPowerOfTwo(capacity))
+                {
+                    throw new IllegalArgumentException(String.format("Events capacity not a power of two: %d", capacity));
+                }
+
+                createEmptyFile(events, END_OF_META_DATA_OFFSET + capacity);
+            }
+
+            layout.metadataBuffer.wrap(mapExistingFile(events, "metadata", 0, END_OF_META_DATA_OFFSET));
+
+            if (!readonly)
+            {
+                layout.metadataBuffer.putInt(FIELD_OFFSET_VERSION, EVENTS_VERSION);
+                layout.metadataBuffer.putInt(FIELD_OFFSET_CAPACITY, capacity);
+                layout.metadataBuffer.putLong(FIELD_OFFSET_START_MILLIS, System.currentTimeMillis());
+                layout.metadataBuffer.putLong(FIELD_OFFSET_START_NANOS, System.nanoTime());
+            }
+
+            final int eventsCapacity = layout.metadataBuffer.getInt(FIELD_OFFSET_CAPACITY);
+            layout.eventsBuffer.wrap(mapExistingFile(events, "events", END_OF_META_DATA_OFFSET, eventsCapacity));
+
+            return layout;
+        }
+    }
+}
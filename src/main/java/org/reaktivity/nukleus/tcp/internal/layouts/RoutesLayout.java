@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.layouts;
+
+import static org.agrona.BitUtil.CACHE_LINE_LENGTH;
+import static org.agrona.IoUtil.createEmptyFile;
+import static org.agrona.IoUtil.mapExistingFile;
+import static org.agrona.IoUtil.unmap;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.agrona.BitUtil;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Append-only journal of applied routes, kept across restarts.
+ * <pre>
+ * metadata:  int version, int capacity, long routes sourced, int region (one cache line)
+ * positions: long bytes appended, per region (one cache line)
+ * regions:   two regions of capacity bytes of length prefixed entries
+ * </pre>
+ * Only the current region is appended. Compaction rewrites the other region, then switches the current region,
+ * so a crash part way through compaction leaves the current region intact.
+ * <p>
+ * A version of {@code 0} marks a journal that no longer holds every route and must not be restored.
+ */
+public final class RoutesLayout extends Layout
+{
+    public static final int ROUTES_VERSION = 2;
+    public static final int REGION_COUNT = 2;
+
+    private static final int FIELD_OFFSET_VERSION = 0;
+    private static final int FIELD_OFFSET_CAPACITY = FIELD_OFFSET_VERSION + BitUtil.SIZE_OF_INT;
+    private static final int FIELD_OFFSET_ROUTES_SOURCED = FIELD_OFFSET_CAPACITY + BitUtil.SIZE_OF_INT;
+    private static final int FIELD_OFFSET_REGION = FIELD_OFFSET_ROUTES_SOURCED + BitUtil.SIZE_OF_LONG;
+    private static final int FIELD_OFFSET_POSITIONS = CACHE_LINE_LENGTH;
+
+    private static final int END_OF_META_DATA_OFFSET = FIELD_OFFSET_POSITIONS + CACHE_LINE_LENGTH;
+
+    private final AtomicBuffer metadataBuffer = new UnsafeBuffer(new byte[0]);
+    private final AtomicBuffer[] entriesBuffers = { new UnsafeBuffer(new byte[0]), new UnsafeBuffer(new byte[0]) };
+
+    public int version()
+    {
+        return metadataBuffer.getInt(FIELD_OFFSET_VERSION);
+    }
+
+    public void version(
+        int version)
+    {
+        metadataBuffer.putIntOrdered(FIELD_OFFSET_VERSION, version);
+    }
+
+    public long routesSourced()
+    {
+        return metadataBuffer.getLong(FIELD_OFFSET_ROUTES_SOURCED);
+    }
+
+    public void routesSourced(
+        long routesSourced)
+    {
+        metadataBuffer.putLongOrdered(FIELD_OFFSET_ROUTES_SOURCED, routesSourced);
+    }
+
+    public int region()
+    {
+        return metadataBuffer.getIntVolatile(FIELD_OFFSET_REGION);
+    }
+
+    public void region(
+        int region)
+    {
+        metadataBuffer.putIntOrdered(FIELD_OFFSET_REGION, region);
+    }
+
+    public long position(
+        int region)
+    {
+        return metadataBuffer.getLongVolatile(FIELD_OFFSET_POSITIONS + region * BitUtil.SIZE_OF_LONG);
+    }
+
+    public void position(
+        int region,
+        long position)
+    {
+        metadataBuffer.putLongOrdered(FIELD_OFFSET_POSITIONS + region * BitUtil.SIZE_OF_LONG, position);
+    }
+
+    public AtomicBuffer entriesBuffer(
+        int region)
+    {
+        return entriesBuffers[region];
+    }
+
+    @Override
+    public void close()
+    {
+        unmap(metadataBuffer.byteBuffer());
+        for (AtomicBuffer entriesBuffer : entriesBuffers)
+        {
+            unmap(entriesBuffer.byteBuffer());
+        }
+    }
+
+    public static final class Builder extends Layout.Builder<RoutesLayout>
+    {
+        private Path path;
+        private int capacity;
+        private boolean readonly;
+
+        public Builder path(
+            Path path)
+        {
+            this.path = path;
+            return this;
+        }
+
+        public Builder capacity(
+            int capacity)
+        {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder readonly(
+            boolean readonly)
+        {
+            this.readonly = readonly;
+            return this;
+        }
+
+        @Override
+        public RoutesLayout build()
+        {
+            final RoutesLayout layout = new RoutesLayout();
+            final File routes = path.toFile();
+
+            // existing journal is kept, unless resized, so routes survive restart
+            final long length = END_OF_META_DATA_OFFSET + (long) capacity * REGION_COUNT;
+            final boolean create = !readonly && routes.length() != length;
+
+            if (create)
+            {
+                createEmptyFile(routes, length);
+            }
+
+            layout.metadataBuffer.wrap(mapExistingFile(routes, "metadata", 0, END_OF_META_DATA_OFFSET));
+
+            if (create)
+            {
+                layout.metadataBuffer.putInt(FIELD_OFFSET_VERSION, ROUTES_VERSION);
+                layout.metadataBuffer.putInt(FIELD_OFFSET_CAPACITY, capacity);
+            }
+
+            final int entriesCapacity = layout.metadataBuffer.getInt(FIELD_OFFSET_CAPACITY);
+            for (int region = 0; region < REGION_COUNT; region++)
+            {
+                final long offset = END_OF_META_DATA_OFFSET + (long) entriesCapacity * region;
+                layout.entriesBuffers[region].wrap(mapExistingFile(routes, "entries", offset, entriesCapacity));
+            }
+
+            return layout;
+        }
+    }
+}
@@ -31,6 +31,8 @@ import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
 
 public final class StreamsLayout extends Layout
 {
+    private static final int PAGE_SIZE = 4096;
+
     private final RingBuffer streamsBuffer;
     private final RingBuffer throttleBuffer;
 
@@ -52,6 +54,23 @@ public final class StreamsLayout extends Layout
         return throttleBuffer;
     }
 
+    public long capacity()
+    {
+        return (long) streamsBuffer.buffer().capacity() + throttleBuffer.buffer().capacity();
+    }
+
+    /**
+     * Clears both rings, so that a recycled layout is indistinguishable from a newly created one.
+     */
+    public void reset()
+    {
+        final AtomicBuffer streams = streamsBuffer.buffer();
+        final AtomicBuffer throttle = throttleBuffer.buffer();
+
+        streams.setMemory(0, streams.capacity(), (byte) 0);
+        throttle.setMemory(0, throttle.capacity(), (byte) 0);
+    }
+
     @Override
     public void close()
     {
@@ -65,6 +84,7 @@ public final class StreamsLayout extends Layout
         private long throttleCapacity;
         private Path path;
         private boolean readonly;
+        private boolean prefault;
 
         public Builder streamsCapacity(
             long streamsCapacity)
@@ -94,6 +114,16 @@ public final class StreamsLayout extends Layout
             return this;
         }
 
+        /**
+         * Touches every page when mapped, taking page faults up front rather than on the first frames.
+         */
+        public Builder prefault(
+            boolean prefault)
+        {
+            this.prefault = prefault;
+            return this;
+        }
+
         @Override
         public StreamsLayout build()
         {
@@ -112,7 +142,34 @@ public final class StreamsLayout extends Layout
             final AtomicBuffer atomicStreams = new UnsafeBuffer(mappedStreams);
             final AtomicBuffer atomicThrottle = new UnsafeBuffer(mappedThrottle);
 
+            if (prefault)
+            {
+                // produce into throttle when readonly, otherwise into streams
+                prefault(atomicStreams, mappedStreams, !readonly, streamsCapacity);
+                prefault(atomicThrottle, mappedThrottle, readonly, throttleCapacity);
+            }
+
             return new StreamsLayout(new OneToOneRingBuffer(atomicStreams), new OneToOneRingBuffer(atomicThrottle));
         }
+
+        private static void prefault(
+            AtomicBuffer buffer,
+            MappedByteBuffer mapped,
+            boolean producer,
+            long capacity)
+        {
+            if (producer)
+            {
+                // rewrite existing bytes, as a departed producer may have left unconsumed records
+                for (int index = 0; index < capacity; index += PAGE_SIZE)
+                {
+                    buffer.putByte(index, buffer.getByte(index));
+                }
+            }
+            else
+            {
+                mapped.load();
+            }
+        }
     }
 }
@@ -0,0 +1,319 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.layouts;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supplies {@code StreamsLayout}s, optionally pre-faulted, recycling the layouts this nukleus created
+ * once their streams are released, so that route churn neither maps new files nor takes new page faults.
+ * <p>
+ * Released layouts are reset and their files moved to the pool directory, keeping the mapping valid,
+ * then moved to the requested path when acquired with matching capacities.
+ * <p>
+ * Layouts may also be staged by a control thread, mapped in the pool directory ahead of the route that needs them,
+ * then offered for a path before that route is applied. All other methods are called by the nukleus thread.
+ */
+public final class StreamsLayoutPool implements AutoCloseable
+{
+    private final Path poolPath;
+    private final int maxPooled;
+    private final boolean prefault;
+    private final Map<String, Deque<Pooled>> pooledByCapacity;
+    private final Map<Path, Staged> stagedByPath;
+    private final Set<Path> mapped;
+    private final AtomicLong nextStagedId;
+
+    private int pooled;
+    private long nextPoolId;
+
+    public StreamsLayoutPool(
+        Path poolPath,
+        int maxPooled,
+        boolean prefault)
+    {
+        this.poolPath = poolPath;
+        this.maxPooled = maxPooled;
+        this.prefault = prefault;
+        this.pooledByCapacity = new HashMap<>();
+        this.stagedByPath = new HashMap<>();
+        this.mapped = ConcurrentHashMap.newKeySet();
+        this.nextStagedId = new AtomicLong();
+    }
+
+    /**
+     * Returns whether a layout is currently acquired for {@code path}, callable from any thread.
+     */
+    public boolean isMapped(
+        Path path)
+    {
+        return mapped.contains(path);
+    }
+
+    /**
+     * Maps a new layout in the pool directory for later use at {@code path}, callable from any thread.
+     */
+    public Staged stage(
+        Path path,
+        long streamsCapacity,
+        long throttleCapacity)
+    {
+        final Path stagedPath = poolPath.resolve(String.format("staged-%d", nextStagedId.getAndIncrement()));
+
+        final StreamsLayout layout = new StreamsLayout.Builder()
+                .path(stagedPath)
+                .streamsCapacity(streamsCapacity)
+                .throttleCapacity(throttleCapacity)
+                .readonly(false)
+                .prefault(prefault)
+                .build();
+
+        return new Staged(path, stagedPath, layout, streamsCapacity, throttleCapacity);
+    }
+
+    /**
+     * Offers a staged layout to the next {@code acquire} for its path.
+     */
+    public void offer(
+        Staged staged)
+    {
+        final Staged replaced = stagedByPath.put(staged.path, staged);
+
+        if (replaced != null)
+        {
+            recycle(replaced);
+        }
+    }
+
+    /**
+     * Recycles a staged layout that was not acquired, such as when its path was mapped in the meantime.
+     */
+    public void discard(
+        Staged staged)
+    {
+        if (stagedByPath.remove(staged.path, staged))
+        {
+            recycle(staged);
+        }
+    }
+
+    public StreamsLayout acquire(
+        Path path,
+        long streamsCapacity,
+        long throttleCapacity,
+        boolean readonly)
+    {
+        if (!readonly)
+        {
+            mapped.add(path);
+
+            final StreamsLayout staged = acquireStaged(path, streamsCapacity, throttleCapacity);
+            if (staged != null)
+            {
+                return staged;
+            }
+
+            final Deque<Pooled> candidates = pooledByCapacity.get(key(streamsCapacity, throttleCapacity));
+            while (candidates != null && !candidates.isEmpty())
+            {
+                final Pooled candidate = candidates.poll();
+                pooled--;
+
+                if (move(candidate.path, path))
+                {
+                    return candidate.layout;
+                }
+
+                candidate.layout.close();
+            }
+        }
+
+        return new StreamsLayout.Builder()
+                .path(path)
+                .streamsCapacity(streamsCapacity)
+                .throttleCapacity(throttleCapacity)
+                .readonly(readonly)
+                .prefault(prefault)
+                .build();
+    }
+
+    /**
+     * Releases a layout previously acquired for {@code path}, returning the number of mapped bytes unmapped,
+     * or {@code 0} when the layout was kept for reuse.
+     */
+    public long release(
+        Path path,
+        StreamsLayout layout,
+        long streamsCapacity,
+        long throttleCapacity)
+    {
+        mapped.remove(path);
+
+        if (pooled < maxPooled)
+        {
+            final Path pooledPath = poolPath.resolve(String.format("streams-%d", nextPoolId++));
+
+            // reset before moving, as peers never see the pool directory
+            layout.reset();
+
+            if (move(path, pooledPath))
+            {
+                pooledByCapacity.computeIfAbsent(key(streamsCapacity, throttleCapacity), k -> new ArrayDeque<>())
+                                .add(new Pooled(pooledPath, layout));
+                pooled++;
+                return 0L;
+            }
+        }
+
+        final long capacity = layout.capacity();
+        layout.close();
+        return capacity;
+    }
+
+    @Override
+    public void close()
+    {
+        for (Staged staged : stagedByPath.values())
+        {
+            staged.layout.close();
+            staged.stagedPath.toFile().delete();
+        }
+        stagedByPath.clear();
+
+        for (Deque<Pooled> candidates : pooledByCapacity.values())
+        {
+            for (Pooled candidate : candidates)
+            {
+                candidate.layout.close();
+                candidate.path.toFile().delete();
+            }
+        }
+
+        pooledByCapacity.clear();
+        pooled = 0;
+    }
+
+    private StreamsLayout acquireStaged(
+        Path path,
+        long streamsCapacity,
+        long throttleCapacity)
+    {
+        final Staged staged = stagedByPath.remove(path);
+
+        if (staged != null)
+        {
+            if (staged.streamsCapacity == streamsCapacity &&
+                staged.throttleCapacity == throttleCapacity &&
+                move(staged.stagedPath, path))
+            {
+                return staged.layout;
+            }
+
+            recycle(staged);
+        }
+
+        return null;
+    }
+
+    private void recycle(
+        Staged staged)
+    {
+        if (pooled < maxPooled)
+        {
+            // already in the pool directory and never seen by peers
+            pooledByCapacity.computeIfAbsent(key(staged.streamsCapacity, staged.throttleCapacity), k -> new ArrayDeque<>())
+                            .add(new Pooled(staged.stagedPath, staged.layout));
+            pooled++;
+        }
+        else
+        {
+            staged.layout.close();
+            staged.stagedPath.toFile().delete();
+        }
+    }
+
+    private static String key(
+        long streamsCapacity,
+        long throttleCapacity)
+    {
+        return String.format("%d:%d", streamsCapacity, throttleCapacity);
+    }
+
+    private static boolean move(
+        Path source,
+        Path target)
+    {
+        try
+        {
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException ex)
+        {
+            // file removed by departed peer, or target on another file store
+            return false;
+        }
+    }
+
+    private static final class Pooled
+    {
+        private final Path path;
+        private final StreamsLayout layout;
+
+        private Pooled(
+            Path path,
+            StreamsLayout layout)
+        {
+            this.path = path;
+            this.layout = layout;
+        }
+    }
+
+    public static final class Staged
+    {
+        private final Path path;
+        private final Path stagedPath;
+        private final StreamsLayout layout;
+        private final long streamsCapacity;
+        private final long throttleCapacity;
+
+        private Staged(
+            Path path,
+            Path stagedPath,
+            StreamsLayout layout,
+            long streamsCapacity,
+            long throttleCapacity)
+        {
+            this.path = path;
+            this.stagedPath = stagedPath;
+            this.layout = layout;
+            this.streamsCapacity = streamsCapacity;
+            this.throttleCapacity = throttleCapacity;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.profiler;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import org.reaktivity.nukleus.Nukleus;
+import org.reaktivity.nukleus.tcp.internal.Context;
+import org.reaktivity.nukleus.tcp.internal.Counters;
+
+/**
+ * Accounts the duty cycle of a nukleus component, publishing the nanoseconds spent in {@code process()},
+ * the total work count returned, the number of cycles and the number of cycles that found no work.
+ * <p>
+ * Counters of composite components include the time spent in their nested components.
+ * The empty cycle ratio is {@code <name>.empty / <name>.cycles}.
+ */
+public final class ProfiledNukleus implements Nukleus
+{
+    private final Nukleus delegate;
+    private final AtomicCounter nanos;
+    private final AtomicCounter work;
+    private final AtomicCounter cycles;
+    private final AtomicCounter empty;
+
+    private ProfiledNukleus(
+        String name,
+        Nukleus delegate,
+        Counters counters)
+    {
+        this.delegate = delegate;
+        this.nanos = counters.profile(name, "nanos");
+        this.work = counters.profile(name, "work");
+        this.cycles = counters.profile(name, "cycles");
+        this.empty = counters.profile(name, "empty");
+    }
+
+    @Override
+    public int process()
+    {
+        final long startedAt = System.nanoTime();
+        final int workCount = delegate.process();
+        final long elapsed = System.nanoTime() - startedAt;
+
+        // single writer, so ordered writes are sufficient for concurrent sampling
+        nanos.addOrdered(elapsed);
+        cycles.addOrdered(1L);
+
+        if (workCount != 0)
+        {
+            work.addOrdered(workCount);
+        }
+        else
+        {
+            empty.addOrdered(1L);
+        }
+
+        return workCount;
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        delegate.close();
+    }
+
+    @Override
+    public String name()
+    {
+        return delegate.name();
+    }
+
+    @Override
+    public String toString()
+    {
+        return delegate.toString();
+    }
+
+    public static Nukleus profile(
+        Context context,
+        Nukleus nukleus)
+    {
+        return profile(context, nukleus.name(), nukleus);
+    }
+
+    public static Nukleus profile(
+        Context context,
+        String name,
+        Nukleus nukleus)
+    {
+        return context.profile() ? new ProfiledNukleus(name, nukleus, context.counters()) : nukleus;
+    }
+}
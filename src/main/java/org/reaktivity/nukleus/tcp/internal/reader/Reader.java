@@ -15,7 +15,6 @@
  */
 package org.reaktivity.nukleus.tcp.internal.reader;
 
-import static java.util.Collections.emptyList;
 import static org.reaktivity.nukleus.tcp.internal.reader.Route.addressMatches;
 import static org.reaktivity.nukleus.tcp.internal.reader.Route.sourceMatches;
 import static org.reaktivity.nukleus.tcp.internal.reader.Route.sourceRefMatches;
@@ -23,10 +22,11 @@ import static org.reaktivity.nukleus.tcp.internal.reader.Route.targetMatches;
 import static org.reaktivity.nukleus.tcp.internal.reader.Route.targetRefMatches;
 import static org.reaktivity.nukleus.tcp.internal.router.RouteKind.OUTPUT_NEW;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -35,7 +35,6 @@ import java.util.function.Predicate;
 
 import org.agrona.CloseHelper;
 import org.agrona.LangUtil;
-import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.Nukleus;
@@ -45,6 +44,9 @@ import org.reaktivity.nukleus.tcp.internal.acceptor.Acceptor;
 import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
 import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
 import org.reaktivity.nukleus.tcp.internal.router.RouteKind;
+import org.reaktivity.nukleus.tcp.internal.router.RouteTable;
+import org.reaktivity.nukleus.tcp.internal.router.RouteUpdates;
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
 
 /**
  * The {@code Readable} nukleus reads network traffic via a {@code Source} nukleus and control flow commands
@@ -53,8 +55,6 @@ import org.reaktivity.nukleus.tcp.internal.router.RouteKind;
 @Reaktive
 public final class Reader extends Nukleus.Composite
 {
-    private static final List<Route> EMPTY_ROUTES = emptyList();
-
     private final Context context;
     private final Conductor conductor;
     private final Acceptor acceptor;
@@ -62,22 +62,24 @@ public final class Reader extends Nukleus.Composite
     private final Source source;
     private final Map<String, Target> targetsByName;
     private final AtomicBuffer writeBuffer;
-    private final Long2ObjectHashMap<List<Route>> routesByRef;
+    private final RouteTable<Route> routesByRef;
 
     public Reader(
         Context context,
         Conductor conductor,
         Acceptor acceptor,
+        RouteUpdates routeUpdates,
         String sourceName)
     {
         this.context = context;
         this.conductor = conductor;
         this.acceptor = acceptor;
         this.sourceName = sourceName;
-        this.source = include(new Source(sourceName, context.maxMessageLength()));
+        this.source = include(new Source(sourceName, context.readBatchSize(), context.readQuota(),
+                context.counters().readQuotaExhausted()));
         this.writeBuffer = new UnsafeBuffer(new byte[context.maxMessageLength()]);
         this.targetsByName = new TreeMap<>();
-        this.routesByRef = new Long2ObjectHashMap<>();
+        this.routesByRef = new RouteTable<>(routeUpdates);
     }
 
     @Override
@@ -87,34 +89,62 @@ public final class Reader extends Nukleus.Composite
     }
 
     public void onAccepted(
-        long sourceRef,
+        Route route,
         long targetId,
         long correlationId,
-        SocketChannel channel,
+        SocketChannel channel)
+    {
+        final Target target = route.target();
+        final long targetRef = route.targetRef();
+
+        applySocketOptions(channel, route.options());
+        source.onBegin(target, targetRef, targetId, correlationId, channel, null);
+    }
+
+    /**
+     * Aborts the streams to a departed target, then unmaps its layout unless routes still refer to it,
+     * returning the number of mapped bytes reclaimed.
+     */
+    public long onTargetExpired(
+        String targetName)
+    {
+        final Target target = targetsByName.get(targetName);
+
+        if (target == null)
+        {
+            return 0L;
+        }
+
+        target.abort();
+
+        if (routesByRef.stream().anyMatch(r -> r.target() == target))
+        {
+            return 0L;
+        }
+
+        targetsByName.remove(targetName);
+        exclude(target);
+
+        return context.streamsLayouts().release(
+                context.routeStreamsPath().apply(sourceName, targetName),
+                target.layout(),
+                context.streamsCapacity(targetName),
+                context.throttleCapacity(targetName));
+    }
+
+    public Route resolve(
+        long sourceRef,
         SocketAddress address)
     {
         final Predicate<Route> filter =
                 sourceMatches(sourceName)
                  .and(addressMatches(address));
 
-        final List<Route> routes = routesByRef.getOrDefault(sourceRef, EMPTY_ROUTES);
-
-        final Optional<Route> optional = routes.stream()
+        final Optional<Route> optional = lookupRoutes(sourceRef).stream()
             .filter(filter)
             .findFirst();
 
-        if (optional.isPresent())
-        {
-            final Route route = optional.get();
-            final Target target = route.target();
-            final long targetRef = route.targetRef();
-
-            source.onBegin(target, targetRef, targetId, correlationId, channel);
-        }
-        else
-        {
-            CloseHelper.close(channel);
-        }
+        return optional.orElse(null);
     }
 
     public void onConnected(
@@ -123,14 +153,14 @@ public final class Reader extends Nukleus.Composite
         long targetId,
         long correlationId,
         SocketChannel channel,
-        SocketAddress address)
+        SocketAddress address,
+        Runnable onFirstRead)
     {
         final Predicate<Route> filter =
                 sourceMatches(sourceName)
                  .and(addressMatches(address));
 
-        final Optional<Route> optional = routesByRef.values().stream()
-            .flatMap(rs -> rs.stream())
+        final Optional<Route> optional = routesByRef.stream()
             .filter(filter)
             .findFirst();
 
@@ -140,13 +170,13 @@ public final class Reader extends Nukleus.Composite
             final Target target = route.target();
             final long targetRef = route.targetRef();
 
-            source.onBegin(target, targetRef, targetId, correlationId, channel);
+            source.onBegin(target, targetRef, targetId, correlationId, channel, onFirstRead);
         }
         else if (RouteKind.match(sourceRef) == OUTPUT_NEW)
         {
             final Target target = targetsByName.computeIfAbsent(targetName, this::newTarget);
 
-            source.onBegin(target, 0L, targetId, correlationId, channel);
+            source.onBegin(target, 0L, targetId, correlationId, channel, onFirstRead);
         }
     }
 
@@ -170,20 +200,22 @@ public final class Reader extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        InetSocketAddress address)
+        InetSocketAddress address,
+        SocketOptions options,
+        ServerSocketChannel serverChannel)
     {
         try
         {
             final Target target = targetsByName.computeIfAbsent(targetName, this::newTarget);
-            final Route newRoute = new Route(sourceName, sourceRef, target, targetRef, address);
+            final Route newRoute = new Route(sourceName, sourceRef, target, targetRef, address, options);
 
-            routesByRef.computeIfAbsent(sourceRef, this::newRoutes)
-                       .add(newRoute);
+            routesByRef.add(sourceRef, newRoute);
 
-            acceptor.doRegister(correlationId, sourceName, sourceRef, address);
+            acceptor.doRegister(correlationId, sourceName, sourceRef, address, serverChannel);
         }
         catch (Exception ex)
         {
+            CloseHelper.quietClose(serverChannel);
             conductor.onErrorResponse(correlationId);
             LangUtil.rethrowUnchecked(ex);
         }
@@ -196,8 +228,6 @@ public final class Reader extends Nukleus.Composite
         long targetRef,
         InetSocketAddress address)
     {
-        final List<Route> routes = lookupRoutes(sourceRef);
-
         final Predicate<Route> filter =
                 sourceMatches(sourceName)
                  .and(sourceRefMatches(sourceRef))
@@ -205,7 +235,7 @@ public final class Reader extends Nukleus.Composite
                  .and(targetRefMatches(targetRef))
                  .and(addressMatches(address));
 
-        if (routes.removeIf(filter))
+        if (routesByRef.removeIf(sourceRef, filter))
         {
             acceptor.doUnregister(correlationId, sourceName, address);
         }
@@ -220,15 +250,15 @@ public final class Reader extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        SocketAddress address)
+        SocketAddress address,
+        SocketOptions options)
     {
         try
         {
             final Target target = targetsByName.computeIfAbsent(targetName, this::newTarget);
-            final Route newRoute = new Route(sourceName, sourceRef, target, targetRef, address);
+            final Route newRoute = new Route(sourceName, sourceRef, target, targetRef, address, options);
 
-            routesByRef.computeIfAbsent(sourceRef, this::newRoutes)
-                       .add(newRoute);
+            routesByRef.add(sourceRef, newRoute);
 
             conductor.onRoutedResponse(correlationId, sourceRef);
         }
@@ -246,8 +276,6 @@ public final class Reader extends Nukleus.Composite
         long targetRef,
         SocketAddress address)
     {
-        final List<Route> routes = lookupRoutes(sourceRef);
-
         final Predicate<Route> filter =
                 sourceMatches(sourceName)
                  .and(sourceRefMatches(sourceRef))
@@ -255,7 +283,7 @@ public final class Reader extends Nukleus.Composite
                  .and(targetRefMatches(targetRef))
                  .and(addressMatches(address));
 
-        if (routes.removeIf(filter))
+        if (routesByRef.removeIf(sourceRef, filter))
         {
             conductor.onUnroutedResponse(correlationId);
         }
@@ -272,28 +300,36 @@ public final class Reader extends Nukleus.Composite
         builder.append(String.format("%s[name=%s]", getClass().getSimpleName(), sourceName));
     }
 
-    private List<Route> newRoutes(
-        long sourceRef)
+    private static void applySocketOptions(
+        SocketChannel channel,
+        SocketOptions options)
     {
-        return new ArrayList<>();
+        try
+        {
+            options.apply(channel);
+        }
+        catch (IOException ex)
+        {
+            CloseHelper.quietClose(channel);
+            LangUtil.rethrowUnchecked(ex);
+        }
     }
 
     private List<Route> lookupRoutes(
         long referenceId)
     {
-        return routesByRef.getOrDefault(referenceId, EMPTY_ROUTES);
+        return routesByRef.lookup(referenceId);
     }
 
     private Target newTarget(
         String targetName)
     {
-        StreamsLayout layout = new StreamsLayout.Builder()
-                .path(context.routeStreamsPath().apply(sourceName, targetName))
-                .streamsCapacity(context.streamsBufferCapacity())
-                .throttleCapacity(context.throttleBufferCapacity())
-                .readonly(false)
-                .build();
-
-        return include(new Target(targetName, layout, writeBuffer));
+        StreamsLayout layout = context.streamsLayouts().acquire(
+                context.routeStreamsPath().apply(sourceName, targetName),
+                context.streamsCapacity(targetName),
+                context.throttleCapacity(targetName),
+                false);
+
+        return include(new Target(targetName, layout, writeBuffer, context.events()));
     }
 }
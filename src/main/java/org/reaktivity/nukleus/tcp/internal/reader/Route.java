@@ -19,6 +19,8 @@ import java.net.SocketAddress;
 import java.util.Objects;
 import java.util.function.Predicate;
 
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
+
 public class Route
 {
     private final String source;
@@ -26,19 +28,22 @@ public class Route
     private final Target target;
     private final long targetRef;
     private final SocketAddress address;
+    private final SocketOptions options;
 
     public Route(
         String source,
         long sourceRef,
         Target target,
         long targetRef,
-        SocketAddress address)
+        SocketAddress address,
+        SocketOptions options)
     {
         this.source = source;
         this.sourceRef = sourceRef;
         this.target = target;
         this.targetRef = targetRef;
         this.address = address;
+        this.options = options;
     }
 
     public String source()
@@ -66,6 +71,11 @@ public class Route
         return address;
     }
 
+    public SocketOptions options()
+    {
+        return options;
+    }
+
     @Override
     public int hashCode()
     {
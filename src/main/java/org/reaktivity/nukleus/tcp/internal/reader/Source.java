@@ -19,10 +19,12 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.Arrays;
 import java.util.function.IntSupplier;
 
 import org.agrona.CloseHelper;
 import org.agrona.LangUtil;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.agrona.nio.TransportPoller;
 import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.Reaktive;
@@ -33,13 +35,24 @@ public final class Source extends TransportPoller implements Nukleus
 {
     private final String sourceName;
     private final StreamFactory streamFactory;
+    private final int readQuota;
+    private final AtomicCounter quotaExhausted;
+
+    private SelectionKey[] readyKeys;
+    private int readyCount;
+    private SelectionKey resumeKey;
 
     public Source(
         String sourceName,
-        int bufferSize)
+        int bufferSize,
+        int readQuota,
+        AtomicCounter quotaExhausted)
     {
         this.sourceName = sourceName;
         this.streamFactory = new StreamFactory(bufferSize);
+        this.readQuota = readQuota;
+        this.quotaExhausted = quotaExhausted;
+        this.readyKeys = new SelectionKey[16];
     }
 
     @Override
@@ -62,7 +75,7 @@ public final class Source extends TransportPoller implements Nukleus
         try
         {
             selector.selectNow();
-            weight += selectedKeySet.forEach(this::processKey);
+            weight += readQuota != 0 ? processReadyKeys() : selectedKeySet.forEach(this::processKey);
         }
         catch (Exception ex)
         {
@@ -77,7 +90,8 @@ public final class Source extends TransportPoller implements Nukleus
         long targetRef,
         long targetId,
         long correlationId,
-        SocketChannel channel)
+        SocketChannel channel,
+        Runnable onFirstRead)
     {
         try
         {
@@ -86,8 +100,8 @@ public final class Source extends TransportPoller implements Nukleus
 
             target.doTcpBegin(targetId, targetRef, correlationId, localAddress, remoteAddress);
 
-            final SelectionKey key = channel.register(selector, 0);
-            final IntSupplier attachment = streamFactory.newStream(target, targetId, key, channel);
+            final SelectionKey key = register(channel);
+            final IntSupplier attachment = streamFactory.newStream(target, targetId, key, channel, onFirstRead);
 
             key.attach(attachment);
         }
@@ -98,8 +112,82 @@ public final class Source extends TransportPoller implements Nukleus
         }
     }
 
+    SelectionKey register(
+        SocketChannel channel) throws IOException
+    {
+        return channel.register(selector, 0);
+    }
+
+    private int processReadyKeys()
+    {
+        readyCount = 0;
+        selectedKeySet.forEach(this::collectKey);
+
+        final int count = readyCount;
+        final int start = resumeIndex(count);
+
+        int weight = 0;
+        int bytesRead = 0;
+
+        resumeKey = null;
+        for (int i = 0; i < count; i++)
+        {
+            final int index = (start + i) % count;
+
+            if (bytesRead >= readQuota)
+            {
+                // unread keys remain ready, so the next duty cycle starts at the first unread key
+                resumeKey = readyKeys[index];
+                quotaExhausted.increment();
+                break;
+            }
+
+            bytesRead += readKey(readyKeys[index]);
+            weight++;
+        }
+
+        Arrays.fill(readyKeys, 0, count, null);
+
+        return weight;
+    }
+
+    private int resumeIndex(
+        int count)
+    {
+        for (int index = 0; resumeKey != null && index < count; index++)
+        {
+            if (readyKeys[index] == resumeKey)
+            {
+                return index;
+            }
+        }
+
+        // no longer ready, such as closed or throttled
+        return 0;
+    }
+
+    private int collectKey(
+        SelectionKey selectionKey)
+    {
+        if (readyCount == readyKeys.length)
+        {
+            readyKeys = Arrays.copyOf(readyKeys, readyKeys.length << 1);
+        }
+
+        readyKeys[readyCount++] = selectionKey;
+
+        return 0;
+    }
+
     private int processKey(
         SelectionKey selectionKey)
+    {
+        readKey(selectionKey);
+        return 1;
+    }
+
+    private static int readKey(
+        SelectionKey selectionKey)
     {
         final IntSupplier attachment = (IntSupplier) selectionKey.attachment();
         return attachment.getAsInt();
@@ -15,6 +15,9 @@
  */
 package org.reaktivity.nukleus.tcp.internal.reader;
 
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.BEGIN;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.END;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.RING_FULL;
 import static org.reaktivity.nukleus.tcp.internal.util.IpUtil.socketAddress;
 
 import java.net.InetSocketAddress;
@@ -26,12 +29,14 @@ import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.MessageHandler;
 import org.agrona.concurrent.ringbuffer.RingBuffer;
 import org.reaktivity.nukleus.Nukleus;
+import org.reaktivity.nukleus.tcp.internal.events.EventLog;
 import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
 import org.reaktivity.nukleus.tcp.internal.types.Flyweight;
 import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.FrameFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.TcpBeginExFW;
 
 public final class Target implements Nukleus
@@ -41,12 +46,14 @@ public final class Target implements Nukleus
     private final BeginFW.Builder beginRW = new BeginFW.Builder();
     private final DataFW.Builder tcpDataRW = new DataFW.Builder();
     private final EndFW.Builder tcpEndRW = new EndFW.Builder();
+    private final ResetFW.Builder resetRW = new ResetFW.Builder();
 
     private final TcpBeginExFW.Builder beginExRW = new TcpBeginExFW.Builder();
 
     private final String name;
     private final StreamsLayout layout;
     private final AtomicBuffer writeBuffer;
+    private final EventLog events;
 
     private final RingBuffer streamsBuffer;
     private final RingBuffer throttleBuffer;
@@ -55,11 +62,13 @@ public final class Target implements Nukleus
     public Target(
         String name,
         StreamsLayout layout,
-        AtomicBuffer writeBuffer)
+        AtomicBuffer writeBuffer,
+        EventLog events)
     {
         this.name = name;
         this.layout = layout;
         this.writeBuffer = writeBuffer;
+        this.events = events;
         this.streamsBuffer = layout.streamsBuffer();
         this.throttleBuffer = layout.throttleBuffer();
         this.throttles = new Long2ObjectHashMap<>();
@@ -89,6 +98,44 @@ public final class Target implements Nukleus
         return String.format("%s[name=%s]", getClass().getSimpleName(), name);
     }
 
+    /**
+     * Returns the largest frame this target's streams ring accepts, bounding each socket read.
+     */
+    public int maxMessageLength()
+    {
+        return streamsBuffer.maxMsgLength();
+    }
+
+    public StreamsLayout layout()
+    {
+        return layout;
+    }
+
+    /**
+     * Resets all streams to this target, as its nukleus has departed and no further throttle frames can arrive.
+     */
+    public void abort()
+    {
+        final long[] streamIds = throttles.keySet().stream().mapToLong(Long::longValue).toArray();
+
+        for (long streamId : streamIds)
+        {
+            final MessageHandler throttle = throttles.remove(streamId);
+            final ResetFW reset = resetRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                    .streamId(streamId)
+                    .build();
+
+            try
+            {
+                throttle.onMessage(reset.typeId(), writeBuffer, reset.offset(), reset.length());
+            }
+            catch (Exception ex)
+            {
+                // channel already closed
+            }
+        }
+    }
+
     public void addThrottle(
         long streamId,
         MessageHandler throttle)
@@ -116,7 +163,8 @@ public final class Target implements Nukleus
                 .extension(b -> b.set(visitBeginEx(localAddress, remoteAddress)))
                 .build();
 
-        streamsBuffer.write(begin.typeId(), begin.buffer(), begin.offset(), begin.length());
+        doWrite(begin.typeId(), begin.buffer(), begin.offset(), begin.length(), streamId);
+        events.record(BEGIN, streamId, referenceId);
     }
 
     public int doTcpData(
@@ -131,7 +179,7 @@ public final class Target implements Nukleus
                 .extension(b -> b.set((buf, off, len) -> 0))
                 .build();
 
-        streamsBuffer.write(tcpData.typeId(), tcpData.buffer(), tcpData.offset(), tcpData.length());
+        doWrite(tcpData.typeId(), tcpData.buffer(), tcpData.offset(), tcpData.length(), streamId);
 
         return tcpData.length();
     }
@@ -144,7 +192,21 @@ public final class Target implements Nukleus
                 .extension(b -> b.set((buf, off, len) -> 0))
                 .build();
 
-        streamsBuffer.write(tcpEnd.typeId(), tcpEnd.buffer(), tcpEnd.offset(), tcpEnd.length());
+        doWrite(tcpEnd.typeId(), tcpEnd.buffer(), tcpEnd.offset(), tcpEnd.length(), streamId);
+        events.record(END, streamId, 0L);
+    }
+
+    private void doWrite(
+        int msgTypeId,
+        DirectBuffer buffer,
+        int offset,
+        int length,
+        long streamId)
+    {
+        if (!streamsBuffer.write(msgTypeId, buffer, offset, length))
+        {
+            events.record(RING_FULL, streamId, length);
+        }
     }
 
     private Flyweight.Builder.Visitor visitBeginEx(
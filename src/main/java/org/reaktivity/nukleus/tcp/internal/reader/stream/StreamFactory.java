@@ -52,9 +52,10 @@ public final class StreamFactory
         Target target,
         long targetId,
         SelectionKey key,
-        SocketChannel channel)
+        SocketChannel channel,
+        Runnable onFirstRead)
     {
-        final Stream stream = new Stream(target, targetId, key, channel);
+        final Stream stream = new Stream(target, targetId, key, channel, onFirstRead);
 
         target.addThrottle(targetId, stream::handleThrottle);
 
@@ -69,17 +70,20 @@ public final class StreamFactory
         private final SocketChannel channel;
 
         private int readableBytes;
+        private Runnable onFirstRead;
 
         private Stream(
             Target target,
             long streamId,
             SelectionKey key,
-            SocketChannel channel)
+            SocketChannel channel,
+            Runnable onFirstRead)
         {
             this.target = target;
             this.streamId = streamId;
             this.key = key;
             this.channel = channel;
+            this.onFirstRead = onFirstRead;
         }
 
         private int handleStream()
@@ -105,7 +109,7 @@ public final class StreamFactory
             }
             else
             {
-                final int limit = Math.min(readableBytes, bufferSize);
+                final int limit = Math.min(Math.min(readableBytes, bufferSize), target.maxMessageLength());
 
                 readBuffer.position(0);
                 readBuffer.limit(limit);
@@ -117,9 +121,16 @@ public final class StreamFactory
                     target.doTcpEnd(streamId);
                     target.removeThrottle(streamId);
                     key.cancel();
+                    bytesRead = 0;
                 }
                 else
                 {
+                    if (onFirstRead != null && bytesRead > 0)
+                    {
+                        onFirstRead.run();
+                        onFirstRead = null;
+                    }
+
                     // TODO: eliminate copy
                     atomicBuffer.putBytes(0, readBuffer, 0, bytesRead);
 
@@ -134,7 +145,7 @@ public final class StreamFactory
                     }
                 }
 
-                return 1;
+                return bytesRead;
             }
         }
 
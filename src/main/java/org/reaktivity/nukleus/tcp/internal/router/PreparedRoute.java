@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.router;
+
+import static java.util.Collections.emptyList;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.List;
+
+import org.agrona.CloseHelper;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayoutPool;
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
+
+/**
+ * The results of slow route work done ahead of time on the control thread, such as resolving the remote address,
+ * binding the listening channel and mapping target layouts, so applying the route on the nukleus thread does not block.
+ * <p>
+ * Anything not prepared is done inline when the route is applied, exactly as before.
+ */
+public final class PreparedRoute
+{
+    public static final PreparedRoute NONE = new PreparedRoute(SocketOptions.NONE, null, null, emptyList());
+
+    private final SocketOptions options;
+    private final InetSocketAddress remoteAddress;
+    private final List<StreamsLayoutPool.Staged> layouts;
+
+    private ServerSocketChannel serverChannel;
+
+    public PreparedRoute(
+        SocketOptions options,
+        InetSocketAddress remoteAddress,
+        ServerSocketChannel serverChannel,
+        List<StreamsLayoutPool.Staged> layouts)
+    {
+        this.options = options;
+        this.remoteAddress = remoteAddress;
+        this.serverChannel = serverChannel;
+        this.layouts = layouts;
+    }
+
+    public SocketOptions options()
+    {
+        return options;
+    }
+
+    public InetSocketAddress remoteAddress(
+        String hostname,
+        int port)
+    {
+        return remoteAddress != null ? remoteAddress : new InetSocketAddress(hostname, port);
+    }
+
+    /**
+     * Transfers ownership of the bound listening channel, if any, to the caller.
+     */
+    public ServerSocketChannel takeServerChannel()
+    {
+        final ServerSocketChannel taken = serverChannel;
+        serverChannel = null;
+        return taken;
+    }
+
+    public void offerLayouts(
+        StreamsLayoutPool pool)
+    {
+        layouts.forEach(pool::offer);
+    }
+
+    /**
+     * Releases whatever the route did not use once applied.
+     */
+    public void release(
+        StreamsLayoutPool pool)
+    {
+        layouts.forEach(pool::discard);
+        CloseHelper.quietClose(takeServerChannel());
+    }
+}
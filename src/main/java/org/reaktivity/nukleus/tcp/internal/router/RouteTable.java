@@ -0,0 +1,187 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.router;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.agrona.collections.Long2ObjectHashMap;
+
+/**
+ * Routes by source reference, published as immutable versioned snapshots.
+ * <p>
+ * Updates are made by a single writer thread to a draft, copied from the current snapshot once per update,
+ * or once per bulk update when deferred by {@link RouteUpdates}. Lookups through {@link #snapshot()} from
+ * any thread see either the previous or the next snapshot, never a partial update, without locking.
+ * {@link #lookup(long)} and {@link #stream()} also see the pending draft, so they are for the writer thread.
+ * <p>
+ * Only the table is immutable. Routes themselves may carry state owned by the writer thread, such as
+ * the balancer state of out-bound routes, so other threads must not rely on that state.
+ */
+public final class RouteTable<R>
+{
+    private final RouteUpdates updates;
+
+    private volatile Snapshot<R> snapshot = new Snapshot<>(0L, new Long2ObjectHashMap<>(), emptyList());
+    private Long2ObjectHashMap<List<R>> draft;
+
+    public RouteTable()
+    {
+        this(null);
+    }
+
+    public RouteTable(
+        RouteUpdates updates)
+    {
+        this.updates = updates;
+    }
+
+    public Snapshot<R> snapshot()
+    {
+        return snapshot;
+    }
+
+    public List<R> lookup(
+        long sourceRef)
+    {
+        return draft != null ? lookup(draft, sourceRef) : snapshot.lookup(sourceRef);
+    }
+
+    public Stream<R> stream()
+    {
+        return draft != null ? draft.values().stream().flatMap(List::stream) : snapshot.stream();
+    }
+
+    public long version()
+    {
+        return snapshot.version;
+    }
+
+    public void add(
+        long sourceRef,
+        R route)
+    {
+        final List<R> routes = new ArrayList<>(lookup(sourceRef));
+        routes.add(route);
+
+        draft().put(sourceRef, unmodifiableList(routes));
+        updated();
+    }
+
+    public boolean removeIf(
+        long sourceRef,
+        Predicate<? super R> filter)
+    {
+        final List<R> routes = new ArrayList<>(lookup(sourceRef));
+        final boolean removed = routes.removeIf(filter);
+
+        if (removed)
+        {
+            if (routes.isEmpty())
+            {
+                draft().remove(sourceRef);
+            }
+            else
+            {
+                draft().put(sourceRef, unmodifiableList(routes));
+            }
+            updated();
+        }
+
+        return removed;
+    }
+
+    void publish()
+    {
+        final Long2ObjectHashMap<List<R>> routesByRef = draft;
+
+        if (routesByRef != null)
+        {
+            // flattened once per publish, so readers never iterate the map concurrently
+            final List<R> all = new ArrayList<>();
+            routesByRef.values().forEach(all::addAll);
+
+            draft = null;
+            snapshot = new Snapshot<>(snapshot.version + 1L, routesByRef, unmodifiableList(all));
+        }
+    }
+
+    private Long2ObjectHashMap<List<R>> draft()
+    {
+        if (draft == null)
+        {
+            // published maps are never modified, so copy the current snapshot
+            draft = new Long2ObjectHashMap<>();
+            draft.putAll(snapshot.routesByRef);
+        }
+
+        return draft;
+    }
+
+    private void updated()
+    {
+        if (updates == null || !updates.defer(this))
+        {
+            publish();
+        }
+    }
+
+    private static <R> List<R> lookup(
+        Long2ObjectHashMap<List<R>> routesByRef,
+        long sourceRef)
+    {
+        final List<R> routes = routesByRef.get(sourceRef);
+        return routes != null ? routes : emptyList();
+    }
+
+    public static final class Snapshot<R>
+    {
+        private final long version;
+        private final Long2ObjectHashMap<List<R>> routesByRef;
+        private final List<R> routes;
+
+        private Snapshot(
+            long version,
+            Long2ObjectHashMap<List<R>> routesByRef,
+            List<R> routes)
+        {
+            this.version = version;
+            this.routesByRef = routesByRef;
+            this.routes = routes;
+        }
+
+        public long version()
+        {
+            return version;
+        }
+
+        public List<R> lookup(
+            long sourceRef)
+        {
+            return RouteTable.lookup(routesByRef, sourceRef);
+        }
+
+        public Stream<R> stream()
+        {
+            return routes.stream();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Defers publishing route table snapshots until the end of a bulk update, such as a route batch or restoring
+ * journalled routes, so that each updated table is copied and published once rather than once per route.
+ */
+public final class RouteUpdates
+{
+    private final List<RouteTable<?>> deferred = new ArrayList<>();
+
+    private int depth;
+
+    public void begin()
+    {
+        depth++;
+    }
+
+    public void end()
+    {
+        if (--depth == 0)
+        {
+            deferred.forEach(RouteTable::publish);
+            deferred.clear();
+        }
+    }
+
+    boolean defer(
+        RouteTable<?> table)
+    {
+        if (depth > 0)
+        {
+            if (!deferred.contains(table))
+            {
+                deferred.add(table);
+            }
+            return true;
+        }
+
+        return false;
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.reaktivity.nukleus.tcp.internal.router;
 
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.ACCEPT;
+import static org.reaktivity.nukleus.tcp.internal.profiler.ProfiledNukleus.profile;
 import static org.reaktivity.nukleus.tcp.internal.router.RouteKind.OUTPUT_ESTABLISHED;
 import static org.reaktivity.nukleus.tcp.internal.router.RouteKind.OUTPUT_NEW;
 
@@ -28,6 +30,7 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.agrona.CloseHelper;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.status.AtomicCounter;
 import org.reaktivity.nukleus.Nukleus;
@@ -37,8 +40,11 @@ import org.reaktivity.nukleus.tcp.internal.acceptor.Acceptor;
 import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
 import org.reaktivity.nukleus.tcp.internal.connector.Connector;
 import org.reaktivity.nukleus.tcp.internal.reader.Reader;
+import org.reaktivity.nukleus.tcp.internal.reader.Route;
+import org.reaktivity.nukleus.tcp.internal.splicer.Splicer;
 import org.reaktivity.nukleus.tcp.internal.types.control.Role;
 import org.reaktivity.nukleus.tcp.internal.types.control.State;
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
 import org.reaktivity.nukleus.tcp.internal.writer.Writer;
 
 /**
@@ -49,16 +55,20 @@ import org.reaktivity.nukleus.tcp.internal.writer.Writer;
 public final class Router extends Nukleus.Composite
 {
     private static final Pattern SOURCE_NAME = Pattern.compile("([^#]+).*");
+    private static final String TCP_NAME = "tcp";
 
     private final Context context;
     private final Long2ObjectHashMap<Correlation> correlations;
     private final Map<String, Reader> readers;
     private final Map<String, Writer> writers;
     private final AtomicCounter routesSourced;
+    private final AtomicCounter reclaimedBytes;
+    private final RouteUpdates routeUpdates;
 
     private Conductor conductor;
     private Acceptor acceptor;
     private Connector connector;
+    private Splicer splicer;
 
     public Router(
         Context context)
@@ -68,6 +78,8 @@ public final class Router extends Nukleus.Composite
         this.readers = new HashMap<>();
         this.writers = new HashMap<>();
         this.routesSourced = context.counters().routesSourced();
+        this.reclaimedBytes = context.counters().reclaimedBytes();
+        this.routeUpdates = new RouteUpdates();
     }
 
     public void setConductor(Conductor conductor)
@@ -85,12 +97,25 @@ public final class Router extends Nukleus.Composite
         this.connector = connector;
     }
 
+    public void setSplicer(Splicer splicer)
+    {
+        this.splicer = splicer;
+    }
+
     @Override
     public String name()
     {
         return "router";
     }
 
+    /**
+     * Returns the route updates, so that a bulk update publishes each route table once when it ends.
+     */
+    public RouteUpdates routeUpdates()
+    {
+        return routeUpdates;
+    }
+
     @Override
     protected void toString(
         StringBuilder builder)
@@ -106,7 +131,8 @@ public final class Router extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        InetAddress address)
+        InetAddress address,
+        PreparedRoute prepared)
     {
         switch (role)
         {
@@ -115,7 +141,7 @@ public final class Router extends Nukleus.Composite
             {
             case NONE:
             case NEW:
-                doRouteInput(correlationId, sourceName, sourceRef, targetName, targetRef, address);
+                doRouteInput(correlationId, sourceName, sourceRef, targetName, targetRef, address, prepared);
                 break;
             case ESTABLISHED:
                 doRouteInputEstablished(correlationId, sourceName, sourceRef, targetName, targetRef, address);
@@ -127,7 +153,7 @@ public final class Router extends Nukleus.Composite
             {
             case NONE:
             case NEW:
-                doRouteOutput(correlationId, sourceName, sourceRef, targetName, targetRef, address);
+                doRouteOutput(correlationId, sourceName, sourceRef, targetName, targetRef, address, prepared);
                 break;
             case ESTABLISHED:
                 doRouteOutputEstablished(correlationId, sourceName, sourceRef, targetName, targetRef, address);
@@ -145,7 +171,8 @@ public final class Router extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        InetAddress address)
+        InetAddress address,
+        PreparedRoute prepared)
     {
         switch (role)
         {
@@ -166,7 +193,7 @@ public final class Router extends Nukleus.Composite
             {
             case NONE:
             case NEW:
-                doUnrouteOutput(correlationId, sourceName, sourceRef, targetName, targetRef, address);
+                doUnrouteOutput(correlationId, sourceName, sourceRef, targetName, targetRef, address, prepared);
                 break;
             case ESTABLISHED:
                 doUnrouteOutputEstablished(correlationId, sourceName, sourceRef, targetName, targetRef, address);
@@ -182,6 +209,20 @@ public final class Router extends Nukleus.Composite
         SocketChannel channel,
         SocketAddress address)
     {
+        Reader reader = readers.computeIfAbsent(sourceName, this::newReader);
+        Route route = reader.resolve(sourceRef, address);
+
+        if (route == null)
+        {
+            CloseHelper.close(channel);
+            return;
+        }
+
+        if (splicer != null && doSplice(route, channel))
+        {
+            return;
+        }
+
         final AtomicCounter streamsSourced = context.counters().streamsSourced();
         final long targetId = streamsSourced.increment();
         final long correlationId = System.identityHashCode(channel);
@@ -189,8 +230,9 @@ public final class Router extends Nukleus.Composite
 
         correlations.put(correlationId, correlation);
 
-        Reader reader = readers.computeIfAbsent(sourceName, this::newReader);
-        reader.onAccepted(sourceRef, targetId, correlationId, channel, address);
+        context.events().record(ACCEPT, targetId, sourceRef);
+
+        reader.onAccepted(route, targetId, correlationId, channel);
     }
 
     public void onConnected(
@@ -208,10 +250,18 @@ public final class Router extends Nukleus.Composite
         targetName = "any";
 
         Writer writer = writers.get(sourceName);
-        writer.onConnected(sourceName, sourceId, sourceRef, targetName, correlationId, channel);
+
+        if (writer == null || !writer.isReadable(sourceName))
+        {
+            // source expired while connecting
+            CloseHelper.quietClose(channel);
+            return;
+        }
+
+        Runnable onFirstRead = writer.onConnected(sourceName, sourceId, sourceRef, targetName, correlationId, channel);
 
         Reader reader = readers.computeIfAbsent(targetName, this::newReader);
-        reader.onConnected(sourceRef, sourceName, targetId, correlationId, channel, address);
+        reader.onConnected(sourceRef, sourceName, targetId, correlationId, channel, address, onFirstRead);
     }
 
     public void onConnectFailed(
@@ -234,7 +284,40 @@ public final class Router extends Nukleus.Composite
     public void onExpired(
         Path sourcePath)
     {
-        // TODO:
+        final String sourceName = source(sourcePath);
+        final Writer writer = writers.get(sourceName);
+
+        if (writer != null)
+        {
+            final String partitionName = sourcePath.getFileName().toString();
+            long reclaimed = writer.onExpired(partitionName);
+
+            if (writer.isExpired())
+            {
+                // source nukleus departed, so it no longer consumes streams from any reader
+                for (Reader reader : readers.values())
+                {
+                    reclaimed += reader.onTargetExpired(sourceName);
+                }
+            }
+
+            reclaimedBytes.add(reclaimed);
+        }
+    }
+
+    private boolean doSplice(
+        Route route,
+        SocketChannel channel)
+    {
+        if (TCP_NAME.equals(route.target().name()) &&
+            RouteKind.match(route.targetRef()) == OUTPUT_NEW)
+        {
+            // in-bound route targets an out-bound route of this nukleus, pure proxy
+            final Writer writer = writers.get(TCP_NAME);
+            return writer != null && splicer.doSplice(channel, route.options(), writer.select(route.targetRef()));
+        }
+
+        return false;
     }
 
     private static String source(
@@ -257,14 +340,16 @@ public final class Router extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        InetAddress address)
+        InetAddress address,
+        PreparedRoute prepared)
     {
         // TODO: scope address by sourceName device addresses, unless "any" pseudo-device
         if ("any".equals(sourceName) && sourceRef > 0L && sourceRef <= 65535L && address != null)
         {
             Reader reader = readers.computeIfAbsent(sourceName, this::newReader);
             InetSocketAddress localAddress = new InetSocketAddress(address, (int)sourceRef);
-            reader.doRouteAccept(correlationId, sourceRef, targetName, targetRef, localAddress);
+            reader.doRouteAccept(correlationId, sourceRef, targetName, targetRef, localAddress, prepared.options(),
+                    prepared.takeServerChannel());
         }
         else
         {
@@ -278,7 +363,8 @@ public final class Router extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        InetAddress address)
+        InetAddress address,
+        PreparedRoute prepared)
     {
         if (targetRef > 0L && targetRef <= 65535L && address == null &&
                 (sourceRef == 0 || RouteKind.match(sourceRef) == OUTPUT_NEW))
@@ -288,7 +374,7 @@ public final class Router extends Nukleus.Composite
                 sourceRef = OUTPUT_NEW.nextRef(routesSourced);
             }
 
-            InetSocketAddress remoteAddress = new InetSocketAddress(targetName, (int)targetRef);
+            InetSocketAddress remoteAddress = prepared.remoteAddress(targetName, (int)targetRef);
 
             // TODO: support network device for remote address gateway route
             targetName = "any";
@@ -297,7 +383,7 @@ public final class Router extends Nukleus.Composite
             reader.doRouteDefault(correlationId, sourceName);
 
             Writer writer = writers.computeIfAbsent(sourceName, this::newWriter);
-            writer.doRoute(correlationId, sourceRef, targetName, targetRef, remoteAddress);
+            writer.doRoute(correlationId, sourceRef, targetName, targetRef, remoteAddress, prepared.options());
         }
         else
         {
@@ -323,7 +409,7 @@ public final class Router extends Nukleus.Composite
             }
 
             Writer writer = writers.computeIfAbsent(sourceName, this::newWriter);
-            writer.doRoute(correlationId, sourceRef, targetName, targetRef, null);
+            writer.doRoute(correlationId, sourceRef, targetName, targetRef, null, SocketOptions.NONE);
         }
         else
         {
@@ -342,7 +428,7 @@ public final class Router extends Nukleus.Composite
         if (address == null && sourceRef >= 0L && sourceRef <= 65535L)
         {
             Reader reader = readers.computeIfAbsent(sourceName, this::newReader);
-            reader.doRoute(correlationId, sourceRef, targetName, targetRef, null);
+            reader.doRoute(correlationId, sourceRef, targetName, targetRef, null, SocketOptions.NONE);
         }
         else
         {
@@ -376,12 +462,13 @@ public final class Router extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        InetAddress address)
+        InetAddress address,
+        PreparedRoute prepared)
     {
         Writer writer = writers.get(sourceName);
         if (writer != null && address == null)
         {
-            InetSocketAddress remoteAddress = new InetSocketAddress(targetName, (int)targetRef);
+            InetSocketAddress remoteAddress = prepared.remoteAddress(targetName, (int)targetRef);
 
             // TODO: support network device for remote address gateway route
             targetName = "any";
@@ -435,12 +522,16 @@ public final class Router extends Nukleus.Composite
     private Reader newReader(
         String sourceName)
     {
-        return include(new Reader(context, conductor, acceptor, sourceName));
+        final Reader reader = new Reader(context, conductor, acceptor, routeUpdates, sourceName);
+        include(profile(context, reader));
+        return reader;
     }
 
     private Writer newWriter(
         String sourceName)
     {
-        return include(new Writer(context, conductor, connector, sourceName, correlations::remove));
+        final Writer writer = new Writer(context, conductor, connector, routeUpdates, sourceName, correlations::remove);
+        include(profile(context, String.format("writer[%s]", sourceName), writer));
+        return writer;
     }
 }
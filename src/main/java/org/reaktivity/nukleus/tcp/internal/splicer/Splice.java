@@ -0,0 +1,238 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.splicer;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
+import static org.agrona.CloseHelper.quietClose;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import org.agrona.concurrent.status.AtomicCounter;
+import org.reaktivity.nukleus.tcp.internal.writer.Route;
+
+final class Splice
+{
+    private final Selector selector;
+    private final SocketChannel accepted;
+    private final SocketChannel connected;
+    private final Route route;
+    private final Pipe inbound;
+    private final Pipe outbound;
+    private final AtomicCounter splicedBytes;
+    private final ByteBuffer buffer;
+    private final Consumer<ByteBuffer> releaseBuffer;
+    private final long connectingAt;
+
+    private long connectedAt;
+    private boolean closed;
+
+    Splice(
+        Selector selector,
+        SocketChannel accepted,
+        SocketChannel connected,
+        Route route,
+        ByteBuffer buffer,
+        AtomicCounter splicedBytes,
+        Consumer<ByteBuffer> releaseBuffer)
+    {
+        final int half = buffer.capacity() >> 1;
+
+        this.selector = selector;
+        this.accepted = accepted;
+        this.connected = connected;
+        this.route = route;
+        this.splicedBytes = splicedBytes;
+        this.buffer = buffer;
+        this.releaseBuffer = releaseBuffer;
+        this.inbound = new Pipe(accepted, connected, slice(buffer, 0, half));
+        this.outbound = new Pipe(connected, accepted, slice(buffer, half, half));
+        this.connectingAt = System.nanoTime();
+    }
+
+    Route route()
+    {
+        return route;
+    }
+
+    void finishConnect() throws IOException
+    {
+        connected.finishConnect();
+    }
+
+    void onConnected() throws IOException
+    {
+        connectedAt = System.nanoTime();
+        route.onConnected(connectedAt - connectingAt);
+
+        final SelectionKey acceptedKey = accepted.register(selector, OP_READ);
+        final SelectionKey connectedKey = connected.register(selector, OP_READ);
+
+        inbound.attach(acceptedKey, connectedKey);
+        outbound.attach(connectedKey, acceptedKey);
+
+        acceptedKey.attach((IntSupplier) () -> onReady(acceptedKey, inbound, outbound));
+        connectedKey.attach((IntSupplier) () -> onReady(connectedKey, outbound, inbound));
+    }
+
+    void close()
+    {
+        if (!closed)
+        {
+            closed = true;
+            quietClose(accepted);
+            quietClose(connected);
+            route.onReleased();
+            releaseBuffer.accept(buffer);
+        }
+    }
+
+    private int onReady(
+        SelectionKey key,
+        Pipe reading,
+        Pipe writing)
+    {
+        if (closed)
+        {
+            return 0;
+        }
+
+        try
+        {
+            if (key.isWritable())
+            {
+                writing.flush();
+            }
+
+            if (key.isValid() && key.isReadable())
+            {
+                if (reading == outbound && connectedAt != 0L)
+                {
+                    route.onFirstByte(System.nanoTime() - connectedAt);
+                    connectedAt = 0L;
+                }
+
+                reading.read();
+            }
+
+            if (inbound.isShutdown() && outbound.isShutdown())
+            {
+                close();
+            }
+        }
+        catch (IOException ex)
+        {
+            close();
+        }
+
+        return 1;
+    }
+
+    private static ByteBuffer slice(
+        ByteBuffer buffer,
+        int offset,
+        int length)
+    {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.limit(offset + length);
+        return duplicate.slice();
+    }
+
+    private final class Pipe
+    {
+        private final SocketChannel source;
+        private final SocketChannel target;
+        private final ByteBuffer buffer;
+
+        private SelectionKey sourceKey;
+        private SelectionKey targetKey;
+        private boolean endOfInput;
+        private boolean shutdown;
+
+        private Pipe(
+            SocketChannel source,
+            SocketChannel target,
+            ByteBuffer buffer)
+        {
+            this.source = source;
+            this.target = target;
+            this.buffer = buffer;
+        }
+
+        void attach(
+            SelectionKey sourceKey,
+            SelectionKey targetKey)
+        {
+            this.sourceKey = sourceKey;
+            this.targetKey = targetKey;
+        }
+
+        boolean isShutdown()
+        {
+            return shutdown;
+        }
+
+        void read() throws IOException
+        {
+            final int bytesRead = source.read(buffer);
+
+            if (bytesRead == -1)
+            {
+                endOfInput = true;
+            }
+
+            flush();
+        }
+
+        void flush() throws IOException
+        {
+            buffer.flip();
+            final int bytesWritten = target.write(buffer);
+            buffer.compact();
+
+            splicedBytes.add(bytesWritten);
+
+            if (buffer.position() != 0)
+            {
+                // target window exhausted, stop reading source until target drains
+                sourceKey.interestOps(sourceKey.interestOps() & ~OP_READ);
+                targetKey.interestOps(targetKey.interestOps() | OP_WRITE);
+            }
+            else
+            {
+                targetKey.interestOps(targetKey.interestOps() & ~OP_WRITE);
+
+                if (endOfInput)
+                {
+                    sourceKey.interestOps(sourceKey.interestOps() & ~OP_READ);
+                    target.shutdownOutput();
+                    shutdown = true;
+                }
+                else
+                {
+                    sourceKey.interestOps(sourceKey.interestOps() | OP_READ);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.splicer;
+
+import static java.nio.channels.SelectionKey.OP_CONNECT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.agrona.CloseHelper.quietClose;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.IntSupplier;
+
+import org.agrona.LangUtil;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.nio.TransportPoller;
+import org.reaktivity.nukleus.Nukleus;
+import org.reaktivity.nukleus.Reaktive;
+import org.reaktivity.nukleus.tcp.internal.Context;
+import org.reaktivity.nukleus.tcp.internal.connector.Connector;
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
+import org.reaktivity.nukleus.tcp.internal.writer.Route;
+
+/**
+ * The {@code Splicer} nukleus transfers bytes directly between an accepted channel and a connected channel
+ * when an in-bound route targets an out-bound route of this same nukleus, bypassing the streams buffers.
+ */
+@Reaktive
+public final class Splicer extends TransportPoller implements Nukleus
+{
+    private final Deque<ByteBuffer> buffers;
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final int ejectFailures;
+    private final long ejectNanos;
+    private final AtomicCounter splicedStreams;
+    private final AtomicCounter splicedBytes;
+
+    private Connector connector;
+
+    public Splicer(
+        Context context)
+    {
+        this(context.spliceBufferSize(), context.spliceBufferPoolSize(), context.outputEjectFailures(),
+             MILLISECONDS.toNanos(context.outputEjectMillis()), context.counters().splicedStreams(),
+             context.counters().splicedBytes());
+    }
+
+    Splicer(
+        int bufferSize,
+        int maxPooledBuffers,
+        int ejectFailures,
+        long ejectNanos,
+        AtomicCounter splicedStreams,
+        AtomicCounter splicedBytes)
+    {
+        this.buffers = new ArrayDeque<>();
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.ejectFailures = ejectFailures;
+        this.ejectNanos = ejectNanos;
+        this.splicedStreams = splicedStreams;
+        this.splicedBytes = splicedBytes;
+    }
+
+    public void setConnector(
+        Connector connector)
+    {
+        this.connector = connector;
+    }
+
+    @Override
+    public int process()
+    {
+        selectNow();
+        return selectedKeySet.forEach(this::processKey);
+    }
+
+    @Override
+    public String name()
+    {
+        return "splicer";
+    }
+
+    @Override
+    public void close()
+    {
+        for (SelectionKey key : selector.keys())
+        {
+            quietClose(key.channel());
+        }
+        super.close();
+    }
+
+    public boolean doSplice(
+        SocketChannel accepted,
+        SocketOptions acceptedOptions,
+        Route route)
+    {
+        if (route == null)
+        {
+            return false;
+        }
+
+        SocketChannel connected = null;
+        ByteBuffer buffer = null;
+
+        try
+        {
+            acceptedOptions.apply(accepted);
+
+            connected = SocketChannel.open();
+            connected.configureBlocking(false);
+            route.options().apply(connected);
+
+            if (connector != null)
+            {
+                connector.prepare(connected);
+            }
+
+            // one buffer per spliced pair, one half for each direction
+            buffer = acquireBuffer();
+            final Splice splice = new Splice(selector, accepted, connected, route, buffer, splicedBytes, this::releaseBuffer);
+
+            if (connected.connect(route.address()))
+            {
+                handleConnected(splice);
+            }
+            else
+            {
+                final IntSupplier onConnectable = () -> processConnect(splice);
+                connected.register(selector, OP_CONNECT, onConnectable);
+            }
+        }
+        catch (IOException ex)
+        {
+            if (connected != null)
+            {
+                route.onConnectFailed(System.nanoTime(), ejectFailures, ejectNanos);
+            }
+            route.onReleased();
+            quietClose(connected);
+            quietClose(accepted);
+            if (buffer != null)
+            {
+                releaseBuffer(buffer);
+            }
+            LangUtil.rethrowUnchecked(ex);
+        }
+
+        return true;
+    }
+
+    int pooledBuffers()
+    {
+        return buffers.size();
+    }
+
+    private ByteBuffer acquireBuffer()
+    {
+        final ByteBuffer buffer = buffers.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize << 1);
+    }
+
+    private void releaseBuffer(
+        ByteBuffer buffer)
+    {
+        if (buffers.size() < maxPooledBuffers)
+        {
+            buffer.clear();
+            buffers.addFirst(buffer);
+        }
+    }
+
+    private void selectNow()
+    {
+        try
+        {
+            selector.selectNow();
+        }
+        catch (IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    private int processKey(
+        SelectionKey selectionKey)
+    {
+        final IntSupplier attachment = (IntSupplier) selectionKey.attachment();
+        return attachment.getAsInt();
+    }
+
+    private int processConnect(
+        Splice splice)
+    {
+        try
+        {
+            splice.finishConnect();
+            handleConnected(splice);
+        }
+        catch (IOException ex)
+        {
+            splice.route().onConnectFailed(System.nanoTime(), ejectFailures, ejectNanos);
+            splice.close();
+        }
+
+        return 1;
+    }
+
+    private void handleConnected(
+        Splice splice) throws IOException
+    {
+        splicedStreams.increment();
+        splice.onConnected();
+    }
+}
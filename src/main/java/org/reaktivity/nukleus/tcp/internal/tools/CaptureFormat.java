@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+/**
+ * Layout of a stream capture file, written by {@link StreamsCapture} and read by {@link StreamsReplay}.
+ * <pre>
+ * header: int magic, int version, long start epoch millis
+ * record: long nanos since start, byte ring, int msgTypeId, int length, byte[length] frame
+ * </pre>
+ */
+final class CaptureFormat
+{
+    static final int MAGIC = 0x54435043; // "TCPC"
+    static final int VERSION = 1;
+
+    static final byte RING_STREAMS = 0;
+    static final byte RING_THROTTLE = 1;
+
+    private CaptureFormat()
+    {
+        // no instances
+    }
+}
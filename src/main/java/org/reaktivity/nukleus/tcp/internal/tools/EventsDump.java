@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+import static org.reaktivity.nukleus.tcp.internal.events.EventLog.STREAM_ID_OFFSET;
+import static org.reaktivity.nukleus.tcp.internal.events.EventLog.TIMESTAMP_OFFSET;
+import static org.reaktivity.nukleus.tcp.internal.events.EventLog.TYPE_OFFSET;
+import static org.reaktivity.nukleus.tcp.internal.events.EventLog.VALUE_OFFSET;
+import static org.reaktivity.nukleus.tcp.internal.layouts.EventsLayout.EVENTS_VERSION;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.events.EventLog;
+import org.reaktivity.nukleus.tcp.internal.events.EventType;
+import org.reaktivity.nukleus.tcp.internal.layouts.EventsLayout;
+
+/**
+ * Decodes the {@code tcp/events} log, oldest event first, converting timestamps to wall clock time.
+ * <p>
+ * Usage: {@code EventsDump [file]}, defaulting to {@code tcp/events} in the configured nukleus directory.
+ * Safe to run against a live nukleus, though events overwritten while decoding are skipped.
+ */
+public final class EventsDump
+{
+    private EventsDump()
+    {
+        // utility class
+    }
+
+    public static long dump(
+        Path path,
+        PrintStream out)
+    {
+        final EventsLayout layout = new EventsLayout.Builder()
+                .path(path)
+                .readonly(true)
+                .build();
+
+        try
+        {
+            if (layout.version() != EVENTS_VERSION)
+            {
+                throw new IllegalArgumentException("Unrecognized events version: " + layout.version());
+            }
+
+            final AtomicBuffer buffer = layout.eventsBuffer();
+            final int entries = EventLog.entries(buffer.capacity());
+            final int mask = entries - 1;
+            final long startMillis = layout.startMillis();
+            final long startNanos = layout.startNanos();
+            final long limit = layout.position();
+
+            long decoded = 0L;
+            for (long position = Math.max(limit - entries, 0L); position < limit; position++)
+            {
+                final int offset = EventLog.offset(position, mask);
+                final long timestamp = buffer.getLong(offset + TIMESTAMP_OFFSET);
+                final long streamId = buffer.getLong(offset + STREAM_ID_OFFSET);
+                final long value = buffer.getLong(offset + VALUE_OFFSET);
+                final EventType type = EventType.valueOf(buffer.getInt(offset + TYPE_OFFSET));
+
+                // skip entries overwritten by a live nukleus while decoding, as an entry is written before its position
+                if (layout.position() - position >= entries)
+                {
+                    continue;
+                }
+
+                final Instant time = Instant.ofEpochMilli(startMillis).plusNanos(timestamp - startNanos);
+                out.format("%s %-14s stream=%d value=%d%n", time, type, streamId, value);
+                decoded++;
+            }
+
+            return decoded;
+        }
+        finally
+        {
+            layout.close();
+        }
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        final Path path = args.length > 0 ? Paths.get(args[0]) : new Configuration().directory().resolve("tcp/events");
+
+        dump(path, System.out);
+    }
+}
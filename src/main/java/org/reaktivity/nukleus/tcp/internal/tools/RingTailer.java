@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+import static org.agrona.BitUtil.align;
+import static org.agrona.concurrent.ringbuffer.ManyToOneRingBuffer.PADDING_MSG_TYPE_ID;
+import static org.agrona.concurrent.ringbuffer.RecordDescriptor.ALIGNMENT;
+import static org.agrona.concurrent.ringbuffer.RecordDescriptor.HEADER_LENGTH;
+import static org.agrona.concurrent.ringbuffer.RecordDescriptor.encodedMsgOffset;
+import static org.agrona.concurrent.ringbuffer.RecordDescriptor.lengthOffset;
+import static org.agrona.concurrent.ringbuffer.RecordDescriptor.typeOffset;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.HEAD_POSITION_OFFSET;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TAIL_POSITION_OFFSET;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Passively follows the records of a {@code OneToOneRingBuffer} without advancing its consumer position,
+ * so that frames can be observed alongside the nukleus that consumes them.
+ * <p>
+ * The consumer zeroes records once read, so this is best effort: records already consumed by the time they
+ * are reached, or overwritten by the producer, are skipped and counted as lost bytes.
+ */
+public final class RingTailer
+{
+    private final AtomicBuffer buffer;
+    private final int capacity;
+    private final int headPositionIndex;
+    private final int tailPositionIndex;
+    private final MutableDirectBuffer copyBuffer;
+
+    private long position;
+    private long lostBytes;
+
+    public RingTailer(
+        AtomicBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.capacity = buffer.capacity() - TRAILER_LENGTH;
+        this.headPositionIndex = capacity + HEAD_POSITION_OFFSET;
+        this.tailPositionIndex = capacity + TAIL_POSITION_OFFSET;
+        this.copyBuffer = new UnsafeBuffer(new byte[capacity]);
+        this.position = buffer.getLongVolatile(headPositionIndex);
+    }
+
+    public long position()
+    {
+        return position;
+    }
+
+    public long lostBytes()
+    {
+        return lostBytes;
+    }
+
+    public int read(
+        MessageHandler handler,
+        int limit)
+    {
+        final long tail = buffer.getLongVolatile(tailPositionIndex);
+
+        int messagesRead = 0;
+        while (messagesRead < limit && position < tail)
+        {
+            final long head = buffer.getLongVolatile(headPositionIndex);
+            if (head > position || tail - position > capacity)
+            {
+                skipTo(Math.max(head, tail - capacity));
+                continue;
+            }
+
+            final int index = (int) position & (capacity - 1);
+            final int recordLength = buffer.getIntVolatile(lengthOffset(index));
+            if (recordLength <= 0)
+            {
+                // zeroed by the consumer after reading head
+                skipTo(buffer.getLongVolatile(headPositionIndex));
+                break;
+            }
+
+            final int msgTypeId = buffer.getInt(typeOffset(index));
+            final int length = recordLength - HEADER_LENGTH;
+
+            if (msgTypeId != PADDING_MSG_TYPE_ID)
+            {
+                buffer.getBytes(encodedMsgOffset(index), copyBuffer, 0, length);
+
+                // consumer zeroes from the record header onwards, so an intact header means an intact copy
+                if (buffer.getIntVolatile(lengthOffset(index)) != recordLength)
+                {
+                    skipTo(buffer.getLongVolatile(headPositionIndex));
+                    break;
+                }
+
+                handler.onMessage(msgTypeId, copyBuffer, 0, length);
+                messagesRead++;
+            }
+
+            position += align(recordLength, ALIGNMENT);
+        }
+
+        return messagesRead;
+    }
+
+    private void skipTo(
+        long newPosition)
+    {
+        if (newPosition > position)
+        {
+            lostBytes += newPosition - position;
+            position = newPosition;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.tcp.internal.tools.CaptureFormat.MAGIC;
+import static org.reaktivity.nukleus.tcp.internal.tools.CaptureFormat.RING_STREAMS;
+import static org.reaktivity.nukleus.tcp.internal.tools.CaptureFormat.RING_THROTTLE;
+import static org.reaktivity.nukleus.tcp.internal.tools.CaptureFormat.VERSION;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.agrona.LangUtil;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.SleepingIdleStrategy;
+import org.reaktivity.nukleus.tcp.internal.TcpConfiguration;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.util.Capacities;
+
+/**
+ * Captures the frames flowing through a {@code tcp/streams/<source>} file into a capture file,
+ * tailing both the streams and throttle rings without disturbing the nukleus consuming them.
+ * <p>
+ * Usage: {@code StreamsCapture <source> <file> [seconds]}, with the nukleus directory and buffer
+ * capacities taken from the usual {@code nukleus.*} system properties.
+ */
+public final class StreamsCapture implements AutoCloseable
+{
+    private static final int READ_LIMIT = 64;
+
+    private final StreamsLayout layout;
+    private final RingTailer streams;
+    private final RingTailer throttle;
+    private final DataOutputStream output;
+    private final MessageHandler streamsHandler;
+    private final MessageHandler throttleHandler;
+    private final byte[] frame;
+    private final long startedAt;
+
+    private long frames;
+    private long bytes;
+
+    public StreamsCapture(
+        TcpConfiguration config,
+        String source,
+        Path file) throws IOException
+    {
+        // capacities resolved from the same configuration as the nukleus, so rings are mapped at the created size
+        final int streamsCapacity =
+                Capacities.parse(config.streamsCapacities(), config.streamsBufferCapacity()).capacity(source);
+        final int throttleCapacity =
+                Capacities.parse(config.throttleCapacities(), config.throttleBufferCapacity()).capacity(source);
+
+        this.layout = new StreamsLayout.Builder()
+                .path(config.directory().resolve(String.format("tcp/streams/%s", source)))
+                .streamsCapacity(streamsCapacity)
+                .throttleCapacity(throttleCapacity)
+                .readonly(true)
+                .build();
+        this.streams = new RingTailer(layout.streamsBuffer().buffer());
+        this.throttle = new RingTailer(layout.throttleBuffer().buffer());
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 64 * 1024));
+        this.streamsHandler = (t, b, i, l) -> onFrame(RING_STREAMS, t, b, i, l);
+        this.throttleHandler = (t, b, i, l) -> onFrame(RING_THROTTLE, t, b, i, l);
+        this.frame = new byte[Math.max(streamsCapacity, throttleCapacity)];
+        this.startedAt = System.nanoTime();
+
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(System.currentTimeMillis());
+    }
+
+    public int process()
+    {
+        return streams.read(streamsHandler, READ_LIMIT) + throttle.read(throttleHandler, READ_LIMIT);
+    }
+
+    public long frames()
+    {
+        return frames;
+    }
+
+    public long bytes()
+    {
+        return bytes;
+    }
+
+    public long lostBytes()
+    {
+        return streams.lostBytes() + throttle.lostBytes();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        output.close();
+        layout.close();
+    }
+
+    private void onFrame(
+        byte ring,
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        try
+        {
+            output.writeLong(System.nanoTime() - startedAt);
+            output.writeByte(ring);
+            output.writeInt(msgTypeId);
+            output.writeInt(length);
+            buffer.getBytes(index, frame, 0, length);
+            output.write(frame, 0, length);
+
+            frames++;
+            bytes += length;
+        }
+        catch (IOException ex)
+        {
+            LangUtil.rethrowUnchecked(ex);
+        }
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: StreamsCapture <source> <file> [seconds]");
+            System.exit(1);
+        }
+
+        final TcpConfiguration config = new TcpConfiguration();
+        final long deadline = args.length > 2 ? System.nanoTime() + SECONDS.toNanos(Long.parseLong(args[2])) : Long.MAX_VALUE;
+        final IdleStrategy idleStrategy = new SleepingIdleStrategy(100_000L);
+        final Thread captureThread = Thread.currentThread();
+
+        final StreamsCapture capture = new StreamsCapture(config, args[0], Paths.get(args[1]));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+        {
+            captureThread.interrupt();
+            try
+            {
+                captureThread.join();
+            }
+            catch (InterruptedException ex)
+            {
+                // exiting anyway
+            }
+        }));
+
+        try
+        {
+            while (!captureThread.isInterrupted() && System.nanoTime() < deadline)
+            {
+                idleStrategy.idle(capture.process());
+            }
+        }
+        finally
+        {
+            capture.close();
+            System.out.format("captured %d frames, %d bytes, lost %d bytes%n",
+                    capture.frames(), capture.bytes(), capture.lostBytes());
+        }
+    }
+}
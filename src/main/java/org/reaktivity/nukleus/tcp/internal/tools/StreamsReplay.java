@@ -0,0 +1,315 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.tcp.internal.tools.CaptureFormat.MAGIC;
+import static org.reaktivity.nukleus.tcp.internal.tools.CaptureFormat.RING_STREAMS;
+import static org.reaktivity.nukleus.tcp.internal.tools.CaptureFormat.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.reaktivity.nukleus.tcp.internal.TcpConfiguration;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.tcp.internal.util.Capacities;
+
+/**
+ * Replays the frames written to a {@code tcp/streams/<source>} streams ring, as recorded by {@link StreamsCapture},
+ * against a test nukleus, reporting throughput, schedule lag and DATA to WINDOW latency.
+ * <p>
+ * Usage: {@code StreamsReplay <file> <source> [speed]}, where speed {@code 1} preserves the captured timing,
+ * larger values accelerate it and {@code 0} replays as fast as windows allow. The test nukleus must have
+ * the same routes as the captured one, so that the captured reference identifiers resolve.
+ */
+public final class StreamsReplay implements AutoCloseable
+{
+    private static final long WINDOW_TIMEOUT_NANOS = SECONDS.toNanos(1L);
+
+    private final DataFW dataRO = new DataFW();
+    private final EndFW endRO = new EndFW();
+    private final WindowFW windowRO = new WindowFW();
+    private final ResetFW resetRO = new ResetFW();
+
+    private final StreamsLayout layout;
+    private final RingBuffer streams;
+    private final RingBuffer throttle;
+    private final DataInputStream input;
+    private final byte[] frame;
+    private final MutableDirectBuffer frameBuffer;
+    private final MessageHandler throttleHandler;
+    private final Long2LongHashMap windows;
+    private final Long2LongHashMap pendingSince;
+    private final Samples lags;
+    private final Samples latencies;
+    private final double speed;
+
+    private long frames;
+    private long bytes;
+    private long resets;
+    private long skipped;
+
+    public StreamsReplay(
+        TcpConfiguration config,
+        Path file,
+        String source,
+        double speed) throws IOException
+    {
+        // capacities resolved from the same configuration as the nukleus, so rings are mapped at the created size
+        final int streamsCapacity =
+                Capacities.parse(config.streamsCapacities(), config.streamsBufferCapacity()).capacity(source);
+        final int throttleCapacity =
+                Capacities.parse(config.throttleCapacities(), config.throttleBufferCapacity()).capacity(source);
+
+        this.layout = new StreamsLayout.Builder()
+                .path(config.directory().resolve(String.format("tcp/streams/%s", source)))
+                .streamsCapacity(streamsCapacity)
+                .throttleCapacity(throttleCapacity)
+                .readonly(false)
+                .build();
+        this.streams = layout.streamsBuffer();
+        this.throttle = layout.throttleBuffer();
+        this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile()), 64 * 1024));
+        this.frame = new byte[streamsCapacity];
+        this.frameBuffer = new UnsafeBuffer(frame);
+        this.throttleHandler = this::handleThrottle;
+        this.windows = new Long2LongHashMap(-1L);
+        this.pendingSince = new Long2LongHashMap(-1L);
+        this.lags = new Samples();
+        this.latencies = new Samples();
+        this.speed = speed;
+
+        if (input.readInt() != MAGIC || input.readInt() != VERSION)
+        {
+            throw new IllegalArgumentException("Unrecognized capture file: " + file);
+        }
+        input.readLong();
+    }
+
+    public void replay() throws IOException
+    {
+        final long startedAt = System.nanoTime();
+
+        try
+        {
+            while (true)
+            {
+                final long capturedAt = input.readLong();
+                final byte ring = input.readByte();
+                final int msgTypeId = input.readInt();
+                final int length = input.readInt();
+                input.readFully(frame, 0, length);
+
+                if (ring == RING_STREAMS)
+                {
+                    final long scheduledAt = speed > 0.0 ? startedAt + (long) (capturedAt / speed) : System.nanoTime();
+                    while (System.nanoTime() < scheduledAt)
+                    {
+                        throttle.read(throttleHandler);
+                    }
+
+                    onFrame(msgTypeId, length, scheduledAt);
+                }
+            }
+        }
+        catch (EOFException ex)
+        {
+            // end of capture
+        }
+
+        final long deadline = System.nanoTime() + WINDOW_TIMEOUT_NANOS;
+        while (!pendingSince.isEmpty() && System.nanoTime() < deadline)
+        {
+            throttle.read(throttleHandler);
+        }
+
+        report(System.nanoTime() - startedAt);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+        layout.close();
+    }
+
+    private void onFrame(
+        int msgTypeId,
+        int length,
+        long scheduledAt)
+    {
+        if (msgTypeId == DataFW.TYPE_ID)
+        {
+            dataRO.wrap(frameBuffer, 0, length);
+            final long streamId = dataRO.streamId();
+
+            // mirror window accounting in writer.stream.StreamFactory
+            final int writableBytes = Math.max(dataRO.payload().length() - 1, 0);
+
+            final long deadline = System.nanoTime() + WINDOW_TIMEOUT_NANOS;
+            while (window(streamId) < writableBytes && System.nanoTime() < deadline)
+            {
+                throttle.read(throttleHandler);
+            }
+
+            if (window(streamId) < writableBytes)
+            {
+                skipped++;
+                return;
+            }
+
+            windows.put(streamId, window(streamId) - writableBytes);
+            if (pendingSince.get(streamId) == -1L)
+            {
+                pendingSince.put(streamId, System.nanoTime());
+            }
+            bytes += writableBytes;
+        }
+        else if (msgTypeId == EndFW.TYPE_ID)
+        {
+            endRO.wrap(frameBuffer, 0, length);
+            windows.remove(endRO.streamId());
+            pendingSince.remove(endRO.streamId());
+        }
+
+        while (!streams.write(msgTypeId, frameBuffer, 0, length))
+        {
+            throttle.read(throttleHandler);
+        }
+
+        lags.add(System.nanoTime() - scheduledAt);
+        frames++;
+    }
+
+    private void handleThrottle(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            windowRO.wrap(buffer, index, index + length);
+            final long streamId = windowRO.streamId();
+            windows.put(streamId, window(streamId) + windowRO.update());
+
+            final long since = pendingSince.remove(streamId);
+            if (since != -1L)
+            {
+                latencies.add(System.nanoTime() - since);
+            }
+            break;
+        case ResetFW.TYPE_ID:
+            resetRO.wrap(buffer, index, index + length);
+            windows.remove(resetRO.streamId());
+            pendingSince.remove(resetRO.streamId());
+            resets++;
+            break;
+        default:
+            break;
+        }
+    }
+
+    private long window(
+        long streamId)
+    {
+        return Math.max(windows.get(streamId), 0L);
+    }
+
+    private void report(
+        long elapsedNanos)
+    {
+        final double seconds = Math.max(elapsedNanos, 1L) / (double) SECONDS.toNanos(1L);
+
+        System.out.format("replayed %d frames in %.3fs: frames/s=%.0f bytes/s=%.0f resets=%d skipped=%d%n",
+                frames, seconds, frames / seconds, bytes / seconds, resets, skipped);
+        System.out.format("schedule lag [us]: %s%n", lags);
+        System.out.format("data to window latency [us]: %s%n", latencies);
+    }
+
+    private static final class Samples
+    {
+        private long[] values = new long[1024];
+        private int count;
+
+        void add(
+            long value)
+        {
+            if (count == values.length)
+            {
+                values = Arrays.copyOf(values, count << 1);
+            }
+            values[count++] = value;
+        }
+
+        @Override
+        public String toString()
+        {
+            if (count == 0)
+            {
+                return "none";
+            }
+
+            final long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+
+            return String.format("p50=%d p99=%d p99.9=%d max=%d",
+                    percentile(sorted, 50.0), percentile(sorted, 99.0), percentile(sorted, 99.9), percentile(sorted, 100.0));
+        }
+
+        private static long percentile(
+            long[] sorted,
+            double percentile)
+        {
+            final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return NANOSECONDS.toMicros(sorted[Math.max(index, 0)]);
+        }
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: StreamsReplay <file> <source> [speed]");
+            System.exit(1);
+        }
+
+        final double speed = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+
+        try (StreamsReplay replay = new StreamsReplay(new TcpConfiguration(), Paths.get(args[0]), args[1], speed))
+        {
+            replay.replay();
+        }
+    }
+}
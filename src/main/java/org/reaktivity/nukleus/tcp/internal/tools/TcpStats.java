@@ -0,0 +1,200 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.agrona.concurrent.status.CountersManager.counterOffset;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.status.CountersManager;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.layouts.ControlLayout;
+
+/**
+ * Prints the counters of a running TCP nukleus, mapping its {@code tcp/control} file read-only.
+ * <p>
+ * Usage: {@code TcpStats [--format text|prometheus|csv] [--interval seconds] [--count iterations]},
+ * with the nukleus directory and buffer capacities taken from the usual {@code nukleus.*} system properties.
+ * Counters qualified by an address or component, such as {@code connects[127.0.0.1]}, are printed
+ * as labelled series in the prometheus format.
+ */
+public final class TcpStats implements AutoCloseable
+{
+    private static final Pattern QUALIFIED_LABEL = Pattern.compile("([^\\[]*)\\[([^\\]]*)\\]\\.?(.*)");
+
+    public enum Format
+    {
+        TEXT,
+        PROMETHEUS,
+        CSV
+    }
+
+    private final ControlLayout layout;
+    private final CountersManager counters;
+    private final AtomicBuffer values;
+    private final Format format;
+    private final Long2LongHashMap previousById;
+
+    private long previousAt;
+
+    public TcpStats(
+        Configuration config,
+        Format format)
+    {
+        this.layout = new ControlLayout.Builder()
+                .controlPath(config.directory().resolve("tcp/control"))
+                .commandBufferCapacity(config.commandBufferCapacity())
+                .responseBufferCapacity(config.responseBufferCapacity())
+                .counterLabelsBufferCapacity(config.counterLabelsBufferCapacity())
+                .counterValuesBufferCapacity(config.counterValuesBufferCapacity())
+                .readonly(true)
+                .build();
+        this.counters = new CountersManager(layout.counterLabelsBuffer(), layout.counterValuesBuffer());
+        this.values = layout.counterValuesBuffer();
+        this.format = format;
+        this.previousById = new Long2LongHashMap(-1L);
+    }
+
+    public void print(
+        PrintStream out)
+    {
+        final long now = System.nanoTime();
+        final double seconds = previousAt != 0L ? (now - previousAt) / (double) SECONDS.toNanos(1L) : 0.0;
+        final long timestamp = System.currentTimeMillis();
+
+        final List<String> lines = new ArrayList<>();
+        counters.forEach((id, label) ->
+        {
+            final long value = values.getLongVolatile(counterOffset(id));
+            final long previous = previousById.get(id);
+            final double rate = previous != -1L && seconds > 0.0 ? (value - previous) / seconds : 0.0;
+
+            previousById.put(id, value);
+            lines.add(format(label, value, rate, timestamp));
+        });
+
+        switch (format)
+        {
+        case TEXT:
+            out.format("%n%-48s %20s %16s%n", "counter", "value", "rate/s");
+            break;
+        case CSV:
+            if (previousAt == 0L)
+            {
+                out.println("timestamp,counter,value,rate");
+            }
+            break;
+        default:
+            break;
+        }
+
+        lines.forEach(out::println);
+        out.flush();
+
+        previousAt = now;
+    }
+
+    @Override
+    public void close()
+    {
+        layout.close();
+    }
+
+    private String format(
+        String label,
+        long value,
+        double rate,
+        long timestamp)
+    {
+        switch (format)
+        {
+        case PROMETHEUS:
+            return String.format("%s %d %d", prometheusSeries(label), value, timestamp);
+        case CSV:
+            return String.format("%d,\"%s\",%d,%.1f", timestamp, label.replace("\"", "\"\""), value, rate);
+        default:
+            return String.format("%-48s %20d %16.1f", label, value, rate);
+        }
+    }
+
+    static String prometheusSeries(
+        String label)
+    {
+        final Matcher matcher = QUALIFIED_LABEL.matcher(label);
+        if (matcher.matches())
+        {
+            final String metric = matcher.group(3).isEmpty() ? matcher.group(1) : matcher.group(1) + "_" + matcher.group(3);
+            return String.format("%s{qualifier=\"%s\"}", prometheusName(metric), matcher.group(2).replace("\"", "\\\""));
+        }
+
+        return prometheusName(label);
+    }
+
+    private static String prometheusName(
+        String name)
+    {
+        return "nukleus_tcp_" + name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        Format format = Format.TEXT;
+        long intervalNanos = SECONDS.toNanos(1L);
+        long count = Long.MAX_VALUE;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+            case "--format":
+                format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                break;
+            case "--interval":
+                intervalNanos = SECONDS.toNanos(Long.parseLong(args[++i]));
+                break;
+            case "--count":
+                count = Long.parseLong(args[++i]);
+                break;
+            default:
+                System.err.println("Usage: TcpStats [--format text|prometheus|csv] [--interval seconds] [--count iterations]");
+                System.exit(1);
+                break;
+            }
+        }
+
+        try (TcpStats stats = new TcpStats(new Configuration(), format))
+        {
+            for (long i = 0; i < count; i++)
+            {
+                if (i != 0)
+                {
+                    NANOSECONDS.sleep(intervalNanos);
+                }
+                stats.print(System.out);
+            }
+        }
+    }
+}
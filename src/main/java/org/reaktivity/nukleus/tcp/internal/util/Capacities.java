@@ -0,0 +1,137 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.util;
+
+import static org.agrona.BitUtil.isPowerOfTwo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Ring buffer capacities by nukleus name, for example {@code "bulk*=67108864,control*=65536"},
+ * where the first matching pattern wins and unmatched names take the default capacity.
+ */
+public final class Capacities
+{
+    private final List<String> names;
+    private final List<Pattern> patterns;
+    private final List<Integer> capacities;
+    private final int defaultCapacity;
+
+    private Capacities(
+        List<String> names,
+        List<Pattern> patterns,
+        List<Integer> capacities,
+        int defaultCapacity)
+    {
+        this.names = names;
+        this.patterns = patterns;
+        this.capacities = capacities;
+        this.defaultCapacity = defaultCapacity;
+    }
+
+    public int capacity(
+        String name)
+    {
+        for (int i = 0; i < patterns.size(); i++)
+        {
+            if (patterns.get(i).matcher(name).matches())
+            {
+                return capacities.get(i);
+            }
+        }
+
+        return defaultCapacity;
+    }
+
+    public int maxCapacity()
+    {
+        int maxCapacity = defaultCapacity;
+
+        for (int capacity : capacities)
+        {
+            maxCapacity = Math.max(maxCapacity, capacity);
+        }
+
+        return maxCapacity;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < patterns.size(); i++)
+        {
+            builder.append(names.get(i)).append('=').append(capacities.get(i)).append(',');
+        }
+
+        return builder.append("*=").append(defaultCapacity).toString();
+    }
+
+    public static Capacities parse(
+        String capacities,
+        int defaultCapacity)
+    {
+        final List<String> names = new ArrayList<>();
+        final List<Pattern> patterns = new ArrayList<>();
+        final List<Integer> values = new ArrayList<>();
+
+        for (String entry : capacities.split(","))
+        {
+            final String trimmed = entry.trim();
+            if (trimmed.isEmpty())
+            {
+                continue;
+            }
+
+            final int separator = trimmed.indexOf('=');
+            if (separator == -1)
+            {
+                throw new IllegalArgumentException("Missing capacity for pattern: " + trimmed);
+            }
+
+            final String name = trimmed.substring(0, separator).trim();
+            final String value = trimmed.substring(separator + 1).trim();
+
+            names.add(name);
+            patterns.add(Pattern.compile(Pattern.quote(name).replace("*", "\\E.*\\Q")));
+            values.add(parseCapacity(name, value));
+        }
+
+        return new Capacities(names, patterns, values, defaultCapacity);
+    }
+
+    private static int parseCapacity(
+        String name,
+        String value)
+    {
+        try
+        {
+            final int capacity = Integer.parseInt(value);
+            if (!isPowerOfTwo(capacity))
+            {
+                throw new IllegalArgumentException(String.format("Capacity for %s not a power of two: %s", name, value));
+            }
+            return capacity;
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(String.format("Illegal capacity for %s: %s", name, value), ex);
+        }
+    }
+}
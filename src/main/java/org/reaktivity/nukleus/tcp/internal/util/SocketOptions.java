@@ -0,0 +1,174 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.util;
+
+import static java.net.StandardSocketOptions.SO_KEEPALIVE;
+import static java.net.StandardSocketOptions.SO_LINGER;
+import static java.net.StandardSocketOptions.SO_RCVBUF;
+import static java.net.StandardSocketOptions.SO_SNDBUF;
+import static java.net.StandardSocketOptions.TCP_NODELAY;
+
+import java.io.IOException;
+import java.nio.channels.NetworkChannel;
+
+/**
+ * Socket option profile applied to accepted and connected channels, for example
+ * {@code "nodelay,keepalive,rcvbuf=65536,sndbuf=65536,linger=0"}.
+ */
+public final class SocketOptions
+{
+    public static final SocketOptions NONE = new SocketOptions(null, null, -1, -1, -1);
+
+    private final Boolean nodelay;
+    private final Boolean keepalive;
+    private final int rcvbuf;
+    private final int sndbuf;
+    private final int linger;
+
+    private SocketOptions(
+        Boolean nodelay,
+        Boolean keepalive,
+        int rcvbuf,
+        int sndbuf,
+        int linger)
+    {
+        this.nodelay = nodelay;
+        this.keepalive = keepalive;
+        this.rcvbuf = rcvbuf;
+        this.sndbuf = sndbuf;
+        this.linger = linger;
+    }
+
+    public void apply(
+        NetworkChannel channel) throws IOException
+    {
+        if (nodelay != null)
+        {
+            channel.setOption(TCP_NODELAY, nodelay);
+        }
+
+        if (keepalive != null)
+        {
+            channel.setOption(SO_KEEPALIVE, keepalive);
+        }
+
+        if (rcvbuf != -1)
+        {
+            channel.setOption(SO_RCVBUF, rcvbuf);
+        }
+
+        if (sndbuf != -1)
+        {
+            channel.setOption(SO_SNDBUF, sndbuf);
+        }
+
+        if (linger != -1)
+        {
+            channel.setOption(SO_LINGER, linger);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[nodelay=%s, keepalive=%s, rcvbuf=%d, sndbuf=%d, linger=%d]",
+                getClass().getSimpleName(), nodelay, keepalive, rcvbuf, sndbuf, linger);
+    }
+
+    public static SocketOptions parse(
+        String options)
+    {
+        Boolean nodelay = null;
+        Boolean keepalive = null;
+        int rcvbuf = -1;
+        int sndbuf = -1;
+        int linger = -1;
+
+        for (String option : options.split(","))
+        {
+            final String trimmed = option.trim();
+            if (trimmed.isEmpty())
+            {
+                continue;
+            }
+
+            final int separator = trimmed.indexOf('=');
+            final String name = separator != -1 ? trimmed.substring(0, separator).trim() : trimmed;
+            final String value = separator != -1 ? trimmed.substring(separator + 1).trim() : null;
+
+            switch (name)
+            {
+            case "nodelay":
+                nodelay = parseBoolean(name, value);
+                break;
+            case "keepalive":
+                keepalive = parseBoolean(name, value);
+                break;
+            case "rcvbuf":
+                rcvbuf = parseInt(name, value, 1);
+                break;
+            case "sndbuf":
+                sndbuf = parseInt(name, value, 1);
+                break;
+            case "linger":
+                linger = parseInt(name, value, 0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unrecognized socket option: " + name);
+            }
+        }
+
+        return new SocketOptions(nodelay, keepalive, rcvbuf, sndbuf, linger);
+    }
+
+    private static Boolean parseBoolean(
+        String name,
+        String value)
+    {
+        if (value == null || "true".equals(value))
+        {
+            return Boolean.TRUE;
+        }
+        else if ("false".equals(value))
+        {
+            return Boolean.FALSE;
+        }
+        else
+        {
+            throw new IllegalArgumentException(String.format("Illegal socket option: %s=%s", name, value));
+        }
+    }
+
+    private static int parseInt(
+        String name,
+        String value,
+        int minValue)
+    {
+        try
+        {
+            final int parsed = Integer.parseInt(value);
+            if (parsed < minValue)
+            {
+                throw new IllegalArgumentException(String.format("Illegal socket option: %s=%s", name, value));
+            }
+            return parsed;
+        }
+        catch (NumberFormatException ex)
+        {
+            throw new IllegalArgumentException(String.format("Illegal socket option: %s=%s", name, value), ex);
+        }
+    }
+}
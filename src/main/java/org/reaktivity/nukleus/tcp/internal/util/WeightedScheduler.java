@@ -0,0 +1,154 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.reaktivity.nukleus.Nukleus;
+
+/**
+ * Runs components by weight, for example {@code "router=4,acceptor=1"}, where each component runs in
+ * {@code weight} out of every {@code period} duty cycles, spread evenly, and {@code period} is the largest weight.
+ * Unweighted components take the largest weight and run every duty cycle.
+ * <p>
+ * Weights only apply under load. After a duty cycle that found no work, every component runs, so that commands
+ * arriving while idle are not delayed.
+ */
+public final class WeightedScheduler implements AutoCloseable
+{
+    private final Nukleus[] components;
+    private final int[] weights;
+    private final int[] credits;
+    private final int period;
+
+    private boolean idle;
+
+    public WeightedScheduler(
+        Map<String, Integer> weightsByName,
+        Nukleus... components)
+    {
+        int period = 1;
+        for (Map.Entry<String, Integer> entry : weightsByName.entrySet())
+        {
+            if (!hasComponent(components, entry.getKey()))
+            {
+                throw new IllegalArgumentException("Unknown component for weight: " + entry.getKey());
+            }
+            period = Math.max(period, entry.getValue());
+        }
+
+        this.components = components;
+        this.weights = new int[components.length];
+        this.credits = new int[components.length];
+        this.period = period;
+
+        for (int i = 0; i < components.length; i++)
+        {
+            weights[i] = weightsByName.getOrDefault(components[i].name(), period);
+        }
+    }
+
+    public int process()
+    {
+        int workCount = 0;
+
+        for (int i = 0; i < components.length; i++)
+        {
+            credits[i] += weights[i];
+
+            if (credits[i] >= period)
+            {
+                credits[i] -= period;
+                workCount += components[i].process();
+            }
+            else if (idle)
+            {
+                workCount += components[i].process();
+            }
+        }
+
+        idle = workCount == 0;
+
+        return workCount;
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        for (Nukleus component : components)
+        {
+            component.close();
+        }
+    }
+
+    public static Map<String, Integer> parseWeights(
+        String weights)
+    {
+        final Map<String, Integer> weightsByName = new LinkedHashMap<>();
+
+        for (String entry : weights.split(","))
+        {
+            final String trimmed = entry.trim();
+            if (trimmed.isEmpty())
+            {
+                continue;
+            }
+
+            final int separator = trimmed.indexOf('=');
+            if (separator == -1)
+            {
+                throw new IllegalArgumentException("Missing weight for component: " + trimmed);
+            }
+
+            final String name = trimmed.substring(0, separator).trim();
+            final String value = trimmed.substring(separator + 1).trim();
+
+            final int weight;
+            try
+            {
+                weight = Integer.parseInt(value);
+            }
+            catch (NumberFormatException ex)
+            {
+                throw new IllegalArgumentException(String.format("Illegal weight for %s: %s", name, value), ex);
+            }
+
+            if (weight <= 0)
+            {
+                throw new IllegalArgumentException(String.format("Illegal weight for %s: %d", name, weight));
+            }
+
+            weightsByName.put(name, weight);
+        }
+
+        return weightsByName;
+    }
+
+    private static boolean hasComponent(
+        Nukleus[] components,
+        String name)
+    {
+        for (Nukleus component : components)
+        {
+            if (component.name().equals(name))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -20,6 +20,8 @@ import java.net.SocketAddress;
 import java.util.Objects;
 import java.util.function.Predicate;
 
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
+
 public class Route
 {
     private final String source;
@@ -27,19 +29,30 @@ public class Route
     private final Target target;
     private final long targetRef;
     private final InetSocketAddress address;
+    private final SocketOptions options;
+
+    private long sequence;
+    private int outstanding;
+    private int failures;
+    private boolean ejected;
+    private long retryAt;
+    private long connectLatency;
+    private long firstByteLatency;
 
     public Route(
         String source,
         long sourceRef,
         Target target,
         long targetRef,
-        InetSocketAddress address)
+        InetSocketAddress address,
+        SocketOptions options)
     {
         this.source = source;
         this.sourceRef = sourceRef;
         this.target = target;
         this.targetRef = targetRef;
         this.address = address;
+        this.options = options;
     }
 
     public String source()
@@ -67,6 +80,71 @@ public class Route
         return address;
     }
 
+    public SocketOptions options()
+    {
+        return options;
+    }
+
+    public long sequence()
+    {
+        return sequence;
+    }
+
+    public int outstanding()
+    {
+        return outstanding;
+    }
+
+    public long latency()
+    {
+        return connectLatency + firstByteLatency;
+    }
+
+    public boolean available(
+        long now)
+    {
+        return !ejected || now - retryAt >= 0L;
+    }
+
+    public void onSelected(
+        long sequence)
+    {
+        this.sequence = sequence;
+        this.outstanding++;
+    }
+
+    public void onReleased()
+    {
+        this.outstanding--;
+    }
+
+    public void onConnected(
+        long latency)
+    {
+        this.failures = 0;
+        this.ejected = false;
+        this.connectLatency = ewma(connectLatency, latency);
+    }
+
+    public void onFirstByte(
+        long latency)
+    {
+        this.firstByteLatency = ewma(firstByteLatency, latency);
+    }
+
+    public void onConnectFailed(
+        long now,
+        int maxFailures,
+        long ejectNanos)
+    {
+        if (++failures >= maxFailures)
+        {
+            // passively eject, retry after eject time
+            this.ejected = true;
+            this.retryAt = now + ejectNanos;
+        }
+    }
+
     @Override
     public int hashCode()
     {
@@ -97,6 +175,13 @@ public class Route
                 source, sourceRef, target.name(), targetRef, address);
     }
 
+    private static long ewma(
+        long average,
+        long sample)
+    {
+        return average == 0L ? sample : average + ((sample - average) >> 2);
+    }
+
     public static Predicate<Route> sourceMatches(
         String source)
     {
@@ -28,19 +28,25 @@ import java.util.function.Predicate;
 
 import org.agrona.LangUtil;
 import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
 import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.MessageHandler;
 import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
 import org.reaktivity.nukleus.Nukleus;
 import org.reaktivity.nukleus.tcp.internal.connector.Connector;
+import org.reaktivity.nukleus.tcp.internal.events.EventLog;
 import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
 import org.reaktivity.nukleus.tcp.internal.router.Correlation;
 import org.reaktivity.nukleus.tcp.internal.router.RouteKind;
 import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.FrameFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.ResetFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
+import org.reaktivity.nukleus.tcp.internal.writer.balancer.Balancer;
 import org.reaktivity.nukleus.tcp.internal.writer.stream.StreamFactory;
 
 public final class Source implements Nukleus
@@ -50,6 +56,7 @@ public final class Source implements Nukleus
 
     private final BeginFW.Builder beginRW = new BeginFW.Builder();
     private final ResetFW.Builder resetRW = new ResetFW.Builder();
+    private final EndFW.Builder endRW = new EndFW.Builder();
     private final WindowFW.Builder windowRW = new WindowFW.Builder();
 
     private final String partitionName;
@@ -63,6 +70,13 @@ public final class Source implements Nukleus
     private final RingBuffer throttleBuffer;
     private final StreamFactory streamFactory;
     private final Long2ObjectHashMap<MessageHandler> streams;
+    private final Balancer balancer;
+    private final int ejectFailures;
+    private final long ejectNanos;
+    private final Long2ObjectHashMap<Route> routesByStreamId;
+    private final Long2LongHashMap connectingAt;
+    private final int writeQuota;
+    private final AtomicCounter quotaExhausted;
 
     Source(
         String partitionName,
@@ -71,7 +85,15 @@ public final class Source implements Nukleus
         LongFunction<Correlation> resolveCorrelation,
         Function<String, Target> supplyTarget,
         StreamsLayout layout,
-        AtomicBuffer writeBuffer)
+        AtomicBuffer writeBuffer,
+        int windowSize,
+        int windowThreshold,
+        Balancer balancer,
+        int ejectFailures,
+        long ejectNanos,
+        int writeQuota,
+        AtomicCounter quotaExhausted,
+        EventLog events)
     {
         this.partitionName = partitionName;
         this.connector = connector;
@@ -82,14 +104,34 @@ public final class Source implements Nukleus
         this.writeBuffer = writeBuffer;
         this.streamsBuffer = layout.streamsBuffer();
         this.throttleBuffer = layout.throttleBuffer();
-        this.streamFactory = new StreamFactory(this, 8192, 8192); // TODO: configure 8192
+        this.streamFactory = new StreamFactory(this, windowSize, windowThreshold, events);
         this.streams = new Long2ObjectHashMap<>();
+        this.balancer = balancer;
+        this.ejectFailures = ejectFailures;
+        this.ejectNanos = ejectNanos;
+        this.routesByStreamId = new Long2ObjectHashMap<>();
+        this.connectingAt = new Long2LongHashMap(-1L);
+        this.writeQuota = writeQuota;
+        this.quotaExhausted = quotaExhausted;
     }
 
     @Override
     public int process()
     {
-        return streamsBuffer.read(this::handleRead);
+        if (writeQuota == 0)
+        {
+            return streamsBuffer.read(this::handleRead);
+        }
+
+        final int frames = streamsBuffer.read(this::handleRead, writeQuota);
+
+        if (frames == writeQuota && streamsBuffer.size() != 0)
+        {
+            // remaining frames are handled next duty cycle, after other partitions
+            quotaExhausted.increment();
+        }
+
+        return frames;
     }
 
     @Override
@@ -236,19 +278,21 @@ public final class Source implements Nukleus
         final long correlationId)
     {
         final List<Route> routes = lookupRoutes.apply(referenceId);
+        final long now = System.nanoTime();
 
-        final Optional<Route> optional = routes.stream().findFirst();
+        final Route route = balancer.select(routes, now);
 
-        if (optional.isPresent())
+        if (route != null)
         {
-            final Route route = optional.get();
             final Target target = route.target();
             final long targetRef = route.targetRef();
-            final SocketChannel channel = newSocketChannel();
+            final SocketChannel channel = newSocketChannel(route.options());
 
             final MessageHandler newStream = streamFactory.newStream(streamId, target, channel);
 
             streams.put(streamId, newStream);
+            routesByStreamId.put(streamId, route);
+            connectingAt.put(streamId, now);
 
             final String targetName = route.target().name();
             final InetSocketAddress remoteAddress = route.address();
@@ -262,12 +306,14 @@ public final class Source implements Nukleus
         }
     }
 
-    private SocketChannel newSocketChannel()
+    private SocketChannel newSocketChannel(
+        SocketOptions options)
     {
         try
         {
             final SocketChannel channel = SocketChannel.open();
             channel.configureBlocking(false);
+            options.apply(channel);
             return channel;
         }
         catch (IOException ex)
@@ -279,7 +325,7 @@ public final class Source implements Nukleus
         return null;
     }
 
-    public void onConnected(
+    public Runnable onConnected(
         long sourceId,
         long sourceRef,
         Target target,
@@ -297,6 +343,71 @@ public final class Source implements Nukleus
             .build();
 
         newStream.onMessage(BeginFW.TYPE_ID, writeBuffer, begin.offset(), begin.length());
+
+        final Route route = routesByStreamId.get(sourceId);
+        final long startedAt = connectingAt.remove(sourceId);
+
+        if (route != null && startedAt != -1L)
+        {
+            final long connectedAt = System.nanoTime();
+            route.onConnected(connectedAt - startedAt);
+            return () -> route.onFirstByte(System.nanoTime() - connectedAt);
+        }
+
+        return null;
+    }
+
+    public void onConnectFailed(
+        long sourceId)
+    {
+        final Route route = routesByStreamId.remove(sourceId);
+        connectingAt.remove(sourceId);
+
+        if (route != null)
+        {
+            route.onConnectFailed(System.nanoTime(), ejectFailures, ejectNanos);
+            route.onReleased();
+        }
+
+        streams.remove(sourceId);
+        doReset(sourceId);
+    }
+
+    /**
+     * Ends all streams of this source, as no further frames can arrive once its streams file has expired,
+     * returning the mapped bytes released when this source is closed.
+     */
+    public long onExpired()
+    {
+        final long[] streamIds = streams.keySet().stream().mapToLong(Long::longValue).toArray();
+
+        for (long streamId : streamIds)
+        {
+            if (connectingAt.remove(streamId) != -1L)
+            {
+                // channel closed by Router.onConnected or released by Connector on failure
+                removeStream(streamId);
+                continue;
+            }
+
+            final MessageHandler stream = streams.get(streamId);
+            final EndFW end = endRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                    .streamId(streamId)
+                    .extension(b -> b.set((buf, off, len) -> 0))
+                    .build();
+
+            try
+            {
+                stream.onMessage(end.typeId(), writeBuffer, end.offset(), end.length());
+            }
+            catch (Exception ex)
+            {
+                // channel already closed
+                removeStream(streamId);
+            }
+        }
+
+        return layout.capacity();
     }
 
     public void doWindow(
@@ -332,5 +443,11 @@ public final class Source implements Nukleus
         long streamId)
     {
         streams.remove(streamId);
+
+        final Route route = routesByStreamId.remove(streamId);
+        if (route != null)
+        {
+            route.onReleased();
+        }
     }
 }
@@ -15,7 +15,7 @@
  */
 package org.reaktivity.nukleus.tcp.internal.writer;
 
-import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.reaktivity.nukleus.tcp.internal.writer.Route.addressMatches;
 import static org.reaktivity.nukleus.tcp.internal.writer.Route.sourceMatches;
 import static org.reaktivity.nukleus.tcp.internal.writer.Route.sourceRefMatches;
@@ -24,7 +24,6 @@ import static org.reaktivity.nukleus.tcp.internal.writer.Route.targetRefMatches;
 
 import java.net.InetSocketAddress;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,8 +31,8 @@ import java.util.function.Function;
 import java.util.function.LongFunction;
 import java.util.function.Predicate;
 
+import org.agrona.CloseHelper;
 import org.agrona.LangUtil;
-import org.agrona.collections.Long2ObjectHashMap;
 import org.agrona.concurrent.AtomicBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.reaktivity.nukleus.Nukleus;
@@ -42,6 +41,10 @@ import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
 import org.reaktivity.nukleus.tcp.internal.connector.Connector;
 import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
 import org.reaktivity.nukleus.tcp.internal.router.Correlation;
+import org.reaktivity.nukleus.tcp.internal.router.RouteTable;
+import org.reaktivity.nukleus.tcp.internal.router.RouteUpdates;
+import org.reaktivity.nukleus.tcp.internal.util.SocketOptions;
+import org.reaktivity.nukleus.tcp.internal.writer.balancer.Balancer;
 
 /**
  * The {@code Writable} nukleus reads streams data from multiple {@code Source} nuklei and monitors completion of
@@ -49,8 +52,6 @@ import org.reaktivity.nukleus.tcp.internal.router.Correlation;
  */
 public final class Writer extends Nukleus.Composite
 {
-    private static final List<Route> EMPTY_ROUTES = emptyList();
-
     private final Context context;
     private final Conductor conductor;
     private final Connector connector;
@@ -59,13 +60,15 @@ public final class Writer extends Nukleus.Composite
     private final AtomicBuffer writeBuffer;
     private final Map<String, Source> sourcesByPartitionName;
     private final Map<String, Target> targetsByName;
-    private final Long2ObjectHashMap<List<Route>> routesByRef;
+    private final RouteTable<Route> routesByRef;
     private final LongFunction<Correlation> resolveCorrelation;
+    private final Balancer balancer;
 
     public Writer(
         Context context,
         Conductor conductor,
         Connector connector,
+        RouteUpdates routeUpdates,
         String sourceName,
         LongFunction<Correlation> resolveCorrelation)
     {
@@ -78,7 +81,8 @@ public final class Writer extends Nukleus.Composite
         this.writeBuffer = new UnsafeBuffer(new byte[context.maxMessageLength()]);
         this.sourcesByPartitionName = new HashMap<>();
         this.targetsByName = new HashMap<>();
-        this.routesByRef = new Long2ObjectHashMap<>();
+        this.routesByRef = new RouteTable<>(routeUpdates);
+        this.balancer = Balancer.newBalancer(context.outputBalancer());
     }
 
     @Override
@@ -93,7 +97,13 @@ public final class Writer extends Nukleus.Composite
         sourcesByPartitionName.computeIfAbsent(partitionName, this::newSource);
     }
 
-    public void onConnected(
+    public Route select(
+        long sourceRef)
+    {
+        return balancer.select(lookupRoutes(sourceRef), System.nanoTime());
+    }
+
+    public Runnable onConnected(
         String sourceName,
         long sourceId,
         long sourceRef,
@@ -104,7 +114,7 @@ public final class Writer extends Nukleus.Composite
         final Source source = sourcesByPartitionName.get(sourceName);
         final Target target = targetsByName.computeIfAbsent(targetName, this::newTarget);
 
-        source.onConnected(sourceId, sourceRef, target, channel, correlationId);
+        return source.onConnected(sourceId, sourceRef, target, channel, correlationId);
     }
 
     public void onConnectFailed(
@@ -112,7 +122,46 @@ public final class Writer extends Nukleus.Composite
         long sourceId)
     {
         Source source = sourcesByPartitionName.get(partitionName);
-        source.doReset(sourceId);
+        if (source != null)
+        {
+            source.onConnectFailed(sourceId);
+        }
+    }
+
+    /**
+     * Ends the streams of an expired partition and unmaps its layout, then closes the targets no longer
+     * needed once no partitions remain, returning the number of mapped bytes reclaimed.
+     */
+    public long onExpired(
+        String partitionName)
+    {
+        long reclaimedBytes = 0L;
+
+        final Source source = sourcesByPartitionName.remove(partitionName);
+        if (source != null)
+        {
+            exclude(source);
+            reclaimedBytes += source.onExpired();
+            CloseHelper.quietClose(source);
+        }
+
+        if (sourcesByPartitionName.isEmpty())
+        {
+            targetsByName.values().removeIf(this::closeIfUnrouted);
+        }
+
+        return reclaimedBytes;
+    }
+
+    public boolean isExpired()
+    {
+        return sourcesByPartitionName.isEmpty();
+    }
+
+    public boolean isReadable(
+        String partitionName)
+    {
+        return sourcesByPartitionName.containsKey(partitionName);
     }
 
     public void doRoute(
@@ -120,15 +169,15 @@ public final class Writer extends Nukleus.Composite
         long sourceRef,
         String targetName,
         long targetRef,
-        InetSocketAddress address)
+        InetSocketAddress address,
+        SocketOptions options)
     {
         try
         {
             final Target target = targetsByName.computeIfAbsent(targetName, this::newTarget);
-            final Route newRoute = new Route(sourceName, sourceRef, target, targetRef, address);
+            final Route newRoute = new Route(sourceName, sourceRef, target, targetRef, address, options);
 
-            routesByRef.computeIfAbsent(sourceRef, this::newRoutes)
-                       .add(newRoute);
+            routesByRef.add(sourceRef, newRoute);
 
             conductor.onRoutedResponse(correlationId, sourceRef);
         }
@@ -146,8 +195,6 @@ public final class Writer extends Nukleus.Composite
         long targetRef,
         InetSocketAddress address)
     {
-        final List<Route> routes = lookupRoutes(sourceRef);
-
         final Predicate<Route> filter =
                 sourceMatches(sourceName)
                  .and(sourceRefMatches(sourceRef))
@@ -155,7 +202,7 @@ public final class Writer extends Nukleus.Composite
                  .and(targetRefMatches(targetRef))
                  .and(addressMatches(address));
 
-        if (routes.removeIf(filter))
+        if (routesByRef.removeIf(sourceRef, filter))
         {
             conductor.onUnroutedResponse(correlationId);
         }
@@ -178,31 +225,39 @@ public final class Writer extends Nukleus.Composite
         return include(new Target(targetName));
     }
 
-    private List<Route> newRoutes(
-        long sourceRef)
+    private boolean closeIfUnrouted(
+        Target target)
     {
-        return new ArrayList<>();
+        if (routesByRef.stream().anyMatch(r -> r.target() == target))
+        {
+            return false;
+        }
+
+        exclude(target);
+        CloseHelper.quietClose(target);
+        return true;
     }
 
     private List<Route> lookupRoutes(
         long referenceId)
     {
-        return routesByRef.getOrDefault(referenceId, EMPTY_ROUTES);
+        return routesByRef.lookup(referenceId);
     }
 
     private Source newSource(
         String partitionName)
     {
-        StreamsLayout layout = new StreamsLayout.Builder()
-            .path(context.captureStreamsPath().apply(partitionName))
-            .streamsCapacity(context.streamsBufferCapacity())
-            .throttleCapacity(context.throttleBufferCapacity())
-            .readonly(true)
-            .build();
+        StreamsLayout layout = context.streamsLayouts().acquire(
+            context.captureStreamsPath().apply(partitionName),
+            context.streamsCapacity(partitionName),
+            context.throttleCapacity(partitionName),
+            true);
 
         Function<String, Target> supplyTarget = n -> targetsByName.computeIfAbsent(n, this::newTarget);
 
         return include(new Source(partitionName, connector, this::lookupRoutes, resolveCorrelation,
-                        supplyTarget, layout, writeBuffer));
+                        supplyTarget, layout, writeBuffer, context.writeWindowSize(), context.writeWindowThreshold(),
+                        balancer, context.outputEjectFailures(), MILLISECONDS.toNanos(context.outputEjectMillis()),
+                        context.writeQuota(), context.counters().writeQuotaExhausted(), context.events()));
     }
 }
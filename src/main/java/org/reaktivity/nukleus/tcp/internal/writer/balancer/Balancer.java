@@ -0,0 +1,55 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.writer.balancer;
+
+import java.util.List;
+
+import org.reaktivity.nukleus.tcp.internal.writer.Route;
+
+/**
+ * Selects one {@code Route} from the pool of backend routes sharing the same out-bound reference.
+ */
+@FunctionalInterface
+public interface Balancer
+{
+    /**
+     * Selects an available route, skipping routes passively ejected after repeated connect failures.
+     *
+     * @param routes  the candidate routes
+     * @param now  the current time in nanoseconds
+     *
+     * @return the selected route, or {@code null} if no route is available
+     */
+    Route select(
+        List<Route> routes,
+        long now);
+
+    static Balancer newBalancer(
+        String policy)
+    {
+        switch (policy)
+        {
+        case "round-robin":
+            return new RoundRobinBalancer();
+        case "least-streams":
+            return new LeastStreamsBalancer();
+        case "ewma":
+            return new EwmaBalancer();
+        default:
+            throw new IllegalArgumentException("Unrecognized balancer: " + policy);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.writer.balancer;
+
+import java.util.List;
+
+import org.reaktivity.nukleus.tcp.internal.writer.Route;
+
+/**
+ * Selects the least recently selected available route.
+ */
+public final class RoundRobinBalancer implements Balancer
+{
+    private long sequence;
+
+    @Override
+    public Route select(
+        List<Route> routes,
+        long now)
+    {
+        Route selected = null;
+
+        for (int i = 0; i < routes.size(); i++)
+        {
+            final Route route = routes.get(i);
+            if (route.available(now) &&
+                (selected == null || route.sequence() < selected.sequence()))
+            {
+                selected = route;
+            }
+        }
+
+        if (selected != null)
+        {
+            selected.onSelected(++sequence);
+        }
+
+        return selected;
+    }
+}
@@ -15,6 +15,12 @@
  */
 package org.reaktivity.nukleus.tcp.internal.writer.stream;
 
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.BEGIN;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.CLOSE;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.END;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.RESET;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.WINDOW_STALL;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
@@ -23,6 +29,7 @@ import java.nio.channels.SocketChannel;
 import org.agrona.DirectBuffer;
 import org.agrona.LangUtil;
 import org.agrona.concurrent.MessageHandler;
+import org.reaktivity.nukleus.tcp.internal.events.EventLog;
 import org.reaktivity.nukleus.tcp.internal.types.OctetsFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
 import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
@@ -38,16 +45,22 @@ public final class StreamFactory
 
     private final Source source;
     private final int windowSize;
+    private final int windowThreshold;
     private final ByteBuffer writeBuffer;
+    private final EventLog events;
 
     public StreamFactory(
         Source source,
         int windowSize,
-        int maxMessageSize)
+        int windowThreshold,
+        EventLog events)
     {
         this.source = source;
         this.windowSize = windowSize;
-        this.writeBuffer = ByteBuffer.allocateDirect(maxMessageSize);
+        this.windowThreshold = windowThreshold;
+        this.events = events;
+        // data never exceeds the window
+        this.writeBuffer = ByteBuffer.allocateDirect(windowSize);
     }
 
     public MessageHandler newStream(
@@ -67,6 +80,7 @@ public final class StreamFactory
         private SelectionKey key;
 
         private int readableBytes;
+        private int pendingWindow;
 
         private Stream(
             long id,
@@ -118,6 +132,8 @@ public final class StreamFactory
 
             this.key = target.doRegister(channel, 0, this::handleWrite);
 
+            events.record(BEGIN, id, beginRO.referenceId());
+
             offerWindow(windowSize);
         }
 
@@ -142,6 +158,7 @@ public final class StreamFactory
 
                 if (bytesWritten < writableBytes)
                 {
+                    events.record(WINDOW_STALL, id, writableBytes - bytesWritten);
                     key.interestOps(SelectionKey.OP_WRITE);
                     throw new IOException("partial write, defer unwritten bytes");
                 }
@@ -161,12 +178,15 @@ public final class StreamFactory
         {
             endRO.wrap(buffer, offset, limit);
 
+            events.record(END, id, 0L);
+
             // TODO: flush partial writes first (if necessary)
             doCleanup();
         }
 
         private void doFail()
         {
+            events.record(RESET, id, readableBytes);
             source.doReset(id);
             doCleanup();
         }
@@ -177,6 +197,7 @@ public final class StreamFactory
             {
                 source.removeStream(id);
                 channel.shutdownOutput();
+                events.record(CLOSE, id, 0L);
             }
             catch (IOException ex)
             {
@@ -202,8 +223,15 @@ public final class StreamFactory
         private void offerWindow(
             final int update)
         {
-            readableBytes += update;
-            source.doWindow(id, update);
+            pendingWindow += update;
+
+            // coalesce window updates until threshold reached
+            if (pendingWindow >= windowThreshold)
+            {
+                readableBytes += pendingWindow;
+                source.doWindow(id, pendingWindow);
+                pendingWindow = 0;
+            }
         }
     }
 }
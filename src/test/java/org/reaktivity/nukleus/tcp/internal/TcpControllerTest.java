@@ -0,0 +1,161 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.agrona.CloseHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.Nukleus;
+
+public class TcpControllerTest
+{
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 50;
+
+    private Nukleus nukleus;
+    private TcpController controller;
+    private Thread driver;
+    private volatile boolean driving;
+
+    @Before
+    public void open()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-tests/controller");
+        Configuration configuration = new Configuration(properties);
+
+        nukleus = new TcpNukleusFactorySpi().create(configuration);
+        controller = new TcpControllerFactorySpi().create(TcpController.class, configuration);
+
+        driving = true;
+        driver = new Thread(this::drive, "tcp-nukleus");
+        driver.start();
+    }
+
+    @After
+    public void close() throws Exception
+    {
+        driving = false;
+        driver.join();
+
+        CloseHelper.quietClose(controller);
+        CloseHelper.quietClose(nukleus);
+    }
+
+    @Test
+    public void shouldRouteUnrouteAndApplyBatchesFromManyThreads() throws Exception
+    {
+        final Set<Long> sourceRefs = ConcurrentHashMap.newKeySet();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService senders = Executors.newFixedThreadPool(THREADS);
+
+        try
+        {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++)
+            {
+                final String source = "source" + i;
+                results.add(senders.submit(() ->
+                {
+                    start.await();
+                    for (int j = 0; j < ITERATIONS; j++)
+                    {
+                        final long sourceRef = controller.route(OUTPUT, NEW, source, 0L, "target", 8080, null).get(5, SECONDS);
+                        assertTrue(sourceRefs.add(sourceRef));
+
+                        final long[] batchRefs = controller.routes()
+                            .route(OUTPUT, NEW, source, 0L, "target", 8081, null)
+                            .unroute(OUTPUT, NEW, source, sourceRef, "target", 8080, null)
+                            .apply()
+                            .get(5, SECONDS);
+                        assertEquals(0L, batchRefs[1]);
+                        assertTrue(sourceRefs.add(batchRefs[0]));
+
+                        controller.unroute(OUTPUT, NEW, source, batchRefs[0], "target", 8081, null).get(5, SECONDS);
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> result : results)
+            {
+                result.get(30, SECONDS);
+            }
+        }
+        finally
+        {
+            senders.shutdownNow();
+        }
+
+        assertEquals(THREADS * ITERATIONS * 2, sourceRefs.size());
+    }
+
+    @Test
+    public void shouldJoinDependentCommandWhenCompleted() throws Exception
+    {
+        final long sourceRef = controller.route(OUTPUT, NEW, "source", 0L, "target", 8080, null)
+            .thenApply(ref ->
+            {
+                // joins a further command from the completing thread, which must not be the receiver
+                controller.unroute(OUTPUT, NEW, "source", ref, "target", 8080, null).join();
+                return ref;
+            })
+            .get(5, SECONDS);
+
+        assertTrue(sourceRef != 0L);
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void shouldFailCommandWhenClosed() throws Exception
+    {
+        controller.close();
+
+        controller.route(OUTPUT, NEW, "source", 0L, "target", 8080, null).get(5, SECONDS);
+    }
+
+    private void drive()
+    {
+        while (driving)
+        {
+            if (nukleus.process() == 0)
+            {
+                Thread.yield();
+            }
+        }
+    }
+}
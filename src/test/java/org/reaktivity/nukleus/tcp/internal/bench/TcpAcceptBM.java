@@ -0,0 +1,227 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.bench;
+
+import static java.net.InetAddress.getByName;
+import static java.net.StandardSocketOptions.SO_LINGER;
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.Configuration.STREAMS_BUFFER_CAPACITY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpStreams;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+import org.reaktivity.reaktor.internal.Reaktor;
+
+/**
+ * Opens and closes short-lived connections from many client threads, measuring setup until the in-bound
+ * BEGIN frame is observed, through {@code Acceptor}, {@code Router}, {@code Reader} and {@code reader.Source}.
+ */
+@State(Scope.Benchmark)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@Threads(8)
+public class TcpAcceptBM
+{
+    @Param({ "1", "100" })
+    private int routes;
+
+    private final BeginFW beginRO = new BeginFW();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong begins = new AtomicLong();
+
+    private final Random random = new Random();
+    private final long targetRef = random.nextLong();
+
+    private Reaktor reaktor;
+    private TcpStreams streams;
+    private AtomicBuffer throttleBuffer;
+    private InetSocketAddress address;
+    private Thread drainer;
+    private volatile boolean draining;
+
+    @Setup(Level.Trial)
+    public void reinit() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-benchmarks");
+        properties.setProperty(STREAMS_BUFFER_CAPACITY_PROPERTY_NAME, Long.toString(1024L * 1024L * 16L));
+
+        Configuration configuration = new Configuration(properties);
+        this.reaktor = Reaktor.launch(configuration, n -> "tcp".equals(n), TcpController.class::isAssignableFrom);
+
+        TcpController controller = reaktor.controller(TcpController.class);
+
+        // additional routes on the same port precede the measured route during route matching
+        for (int i = 1; i < routes; i++)
+        {
+            controller.route(INPUT, NEW, "any", 8080, "target", targetRef, extraAddress(i)).get();
+        }
+        controller.route(INPUT, NEW, "any", 8080, "target", targetRef, getByName("127.0.0.1")).get();
+
+        this.streams = controller.streams("any", "target");
+        this.throttleBuffer = new UnsafeBuffer(allocateDirect(1024));
+        this.address = new InetSocketAddress("127.0.0.1", 8080);
+
+        this.draining = true;
+        this.drainer = new Thread(this::drain, "drainer");
+        this.drainer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void reset() throws Exception
+    {
+        this.draining = false;
+        this.drainer.join();
+        this.streams.close();
+
+        TcpController controller = reaktor.controller(TcpController.class);
+        controller.unroute(INPUT, NEW, "any", 8080, "target", targetRef, getByName("127.0.0.1")).get();
+        for (int i = 1; i < routes; i++)
+        {
+            controller.unroute(INPUT, NEW, "any", 8080, "target", targetRef, extraAddress(i)).get();
+        }
+
+        reaktor.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(SECONDS)
+    public void accept() throws Exception
+    {
+        connectAndClose();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(MICROSECONDS)
+    public void acceptLatency() throws Exception
+    {
+        connectAndClose();
+    }
+
+    private void connectAndClose() throws Exception
+    {
+        final long ticket = connects.incrementAndGet();
+
+        try (SocketChannel channel = SocketChannel.open(address))
+        {
+            // avoid TIME_WAIT exhausting ephemeral ports
+            channel.setOption(SO_LINGER, 0);
+
+            while (begins.get() < ticket)
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void drain()
+    {
+        final MessageHandler handler = this::handleRead;
+
+        while (draining)
+        {
+            if (streams.readStreams(handler) == 0)
+            {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void handleRead(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        if (msgTypeId == BeginFW.TYPE_ID)
+        {
+            beginRO.wrap(buffer, index, index + length);
+            begins.incrementAndGet();
+
+            // allow reader to observe end-of-stream when the client closes
+            doWindow(beginRO.streamId(), 1);
+        }
+    }
+
+    private void doWindow(
+        final long streamId,
+        final int update)
+    {
+        final WindowFW window = windowRW.wrap(throttleBuffer, 0, throttleBuffer.capacity())
+                .streamId(streamId)
+                .update(update)
+                .build();
+
+        streams.writeThrottle(window.typeId(), window.buffer(), window.offset(), window.length());
+    }
+
+    private static InetAddress extraAddress(
+        int index) throws Exception
+    {
+        return getByName(String.format("127.1.%d.%d", index >> 8, index & 0xff));
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(TcpAcceptBM.class.getSimpleName())
+                .forks(0)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
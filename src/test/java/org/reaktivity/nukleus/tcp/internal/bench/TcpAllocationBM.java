@@ -0,0 +1,553 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.bench;
+
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.Configuration.STREAMS_BUFFER_CAPACITY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import org.agrona.CloseHelper;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.Nukleus;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpControllerFactorySpi;
+import org.reaktivity.nukleus.tcp.internal.TcpNukleusFactorySpi;
+import org.reaktivity.nukleus.tcp.internal.TcpStreams;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+
+/**
+ * Measures bytes allocated per operation on the data path, with the nukleus driven on the benchmark thread
+ * so that every allocation is attributed to the operation that caused it.
+ * <p>
+ * Run {@link #main(String[])} to compare {@code gc.alloc.rate.norm} against the budgets checked in as
+ * {@code TcpAllocationBM.properties}, failing when any operation allocates more than its budget or has no budget.
+ * The {@code allocation} profile runs this check as part of {@code mvn verify -Pallocation}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@OutputTimeUnit(SECONDS)
+public class TcpAllocationBM
+{
+    private static final String BUDGETS_RESOURCE = "TcpAllocationBM.properties";
+    private static final String ALLOCATION_LABEL = "gc.alloc.rate.norm";
+    private static final String APPLICATION_NAME = "allocation";
+
+    // each accepted or connected stream leaves its socket half open, so bound connections per fork
+    private static final int CONNECTIONS_PER_ITERATION = 100;
+
+    @Param({ "64" })
+    private int payloadSize;
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final EndFW endRO = new EndFW();
+    private final WindowFW windowRO = new WindowFW();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final DataFW.Builder dataRW = new DataFW.Builder();
+    private final EndFW.Builder endRW = new EndFW.Builder();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final MessageHandler ingressHandler = this::handleIngress;
+    private final MessageHandler egressThrottleHandler = this::handleEgressThrottle;
+    private final MessageHandler repliesHandler = this::handleReplies;
+
+    private Nukleus nukleus;
+    private TcpController controller;
+    private ServerSocketChannel server;
+    private InetSocketAddress serverAddress;
+    private TcpStreams ingress;
+    private TcpStreams replies;
+    private StreamsLayout source;
+    private RingBuffer egressStreams;
+    private RingBuffer egressThrottle;
+    private AtomicBuffer frameBuffer;
+    private AtomicBuffer payload;
+    private ByteBuffer sendBuffer;
+    private ByteBuffer receiveBuffer;
+    private InetAddress address;
+    private int inputPort;
+    private long sourceRef;
+
+    private SocketChannel client;
+    private SocketChannel accepted;
+    private long ingressStreamId;
+    private long egressStreamId;
+    private long nextStreamId;
+    private int egressWindow;
+
+    private int begins;
+    private int datas;
+    private int ends;
+    private int windows;
+    private int resets;
+
+    @Setup(Level.Trial)
+    public void reinit() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-benchmarks");
+        properties.setProperty(STREAMS_BUFFER_CAPACITY_PROPERTY_NAME, Long.toString(1024L * 1024L * 16L));
+
+        Configuration configuration = new Configuration(properties);
+
+        this.nukleus = new TcpNukleusFactorySpi().create(configuration);
+        this.controller = new TcpControllerFactorySpi().create(TcpController.class, configuration);
+
+        this.address = InetAddress.getByName("127.0.0.1");
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(address, 0));
+        this.server.configureBlocking(false);
+        this.serverAddress = (InetSocketAddress) server.getLocalAddress();
+
+        this.inputPort = 8080;
+        await(controller.route(INPUT, NEW, "any", inputPort, APPLICATION_NAME, 0L, address));
+        this.sourceRef = await(controller.route(OUTPUT, NEW, "source", 0L, "127.0.0.1", serverAddress.getPort(), null));
+
+        this.ingress = controller.streams("any", APPLICATION_NAME);
+        this.replies = controller.streams("any", "source");
+        this.source = new StreamsLayout.Builder()
+                .path(configuration.directory().resolve("tcp/streams/source"))
+                .streamsCapacity(configuration.streamsBufferCapacity())
+                .throttleCapacity(configuration.throttleBufferCapacity())
+                .readonly(false)
+                .build();
+        this.egressStreams = source.streamsBuffer();
+        this.egressThrottle = source.throttleBuffer();
+
+        this.frameBuffer = new UnsafeBuffer(allocateDirect(payloadSize + 1024));
+        this.payload = new UnsafeBuffer(allocateDirect(payloadSize));
+        this.sendBuffer = allocateDirect(payloadSize);
+        this.receiveBuffer = allocateDirect(64 * 1024);
+
+        // established in-bound stream for ingress DATA and WINDOW
+        this.client = SocketChannel.open(new InetSocketAddress(address, inputPort));
+        this.client.configureBlocking(false);
+        final int ingressBegins = begins + 1;
+        while (begins < ingressBegins)
+        {
+            doWork();
+        }
+
+        // established out-bound stream for egress DATA
+        this.egressStreamId = ++nextStreamId;
+        doEgressBegin(egressStreamId);
+        while (accepted == null || egressWindow == 0)
+        {
+            doWork();
+            if (accepted == null)
+            {
+                accepted = server.accept();
+            }
+        }
+        this.accepted.configureBlocking(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void reset() throws Exception
+    {
+        CloseHelper.quietClose(client);
+        CloseHelper.quietClose(accepted);
+        CloseHelper.quietClose(server);
+        ingress.close();
+        replies.close();
+        CloseHelper.quietClose(source);
+        CloseHelper.quietClose(controller);
+        CloseHelper.quietClose(nukleus);
+    }
+
+    /**
+     * In-bound DATA frame, covering {@code reader.Target}.
+     */
+    @Benchmark
+    public void ingressData() throws Exception
+    {
+        sendBuffer.clear();
+        while (sendBuffer.hasRemaining())
+        {
+            client.write(sendBuffer);
+        }
+
+        final int ingressDatas = datas + 1;
+        while (datas < ingressDatas)
+        {
+            doWork();
+        }
+    }
+
+    /**
+     * In-bound WINDOW frame, covering {@code reader.Source} throttle handling.
+     */
+    @Benchmark
+    public void ingressWindow() throws Exception
+    {
+        doIngressWindow(ingressStreamId, 1);
+        while (doWork() != 0)
+        {
+            // drain until idle
+        }
+    }
+
+    /**
+     * Out-bound DATA frame and resulting WINDOW frame, covering {@code writer.Source}.
+     */
+    @Benchmark
+    public void egressData() throws Exception
+    {
+        DataFW data = dataRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(egressStreamId)
+                .payload(p -> p.set(payload, 0, payloadSize))
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        // mirror window accounting in writer.stream.StreamFactory
+        final int writableBytes = Math.max(data.payload().length() - 1, 0);
+
+        while (egressWindow < writableBytes)
+        {
+            doWork();
+            doSink();
+        }
+
+        egressStreams.write(data.typeId(), data.buffer(), data.offset(), data.length());
+        egressWindow -= writableBytes;
+
+        final int egressWindows = windows + 1;
+        while (windows < egressWindows)
+        {
+            doWork();
+            doSink();
+        }
+    }
+
+    /**
+     * Accepted connection through to BEGIN and END, covering {@code Router.onAccepted}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = CONNECTIONS_PER_ITERATION)
+    @Measurement(iterations = 3, batchSize = CONNECTIONS_PER_ITERATION)
+    public void accept() throws Exception
+    {
+        final int acceptBegins = begins + 1;
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(address, inputPort)))
+        {
+            while (begins < acceptBegins)
+            {
+                doWork();
+            }
+        }
+
+        final int acceptEnds = ends + 1;
+        while (ends < acceptEnds)
+        {
+            doWork();
+        }
+    }
+
+    /**
+     * Connected out-bound stream through to WINDOW and END, covering {@code Connector}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = CONNECTIONS_PER_ITERATION)
+    @Measurement(iterations = 3, batchSize = CONNECTIONS_PER_ITERATION)
+    public void connect() throws Exception
+    {
+        final long streamId = ++nextStreamId;
+        final int connectWindows = windows + 1;
+        final int connectResets = resets;
+
+        doEgressBegin(streamId);
+
+        SocketChannel channel = null;
+        while (windows < connectWindows && resets == connectResets)
+        {
+            doWork();
+            if (channel == null)
+            {
+                channel = server.accept();
+            }
+        }
+
+        EndFW end = endRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        egressStreams.write(end.typeId(), end.buffer(), end.offset(), end.length());
+
+        while (doWork() != 0)
+        {
+            // drain until idle
+        }
+
+        CloseHelper.quietClose(channel);
+    }
+
+    /**
+     * Route and unroute, covering {@code Conductor} route handling.
+     */
+    @Benchmark
+    public void route() throws Exception
+    {
+        final long routeRef = await(controller.route(OUTPUT, NEW, "route", 0L, "127.0.0.1", serverAddress.getPort(), null));
+        await(controller.unroute(OUTPUT, NEW, "route", routeRef, "127.0.0.1", serverAddress.getPort(), null));
+    }
+
+    private int doWork()
+    {
+        return nukleus.process() +
+               controller.process() +
+               ingress.readStreams(ingressHandler) +
+               replies.readStreams(repliesHandler) +
+               egressThrottle.read(egressThrottleHandler);
+    }
+
+    private void doSink() throws Exception
+    {
+        receiveBuffer.clear();
+        accepted.read(receiveBuffer);
+    }
+
+    private <T> T await(
+        CompletableFuture<T> promise) throws Exception
+    {
+        while (!promise.isDone())
+        {
+            nukleus.process();
+            controller.process();
+        }
+        return promise.get();
+    }
+
+    private void doEgressBegin(
+        long streamId)
+    {
+        BeginFW begin = beginRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .referenceId(sourceRef)
+                .correlationId(streamId)
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        egressStreams.write(begin.typeId(), begin.buffer(), begin.offset(), begin.length());
+    }
+
+    private void doIngressWindow(
+        long streamId,
+        int update)
+    {
+        WindowFW window = windowRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .update(update)
+                .build();
+
+        ingress.writeThrottle(window.typeId(), window.buffer(), window.offset(), window.length());
+    }
+
+    private void handleIngress(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            beginRO.wrap(buffer, index, index + length);
+            if (ingressStreamId == 0L)
+            {
+                ingressStreamId = beginRO.streamId();
+            }
+            doIngressWindow(beginRO.streamId(), 64 * 1024);
+            begins++;
+            break;
+        case DataFW.TYPE_ID:
+            dataRO.wrap(buffer, index, index + length);
+            doIngressWindow(dataRO.streamId(), dataRO.payload().length());
+            datas++;
+            break;
+        case EndFW.TYPE_ID:
+            endRO.wrap(buffer, index, index + length);
+            ends++;
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void handleEgressThrottle(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            windowRO.wrap(buffer, index, index + length);
+            if (windowRO.streamId() == egressStreamId)
+            {
+                egressWindow += windowRO.update();
+            }
+            windows++;
+            break;
+        case ResetFW.TYPE_ID:
+            resets++;
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void handleReplies(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        if (msgTypeId == BeginFW.TYPE_ID)
+        {
+            beginRO.wrap(buffer, index, index + length);
+
+            // allow reader to observe end-of-stream when the peer closes
+            WindowFW window = windowRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                    .streamId(beginRO.streamId())
+                    .update(1)
+                    .build();
+
+            replies.writeThrottle(window.typeId(), window.buffer(), window.offset(), window.length());
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Options opt = new OptionsBuilder()
+                .include(TcpAllocationBM.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        Collection<RunResult> results = new Runner(opt).run();
+
+        Properties budgets = new Properties();
+        try (InputStream input = TcpAllocationBM.class.getResourceAsStream(BUDGETS_RESOURCE))
+        {
+            budgets.load(input);
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (RunResult result : results)
+        {
+            final String benchmark = result.getParams().getBenchmark();
+            final String operation = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            final double allocated = allocated(result.getParams(), result.getAggregatedResult());
+            final String budgeted = budgets.getProperty(operation);
+
+            if (budgeted == null)
+            {
+                regressions.add(String.format("%s allocated %.1f B/op, without a budget", operation, allocated));
+                continue;
+            }
+
+            final double budget = Double.parseDouble(budgeted);
+
+            System.out.format("%-16s %10.1f B/op (budget %10.1f B/op)%n", operation, allocated, budget);
+
+            if (allocated > budget)
+            {
+                regressions.add(String.format("%s allocated %.1f B/op, over budget of %.1f B/op",
+                        operation, allocated, budget));
+            }
+        }
+
+        if (!regressions.isEmpty())
+        {
+            throw new IllegalStateException("Allocation regression: " + regressions);
+        }
+    }
+
+    private static double allocated(
+        BenchmarkParams params,
+        BenchmarkResult result)
+    {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet())
+        {
+            // label is prefixed by a profiler marker
+            if (entry.getKey().endsWith(ALLOCATION_LABEL))
+            {
+                final double allocated = entry.getValue().getScore();
+
+                // single shot is normalized per iteration, not per operation in the batch
+                return params.getMode() == Mode.SingleShotTime
+                        ? allocated / params.getMeasurement().getBatchSize()
+                        : allocated;
+            }
+        }
+        throw new IllegalStateException("Missing " + ALLOCATION_LABEL + ", is GCProfiler supported on this JVM?");
+    }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.bench;
+
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.Configuration.STREAMS_BUFFER_CAPACITY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.TcpConfiguration.WRITE_WINDOW_SIZE_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+
+import org.agrona.CloseHelper;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.TcpConfiguration;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+import org.reaktivity.reaktor.internal.Reaktor;
+
+/**
+ * Drives BEGIN and DATA frames into the {@code tcp/streams/source} ring for an OUTPUT_NEW route,
+ * through {@code writer.Source}, {@code Connector} and {@code writer.stream.StreamFactory} to a local sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@OutputTimeUnit(SECONDS)
+public class TcpClientBM
+{
+    @Param({ "64", "1024", "8192" })
+    private int payloadSize;
+
+    @Param({ "8192", "65536" })
+    private int windowSize;
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final DataFW.Builder dataRW = new DataFW.Builder();
+    private final WindowFW windowRO = new WindowFW();
+
+    private final MessageHandler throttleHandler = this::handleThrottle;
+
+    private Configuration configuration;
+    private Reaktor reaktor;
+    private ServerSocketChannel server;
+    private Thread sink;
+    private StreamsLayout source;
+    private RingBuffer streams;
+    private RingBuffer throttle;
+    private AtomicBuffer frameBuffer;
+    private AtomicBuffer payload;
+
+    private long streamId;
+    private int window;
+    private boolean reset;
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Counters
+    {
+        public long frames;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            frames = 0L;
+            bytes = 0L;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void reinit() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-benchmarks");
+        properties.setProperty(STREAMS_BUFFER_CAPACITY_PROPERTY_NAME, Long.toString(1024L * 1024L * 16L));
+        properties.setProperty(WRITE_WINDOW_SIZE_PROPERTY_NAME, Integer.toString(windowSize));
+
+        this.configuration = new TcpConfiguration(properties);
+        this.reaktor = Reaktor.launch(configuration, n -> "tcp".equals(n), TcpController.class::isAssignableFrom);
+
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress("127.0.0.1", 0));
+        this.sink = new Thread(this::sink, "sink");
+        this.sink.setDaemon(true);
+        this.sink.start();
+
+        final int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+
+        TcpController controller = reaktor.controller(TcpController.class);
+        final long sourceRef = controller.route(OUTPUT, NEW, "source", 0L, "127.0.0.1", port, null).get();
+
+        this.source = new StreamsLayout.Builder()
+                .path(configuration.directory().resolve("tcp/streams/source"))
+                .streamsCapacity(configuration.streamsBufferCapacity())
+                .throttleCapacity(configuration.throttleBufferCapacity())
+                .readonly(false)
+                .build();
+        this.streams = source.streamsBuffer();
+        this.throttle = source.throttleBuffer();
+
+        this.frameBuffer = new UnsafeBuffer(allocateDirect(payloadSize + 1024));
+        this.payload = new UnsafeBuffer(allocateDirect(payloadSize));
+
+        this.streamId = 1L;
+        this.window = 0;
+
+        BeginFW begin = beginRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .referenceId(sourceRef)
+                .correlationId(System.nanoTime())
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        while (!streams.write(begin.typeId(), begin.buffer(), begin.offset(), begin.length()))
+        {
+            Thread.yield();
+        }
+
+        // initial window offered once connected
+        while (window == 0 && !reset)
+        {
+            throttle.read(throttleHandler);
+            Thread.yield();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reset() throws Exception
+    {
+        CloseHelper.quietClose(source);
+        CloseHelper.quietClose(server);
+        sink.join(SECONDS.toMillis(1L));
+        reaktor.close();
+        System.clearProperty(WRITE_WINDOW_SIZE_PROPERTY_NAME);
+    }
+
+    @Benchmark
+    public void data(
+        Counters counters) throws Exception
+    {
+        DataFW data = dataRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .payload(p -> p.set(payload, 0, payloadSize))
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        // mirror window accounting in writer.stream.StreamFactory
+        final int writableBytes = Math.max(data.payload().length() - 1, 0);
+
+        while (window < writableBytes)
+        {
+            if (throttle.read(throttleHandler) == 0)
+            {
+                Thread.yield();
+            }
+
+            if (reset)
+            {
+                throw new IllegalStateException("stream reset");
+            }
+        }
+
+        while (!streams.write(data.typeId(), data.buffer(), data.offset(), data.length()))
+        {
+            Thread.yield();
+        }
+
+        window -= writableBytes;
+        counters.frames++;
+        counters.bytes += writableBytes;
+    }
+
+    private void handleThrottle(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            windowRO.wrap(buffer, index, index + length);
+            window += windowRO.update();
+            break;
+        case ResetFW.TYPE_ID:
+            reset = true;
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void sink()
+    {
+        final ByteBuffer buffer = allocateDirect(64 * 1024);
+
+        try (SocketChannel channel = server.accept())
+        {
+            while (channel.read(buffer) != -1)
+            {
+                buffer.clear();
+            }
+        }
+        catch (IOException ex)
+        {
+            // server closed
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(TcpClientBM.class.getSimpleName())
+                .forks(0)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.bench;
+
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.Configuration.STREAMS_BUFFER_CAPACITY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.agrona.CloseHelper;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpStreams;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+import org.reaktivity.reaktor.internal.Reaktor;
+
+/**
+ * Opens and closes short-lived out-bound connections through {@code writer.Source} and {@code Connector},
+ * keeping a number of connects in flight. A connect completes when the writer offers its initial WINDOW.
+ */
+@State(Scope.Benchmark)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@Threads(1)
+public class TcpConnectBM
+{
+    @Param({ "1", "100" })
+    private int routes;
+
+    @Param({ "1", "16" })
+    private int concurrency;
+
+    private final BeginFW beginRO = new BeginFW();
+    private final WindowFW windowRO = new WindowFW();
+    private final ResetFW resetRO = new ResetFW();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final EndFW.Builder endRW = new EndFW.Builder();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final MessageHandler throttleHandler = this::handleThrottle;
+    private final MessageHandler replyHandler = this::handleReply;
+
+    private final Set<Long> pending = new HashSet<>();
+    private final Deque<Long> completed = new ArrayDeque<>();
+
+    private Reaktor reaktor;
+    private ServerSocketChannel server;
+    private Thread sink;
+    private StreamsLayout source;
+    private RingBuffer streams;
+    private RingBuffer throttle;
+    private TcpStreams replies;
+    private AtomicBuffer frameBuffer;
+
+    private long sourceRef;
+    private long streamId;
+    private int inflight;
+    private int resets;
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Failures
+    {
+        public long resets;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            resets = 0L;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void reinit() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-benchmarks");
+        properties.setProperty(STREAMS_BUFFER_CAPACITY_PROPERTY_NAME, Long.toString(1024L * 1024L * 16L));
+
+        Configuration configuration = new Configuration(properties);
+        this.reaktor = Reaktor.launch(configuration, n -> "tcp".equals(n), TcpController.class::isAssignableFrom);
+
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.sink = new Thread(this::sink, "sink");
+        this.sink.setDaemon(true);
+        this.sink.start();
+
+        final int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+
+        // additional routes share the out-bound reference, exercising backend selection
+        TcpController controller = reaktor.controller(TcpController.class);
+        this.sourceRef = controller.route(OUTPUT, NEW, "source", 0L, "127.0.0.1", port, null).get();
+        for (int i = 1; i < routes; i++)
+        {
+            controller.route(OUTPUT, NEW, "source", sourceRef, "127.0.0.1", port, null).get();
+        }
+
+        this.source = new StreamsLayout.Builder()
+                .path(configuration.directory().resolve("tcp/streams/source"))
+                .streamsCapacity(configuration.streamsBufferCapacity())
+                .throttleCapacity(configuration.throttleBufferCapacity())
+                .readonly(false)
+                .build();
+        this.streams = source.streamsBuffer();
+        this.throttle = source.throttleBuffer();
+        this.replies = controller.streams("any", "source");
+        this.frameBuffer = new UnsafeBuffer(allocateDirect(1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void reset() throws Exception
+    {
+        CloseHelper.quietClose(server);
+        replies.close();
+        source.close();
+        reaktor.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(SECONDS)
+    public void connect(
+        Failures failures) throws Exception
+    {
+        connectAndClose(failures);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(MICROSECONDS)
+    public void connectLatency(
+        Failures failures) throws Exception
+    {
+        connectAndClose(failures);
+    }
+
+    private void connectAndClose(
+        Failures failures)
+    {
+        while (inflight < concurrency)
+        {
+            doBegin(++streamId);
+            pending.add(streamId);
+            inflight++;
+        }
+
+        while (completed.isEmpty())
+        {
+            if (throttle.read(throttleHandler) + replies.readStreams(replyHandler) == 0)
+            {
+                Thread.yield();
+            }
+        }
+
+        doEnd(completed.removeFirst());
+        inflight--;
+
+        failures.resets += resets;
+        resets = 0;
+    }
+
+    private void doBegin(
+        long streamId)
+    {
+        BeginFW begin = beginRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .referenceId(sourceRef)
+                .correlationId(streamId)
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        while (!streams.write(begin.typeId(), begin.buffer(), begin.offset(), begin.length()))
+        {
+            Thread.yield();
+        }
+    }
+
+    private void doEnd(
+        long streamId)
+    {
+        EndFW end = endRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        while (!streams.write(end.typeId(), end.buffer(), end.offset(), end.length()))
+        {
+            Thread.yield();
+        }
+    }
+
+    private void handleThrottle(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            windowRO.wrap(buffer, index, index + length);
+            onCompleted(windowRO.streamId());
+            break;
+        case ResetFW.TYPE_ID:
+            resetRO.wrap(buffer, index, index + length);
+            if (pending.contains(resetRO.streamId()))
+            {
+                resets++;
+            }
+            onCompleted(resetRO.streamId());
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void onCompleted(
+        long streamId)
+    {
+        if (pending.remove(streamId))
+        {
+            completed.addLast(streamId);
+        }
+    }
+
+    private void handleReply(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        if (msgTypeId == BeginFW.TYPE_ID)
+        {
+            beginRO.wrap(buffer, index, index + length);
+
+            // allow reader to observe end-of-stream when the sink closes
+            WindowFW window = windowRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                    .streamId(beginRO.streamId())
+                    .update(1)
+                    .build();
+
+            replies.writeThrottle(window.typeId(), window.buffer(), window.offset(), window.length());
+        }
+    }
+
+    private void sink()
+    {
+        while (server.isOpen())
+        {
+            try
+            {
+                SocketChannel channel = server.accept();
+                channel.close();
+            }
+            catch (IOException ex)
+            {
+                // server closed
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(TcpConnectBM.class.getSimpleName())
+                .forks(0)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
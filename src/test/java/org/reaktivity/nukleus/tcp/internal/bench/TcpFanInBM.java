@@ -0,0 +1,378 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.bench;
+
+import static java.net.InetAddress.getByName;
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.Configuration.STREAMS_BUFFER_CAPACITY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.agrona.CloseHelper;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.Nukleus;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpControllerFactorySpi;
+import org.reaktivity.nukleus.tcp.internal.TcpNukleusFactorySpi;
+import org.reaktivity.nukleus.tcp.internal.TcpStreams;
+import org.reaktivity.nukleus.tcp.internal.types.OctetsFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+
+/**
+ * Keeps many concurrent loopback connections open, each sending small messages round-robin at a controlled
+ * aggregate rate, and reports aggregate throughput, per-connection fairness and memory footprint.
+ * <p>
+ * Client connections are spread across several local addresses to avoid exhausting the ephemeral port range.
+ * <p>
+ * The nukleus is driven by the {@code dutyCycle} group thread, so its throughput is the duty cycle rate, while
+ * the {@code busyCycles} and {@code busyNanos} counters give the mean time of duty cycles that performed work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Warmup(iterations = 3, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@OutputTimeUnit(SECONDS)
+public class TcpFanInBM
+{
+    private static final int CONNECTIONS_PER_LOCAL_ADDRESS = 20000;
+
+    @Param({ "1000", "10000", "100000" })
+    private int connections;
+
+    @Param({ "0" })
+    private long messagesPerSecond;
+
+    @Param({ "16" })
+    private int messageSize;
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final Random random = new Random();
+    private final long targetRef = random.nextLong();
+
+    private Nukleus nukleus;
+    private TcpController controller;
+    private TcpStreams streams;
+    private AtomicBuffer throttleBuffer;
+    private SocketChannel[] clients;
+    private ByteBuffer sendBuffer;
+    private Long2LongHashMap connectionsByStreamId;
+    private long[] bytesByConnection;
+    private int nextConnection;
+    private long sendIntervalNanos;
+    private long nextSendAt;
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Counters
+    {
+        public long messages;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            messages = 0L;
+            bytes = 0L;
+        }
+    }
+
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class DutyCycles
+    {
+        public long busyCycles;
+        public long busyNanos;
+
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            busyCycles = 0L;
+            busyNanos = 0L;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void reinit() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-benchmarks");
+        properties.setProperty(STREAMS_BUFFER_CAPACITY_PROPERTY_NAME, Long.toString(1024L * 1024L * 64L));
+
+        Configuration configuration = new Configuration(properties);
+        this.nukleus = new TcpNukleusFactorySpi().create(configuration);
+        this.controller = new TcpControllerFactorySpi().create(TcpController.class, configuration);
+
+        await(controller.route(INPUT, NEW, "any", 8080, "target", targetRef, getByName("127.0.0.1")));
+
+        this.streams = controller.streams("any", "target");
+        this.throttleBuffer = new UnsafeBuffer(allocateDirect(1024));
+        this.connectionsByStreamId = new Long2LongHashMap(-1L);
+        this.bytesByConnection = new long[connections];
+        this.sendBuffer = allocateDirect(messageSize);
+        this.sendIntervalNanos = messagesPerSecond != 0L ? SECONDS.toNanos(1L) / messagesPerSecond : 0L;
+
+        final InetSocketAddress remoteAddress = new InetSocketAddress("127.0.0.1", 8080);
+        this.clients = new SocketChannel[connections];
+        for (int i = 0; i < connections; i++)
+        {
+            final int localIndex = i / CONNECTIONS_PER_LOCAL_ADDRESS;
+            final SocketChannel client = SocketChannel.open();
+            client.bind(new InetSocketAddress(String.format("127.0.%d.%d", 1 + (localIndex >> 8), localIndex & 0xff), 0));
+            client.configureBlocking(false);
+            client.connect(remoteAddress);
+            clients[i] = client;
+
+            // accept as we go, so the listen backlog does not overflow
+            nukleus.process();
+            streams.readStreams(this::handleRead);
+        }
+
+        // establish streams before measuring
+        int connected = 0;
+        while (connected < connections || connectionsByStreamId.size() < connections)
+        {
+            nukleus.process();
+            streams.readStreams(this::handleRead);
+
+            while (connected < connections && clients[connected].finishConnect())
+            {
+                connected++;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reset() throws Exception
+    {
+        for (SocketChannel client : clients)
+        {
+            CloseHelper.quietClose(client);
+        }
+
+        this.streams.close();
+        this.streams = null;
+
+        await(controller.unroute(INPUT, NEW, "any", 8080, "target", targetRef, getByName("127.0.0.1")));
+
+        CloseHelper.quietClose(controller);
+        CloseHelper.quietClose(nukleus);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetFairness()
+    {
+        Arrays.fill(bytesByConnection, 0L);
+        nextSendAt = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportFairnessAndFootprint()
+    {
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        for (long bytes : bytesByConnection)
+        {
+            sum += bytes;
+            sumOfSquares += (double) bytes * bytes;
+        }
+
+        // Jain's fairness index, 1.0 when all connections receive equal throughput
+        final double fairness = sumOfSquares != 0.0 ? (sum * sum) / (connections * sumOfSquares) : 0.0;
+
+        final long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long directUsed = 0L;
+        long mappedUsed = 0L;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+        {
+            if ("direct".equals(pool.getName()))
+            {
+                directUsed = pool.getMemoryUsed();
+            }
+            else if ("mapped".equals(pool.getName()))
+            {
+                mappedUsed = pool.getMemoryUsed();
+            }
+        }
+
+        System.out.format("%nconnections=%d fairness=%.4f heap=%dKiB direct=%dKiB mapped=%dKiB%n",
+                connections, fairness, heapUsed >> 10, directUsed >> 10, mappedUsed >> 10);
+    }
+
+    @Benchmark
+    @Group("fanin")
+    @GroupThreads(1)
+    public void dutyCycle(
+        final DutyCycles cycles) throws Exception
+    {
+        final long startAt = System.nanoTime();
+        final int work = nukleus.process();
+
+        if (work != 0)
+        {
+            cycles.busyNanos += System.nanoTime() - startAt;
+            cycles.busyCycles++;
+        }
+    }
+
+    @Benchmark
+    @Group("fanin")
+    @GroupThreads(1)
+    public void writer(
+        final Control control) throws Exception
+    {
+        if (sendIntervalNanos != 0L)
+        {
+            while (System.nanoTime() - nextSendAt < 0L && !control.stopMeasurement)
+            {
+                Thread.yield();
+            }
+            nextSendAt += sendIntervalNanos;
+        }
+
+        final SocketChannel client = clients[nextConnection];
+        nextConnection = (nextConnection + 1) % connections;
+
+        sendBuffer.clear();
+        client.write(sendBuffer);
+    }
+
+    @Benchmark
+    @Group("fanin")
+    @GroupThreads(1)
+    public void reader(
+        final Control control,
+        final Counters counters) throws Exception
+    {
+        final MessageHandler handler = (t, b, i, l) -> counters.bytes += handleRead(t, b, i, l);
+        int messages;
+        while ((messages = streams.readStreams(handler)) == 0 && !control.stopMeasurement)
+        {
+            Thread.yield();
+        }
+        counters.messages += messages;
+    }
+
+    private <T> T await(
+        CompletableFuture<T> promise) throws Exception
+    {
+        while (!promise.isDone())
+        {
+            nukleus.process();
+        }
+        return promise.get();
+    }
+
+    private int handleRead(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        int bytes = 0;
+
+        if (msgTypeId == BeginFW.TYPE_ID)
+        {
+            beginRO.wrap(buffer, index, index + length);
+            final long streamId = beginRO.streamId();
+            connectionsByStreamId.put(streamId, connectionsByStreamId.size());
+            doWindow(streamId, messageSize * 16);
+        }
+        else if (msgTypeId == DataFW.TYPE_ID)
+        {
+            dataRO.wrap(buffer, index, index + length);
+            final long streamId = dataRO.streamId();
+            final OctetsFW payload = dataRO.payload();
+
+            bytes = payload.length();
+
+            final long connection = connectionsByStreamId.get(streamId);
+            if (connection != -1L)
+            {
+                bytesByConnection[(int) connection] += bytes;
+            }
+
+            doWindow(streamId, bytes);
+        }
+
+        return bytes;
+    }
+
+    private void doWindow(
+        final long streamId,
+        final int update)
+    {
+        final WindowFW window = windowRW.wrap(throttleBuffer, 0, throttleBuffer.capacity())
+                .streamId(streamId)
+                .update(update)
+                .build();
+
+        streams.writeThrottle(window.typeId(), window.buffer(), window.offset(), window.length());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(TcpFanInBM.class.getSimpleName())
+                .forks(0)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
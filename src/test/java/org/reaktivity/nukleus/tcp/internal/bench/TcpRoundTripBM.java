@@ -0,0 +1,313 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.bench;
+
+import static java.net.InetAddress.getByName;
+import static java.net.StandardSocketOptions.TCP_NODELAY;
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.Configuration.STREAMS_BUFFER_CAPACITY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.TcpConfiguration.MODE_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+import java.util.Random;
+
+import org.agrona.CloseHelper;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.TcpConfiguration;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpStreams;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.types.OctetsFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+import org.reaktivity.reaktor.internal.Reaktor;
+
+/**
+ * Measures round-trip latency from client socket, through the in-bound streams ring to an echo application,
+ * and back through the writer to the client socket. {@code Mode.SampleTime} reports the latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@Fork(3)
+@Warmup(iterations = 5, time = 1, timeUnit = SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
+@OutputTimeUnit(MICROSECONDS)
+public class TcpRoundTripBM
+{
+    private static final int INGRESS_WINDOW = 64 * 1024;
+
+    @Param({ "64", "1024", "8192" })
+    private int payloadSize;
+
+    @Param({ "busy-spin", "backoff" })
+    private String idleStrategy;
+
+    @Param({ "default", "latency" })
+    private String mode;
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final WindowFW windowRO = new WindowFW();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final DataFW.Builder dataRW = new DataFW.Builder();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final MessageHandler streamsHandler = this::handleStreams;
+    private final MessageHandler throttleHandler = this::handleThrottle;
+
+    private final Random random = new Random();
+    private final long targetRef = random.nextLong();
+
+    private Reaktor reaktor;
+    private TcpStreams ingress;
+    private StreamsLayout egress;
+    private RingBuffer egressStreams;
+    private RingBuffer egressThrottle;
+    private AtomicBuffer frameBuffer;
+    private AtomicBuffer throttleBuffer;
+    private IdleStrategy idler;
+
+    private SocketChannel client;
+    private ByteBuffer sendBuffer;
+    private ByteBuffer receiveBuffer;
+
+    private long replyId;
+    private int replyWindow;
+    private long ingressBytes;
+    private long echoedBytes;
+
+    @Setup(Level.Trial)
+    public void reinit() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, "target/nukleus-benchmarks");
+        properties.setProperty(STREAMS_BUFFER_CAPACITY_PROPERTY_NAME, Long.toString(1024L * 1024L * 16L));
+        properties.setProperty(MODE_PROPERTY_NAME, mode);
+
+        Configuration configuration = new TcpConfiguration(properties);
+        this.reaktor = Reaktor.launch(configuration, n -> "tcp".equals(n), TcpController.class::isAssignableFrom);
+
+        this.egress = new StreamsLayout.Builder()
+                .path(configuration.directory().resolve("tcp/streams/echo"))
+                .streamsCapacity(configuration.streamsBufferCapacity())
+                .throttleCapacity(configuration.throttleBufferCapacity())
+                .readonly(false)
+                .build();
+        this.egressStreams = egress.streamsBuffer();
+        this.egressThrottle = egress.throttleBuffer();
+
+        TcpController controller = reaktor.controller(TcpController.class);
+        controller.route(INPUT, NEW, "any", 8080, "echo", targetRef, getByName("127.0.0.1")).get();
+
+        this.ingress = controller.streams("any", "echo");
+        this.frameBuffer = new UnsafeBuffer(allocateDirect(payloadSize + 1024));
+        this.throttleBuffer = new UnsafeBuffer(allocateDirect(1024));
+        this.idler = "busy-spin".equals(idleStrategy) ? new BusySpinIdleStrategy() :
+                new BackoffIdleStrategy(64L, 64L, MICROSECONDS.toNanos(1L), MICROSECONDS.toNanos(100L));
+
+        byte[] payload = new byte[payloadSize];
+        random.nextBytes(payload);
+        this.sendBuffer = allocateDirect(payloadSize).put(payload);
+        this.receiveBuffer = allocateDirect(payloadSize);
+
+        this.client = SocketChannel.open(new InetSocketAddress("127.0.0.1", 8080));
+        this.client.configureBlocking(false);
+        this.client.setOption(TCP_NODELAY, true);
+
+        // echo stream established once reply window offered
+        while (replyWindow == 0)
+        {
+            idler.idle(echo());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void reset() throws Exception
+    {
+        CloseHelper.quietClose(client);
+        ingress.close();
+        egress.close();
+
+        TcpController controller = reaktor.controller(TcpController.class);
+        controller.unroute(INPUT, NEW, "any", 8080, "echo", targetRef, getByName("127.0.0.1")).get();
+
+        reaktor.close();
+    }
+
+    @Benchmark
+    public void roundTrip() throws Exception
+    {
+        final long ingressLimit = ingressBytes + payloadSize;
+
+        sendBuffer.clear();
+        while (sendBuffer.hasRemaining())
+        {
+            client.write(sendBuffer);
+        }
+
+        // complete when echo consumed the request and client received all echoed bytes
+        long receivedBytes = echoedBytes;
+        while (ingressBytes < ingressLimit || receivedBytes < echoedBytes)
+        {
+            receiveBuffer.clear();
+            final int bytesRead = Math.max(client.read(receiveBuffer), 0);
+            receivedBytes += bytesRead;
+
+            idler.idle(echo() + bytesRead);
+        }
+    }
+
+    private int echo()
+    {
+        return ingress.readStreams(streamsHandler) + egressThrottle.read(throttleHandler);
+    }
+
+    private void handleStreams(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            beginRO.wrap(buffer, index, index + length);
+            doWindow(beginRO.streamId(), INGRESS_WINDOW);
+            doReplyBegin(beginRO.correlationId());
+            break;
+        case DataFW.TYPE_ID:
+            dataRO.wrap(buffer, index, index + length);
+            doReplyData(dataRO.payload());
+            doWindow(dataRO.streamId(), dataRO.payload().length());
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void handleThrottle(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        if (msgTypeId == WindowFW.TYPE_ID)
+        {
+            windowRO.wrap(buffer, index, index + length);
+            replyWindow += windowRO.update();
+        }
+    }
+
+    private void doReplyBegin(
+        long correlationId)
+    {
+        replyId = random.nextLong();
+
+        // reference 0 replies on the accepted channel resolved by correlation
+        BeginFW begin = beginRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(replyId)
+                .referenceId(0L)
+                .correlationId(correlationId)
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        egressStreams.write(begin.typeId(), begin.buffer(), begin.offset(), begin.length());
+    }
+
+    private void doReplyData(
+        OctetsFW payload)
+    {
+        DataFW data = dataRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(replyId)
+                .payload(p -> p.set(payload.buffer(), payload.offset(), payload.length()))
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        // mirror window accounting in writer.stream.StreamFactory
+        final int writableBytes = Math.max(data.payload().length() - 1, 0);
+
+        while (replyWindow < writableBytes)
+        {
+            idler.idle(egressThrottle.read(throttleHandler));
+        }
+
+        while (!egressStreams.write(data.typeId(), data.buffer(), data.offset(), data.length()))
+        {
+            idler.idle();
+        }
+
+        replyWindow -= writableBytes;
+        ingressBytes += payload.length();
+        echoedBytes += writableBytes;
+    }
+
+    private void doWindow(
+        final long streamId,
+        final int update)
+    {
+        final WindowFW window = windowRW.wrap(throttleBuffer, 0, throttleBuffer.capacity())
+                .streamId(streamId)
+                .update(update)
+                .build();
+
+        ingress.writeThrottle(window.typeId(), window.buffer(), window.offset(), window.length());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+                .include(TcpRoundTripBM.class.getSimpleName())
+                .forks(0)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.conductor;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ControlExecutorTest
+{
+    @Test
+    public void shouldApplyInlineWithoutControlThread() throws Exception
+    {
+        final List<String> applied = new ArrayList<>();
+
+        try (ControlExecutor control = new ControlExecutor(false))
+        {
+            control.execute(() -> "prepared", applied::add);
+
+            assertEquals(asList("prepared"), applied);
+            assertEquals(0, control.process());
+        }
+    }
+
+    @Test
+    public void shouldApplyOnCallingThreadInCommandOrder() throws Exception
+    {
+        final List<Integer> applied = new ArrayList<>();
+        final Thread caller = Thread.currentThread();
+
+        try (ControlExecutor control = new ControlExecutor(true))
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                final int command = i;
+                control.execute(() -> command, c ->
+                {
+                    assertEquals(caller, Thread.currentThread());
+                    applied.add(c);
+                });
+            }
+
+            while (applied.size() < 100)
+            {
+                if (control.process() == 0)
+                {
+                    Thread.yield();
+                }
+            }
+        }
+
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals(i, applied.get(i).intValue());
+        }
+    }
+}
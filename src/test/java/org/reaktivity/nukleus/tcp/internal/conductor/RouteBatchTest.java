@@ -0,0 +1,154 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.conductor;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.ESTABLISHED;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Test;
+
+public class RouteBatchTest
+{
+    private final UnsafeBuffer buffer = new UnsafeBuffer(new byte[1024]);
+
+    @Test
+    public void shouldEncodeAndDecodeEntries() throws Exception
+    {
+        final RouteBatch.Entry route = new RouteBatch.Entry(RouteBatch.KIND_ROUTE, INPUT, NEW, "any", 8080L,
+                "target", 1234L, InetAddress.getByName("127.0.0.1"));
+        final RouteBatch.Entry unroute = new RouteBatch.Entry(RouteBatch.KIND_UNROUTE, OUTPUT, ESTABLISHED, "source", 42L,
+                "any", 0L, null);
+
+        final int middle = RouteBatch.encode(buffer, 0, route);
+        final int limit = RouteBatch.encode(buffer, middle, unroute);
+
+        assertEquals(RouteBatch.encodedLength(route), middle);
+        assertEquals(middle + RouteBatch.encodedLength(unroute), limit);
+
+        final RouteBatch.Entry decodedRoute = RouteBatch.decode(buffer, 0);
+        assertEquals(RouteBatch.KIND_ROUTE, decodedRoute.kind());
+        assertEquals(INPUT, decodedRoute.role());
+        assertEquals(NEW, decodedRoute.state());
+        assertEquals("any", decodedRoute.source());
+        assertEquals(8080L, decodedRoute.sourceRef());
+        assertEquals("target", decodedRoute.target());
+        assertEquals(1234L, decodedRoute.targetRef());
+        assertEquals(InetAddress.getByName("127.0.0.1"), decodedRoute.address());
+
+        final RouteBatch.Entry decodedUnroute = RouteBatch.decode(buffer, middle);
+        assertEquals(RouteBatch.KIND_UNROUTE, decodedUnroute.kind());
+        assertEquals(OUTPUT, decodedUnroute.role());
+        assertEquals(ESTABLISHED, decodedUnroute.state());
+        assertEquals("source", decodedUnroute.source());
+        assertEquals(42L, decodedUnroute.sourceRef());
+        assertEquals("any", decodedUnroute.target());
+        assertNull(decodedUnroute.address());
+    }
+
+    @Test
+    public void shouldRollBackAppliedEntriesWhenEntryFails() throws Exception
+    {
+        final FakeRoutes routes = new FakeRoutes();
+        routes.routed.add(7L);
+
+        final List<RouteBatch.Entry> entries = asList(
+                new RouteBatch.Entry(RouteBatch.KIND_ROUTE, OUTPUT, NEW, "source", 0L, "host", 8080L, null),
+                new RouteBatch.Entry(RouteBatch.KIND_UNROUTE, OUTPUT, NEW, "source", 7L, "host", 8080L, null),
+                new RouteBatch.Entry(RouteBatch.KIND_ROUTE, OUTPUT, NEW, "failing", 0L, "host", 8080L, null));
+
+        final long[] sourceRefs = new long[entries.size()];
+        final int failedIndex = RouteBatch.apply(entries, routes, () -> routes.assigned, sourceRefs);
+
+        assertEquals(2, failedIndex);
+        assertEquals(100L, sourceRefs[0]);
+        assertTrue(routes.routed.contains(7L));
+        assertFalse(routes.routed.contains(100L));
+        assertEquals(1, routes.routed.size());
+    }
+
+    @Test
+    public void shouldRollBackAppliedEntriesBeforeRethrowing() throws Exception
+    {
+        final FakeRoutes routes = new FakeRoutes();
+        routes.routed.add(7L);
+
+        final List<RouteBatch.Entry> entries = asList(
+                new RouteBatch.Entry(RouteBatch.KIND_UNROUTE, INPUT, NEW, "any", 7L, "target", 0L, null),
+                new RouteBatch.Entry(RouteBatch.KIND_ROUTE, INPUT, NEW, "throwing", 0L, "target", 0L, null));
+
+        try
+        {
+            RouteBatch.apply(entries, routes, () -> routes.assigned, new long[entries.size()]);
+            fail("expected failure");
+        }
+        catch (IllegalStateException ex)
+        {
+            assertTrue(routes.routed.contains(7L));
+            assertEquals(1, routes.routed.size());
+        }
+    }
+
+    private static final class FakeRoutes implements RouteBatch.Applier
+    {
+        private final Set<Long> routed = new HashSet<>();
+
+        private long nextRef = 100L;
+        private long assigned;
+
+        @Override
+        public boolean apply(
+            int index,
+            RouteBatch.Entry entry,
+            long sourceRef,
+            boolean undo)
+        {
+            final boolean route = (entry.kind() == RouteBatch.KIND_ROUTE) != undo;
+
+            if ("failing".equals(entry.source()))
+            {
+                return false;
+            }
+
+            if ("throwing".equals(entry.source()))
+            {
+                throw new IllegalStateException("throwing");
+            }
+
+            if (route)
+            {
+                // like the router, a route without a source reference is assigned the next one
+                assigned = sourceRef != 0L ? sourceRef : nextRef++;
+                return routed.add(assigned);
+            }
+
+            return routed.remove(sourceRef);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.conductor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reaktivity.nukleus.tcp.internal.layouts.RoutesLayout;
+import org.reaktivity.nukleus.tcp.internal.types.control.Role;
+
+public class RouteJournalTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRestoreRoutesNotUnrouted() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("tcp/routes");
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            final RouteJournal journal = new RouteJournal(layout);
+            journal.append(route(INPUT, "any", 8080L), 0L);
+            journal.append(route(OUTPUT, "source", 42L), 42L);
+            journal.append(unroute(INPUT, "any", 8080L), 42L);
+        }
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            final RouteJournal journal = new RouteJournal(layout);
+            final List<RouteBatch.Entry> routes = journal.restore();
+
+            assertEquals(1, routes.size());
+            assertEquals(OUTPUT, routes.get(0).role());
+            assertEquals("source", routes.get(0).source());
+            assertEquals(42L, routes.get(0).sourceRef());
+            assertEquals(42L, journal.routesSourced());
+        }
+    }
+
+    @Test
+    public void shouldCompactWhenFull() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("tcp/routes");
+        final int length = Integer.BYTES + RouteBatch.encodedLength(route(INPUT, "any", 8080L));
+
+        try (RoutesLayout layout = newLayout(path, length * 2))
+        {
+            final RouteJournal journal = new RouteJournal(layout);
+            for (int i = 0; i < 16; i++)
+            {
+                journal.append(route(INPUT, "any", 8080L), 0L);
+                journal.append(unroute(INPUT, "any", 8080L), 0L);
+            }
+            journal.append(route(INPUT, "any", 8080L), 0L);
+
+            assertEquals(RoutesLayout.ROUTES_VERSION, layout.version());
+            assertEquals(1, journal.restore().size());
+        }
+    }
+
+    @Test
+    public void shouldRestoreNothingWhenOverflowed() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("tcp/routes");
+        final int length = Integer.BYTES + RouteBatch.encodedLength(route(INPUT, "any", 8080L));
+
+        try (RoutesLayout layout = newLayout(path, length))
+        {
+            final RouteJournal journal = new RouteJournal(layout);
+            journal.append(route(INPUT, "any", 8080L), 0L);
+            journal.append(route(INPUT, "any", 8081L), 0L);
+
+            assertTrue(journal.restore().isEmpty());
+            assertEquals(RoutesLayout.ROUTES_VERSION, layout.version());
+        }
+    }
+
+    @Test
+    public void shouldRestoreCurrentRegionWhenCompactionInterrupted() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("tcp/routes");
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            final RouteJournal journal = new RouteJournal(layout);
+            journal.append(route(INPUT, "any", 8080L), 0L);
+            journal.append(route(OUTPUT, "source", 42L), 42L);
+
+            // crash part way through writing the compacted routes to the other region
+            final int compacting = (layout.region() + 1) % RoutesLayout.REGION_COUNT;
+            final AtomicBuffer buffer = layout.entriesBuffer(compacting);
+            buffer.putInt(0, 4092);
+            buffer.putByte(Integer.BYTES + 1, (byte) 0x7f);
+            layout.position(compacting, 64L);
+        }
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            final List<RouteBatch.Entry> routes = new RouteJournal(layout).restore();
+
+            assertEquals(2, routes.size());
+            assertEquals(8080L, routes.get(0).sourceRef());
+            assertEquals(42L, routes.get(1).sourceRef());
+        }
+    }
+
+    @Test
+    public void shouldRestoreNothingWhenEntryTorn() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("tcp/routes");
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            final RouteJournal journal = new RouteJournal(layout);
+            journal.append(route(INPUT, "any", 8080L), 0L);
+
+            // unknown role
+            layout.entriesBuffer(layout.region()).putByte(Integer.BYTES + 1, (byte) 0x7f);
+        }
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            assertTrue(new RouteJournal(layout).restore().isEmpty());
+            assertEquals(RoutesLayout.ROUTES_VERSION, layout.version());
+        }
+    }
+
+    @Test
+    public void shouldRestoreNothingWhenEntryTruncated() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("tcp/routes");
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            final RouteJournal journal = new RouteJournal(layout);
+            journal.append(route(INPUT, "any", 8080L), 0L);
+            journal.append(route(OUTPUT, "source", 42L), 42L);
+
+            final int region = layout.region();
+            layout.position(region, layout.position(region) - 3L);
+        }
+
+        try (RoutesLayout layout = newLayout(path, 4096))
+        {
+            assertTrue(new RouteJournal(layout).restore().isEmpty());
+        }
+    }
+
+    private static RoutesLayout newLayout(
+        Path path,
+        int capacity)
+    {
+        return new RoutesLayout.Builder()
+                .path(path)
+                .capacity(capacity)
+                .readonly(false)
+                .build();
+    }
+
+    private static RouteBatch.Entry route(
+        Role role,
+        String source,
+        long sourceRef)
+    {
+        return new RouteBatch.Entry(RouteBatch.KIND_ROUTE, role, NEW, source, sourceRef, "target", 0L, null);
+    }
+
+    private static RouteBatch.Entry unroute(
+        Role role,
+        String source,
+        long sourceRef)
+    {
+        return new RouteBatch.Entry(RouteBatch.KIND_UNROUTE, role, NEW, source, sourceRef, "target", 0L, null);
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.connector;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.Context;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpControllerFactorySpi;
+import org.reaktivity.nukleus.tcp.internal.acceptor.Acceptor;
+import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.router.Router;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
+
+public class ConnectorTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Context context;
+    private Conductor conductor;
+    private Router router;
+    private Acceptor acceptor;
+    private Connector connector;
+    private TcpController controller;
+    private ServerSocketChannel server;
+
+    @Before
+    public void open() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, folder.getRoot().getAbsolutePath());
+        Configuration configuration = new Configuration(properties);
+
+        context = new Context();
+        context.conclude(configuration);
+
+        conductor = new Conductor(context);
+        router = new Router(context);
+        acceptor = new Acceptor(context);
+        connector = new Connector(context);
+
+        router.setConductor(conductor);
+        router.setAcceptor(acceptor);
+        router.setConnector(connector);
+        acceptor.setConductor(conductor);
+        acceptor.setRouter(router);
+        connector.setRouter(router);
+        conductor.setRouter(router);
+
+        controller = new TcpControllerFactorySpi().create(TcpController.class, configuration);
+
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.configureBlocking(false);
+    }
+
+    @After
+    public void close()
+    {
+        CloseHelper.quietClose(server);
+        CloseHelper.quietClose(controller);
+        CloseHelper.quietClose(connector);
+        CloseHelper.quietClose(acceptor);
+        CloseHelper.quietClose(router);
+        CloseHelper.quietClose(conductor);
+        CloseHelper.quietClose(context);
+    }
+
+    @Test
+    public void shouldHandOffConnectedChannelOnce() throws Exception
+    {
+        final InetSocketAddress address = (InetSocketAddress) server.getLocalAddress();
+        final long sourceRef = await(controller.route(OUTPUT, NEW, "source", 0L,
+                address.getAddress().getHostAddress(), address.getPort(), null));
+
+        final Path sourcePath = context.captureStreamsPath().apply("source");
+
+        try (StreamsLayout source = new StreamsLayout.Builder()
+                .path(sourcePath)
+                .streamsCapacity(context.streamsCapacity("source"))
+                .throttleCapacity(context.throttleCapacity("source"))
+                .readonly(false)
+                .build())
+        {
+            router.onReadable(sourcePath.getFileName());
+
+            final UnsafeBuffer writeBuffer = new UnsafeBuffer(new byte[256]);
+            final BeginFW begin = new BeginFW.Builder().wrap(writeBuffer, 0, writeBuffer.capacity())
+                    .streamId(1L)
+                    .referenceId(sourceRef)
+                    .correlationId(1L)
+                    .extension(b -> b.set((buf, off, len) -> 0))
+                    .build();
+            assertTrue(source.streamsBuffer().write(begin.typeId(), begin.buffer(), begin.offset(), begin.length()));
+
+            SocketChannel accepted = null;
+            final long deadline = System.nanoTime() + SECONDS.toNanos(10L);
+            while (accepted == null)
+            {
+                assertTrue(System.nanoTime() < deadline);
+                doWork();
+                accepted = server.accept();
+            }
+
+            assertNotNull(accepted);
+
+            final EndFW end = new EndFW.Builder().wrap(writeBuffer, 0, writeBuffer.capacity())
+                    .streamId(1L)
+                    .extension(b -> b.set((buf, off, len) -> 0))
+                    .build();
+            assertTrue(source.streamsBuffer().write(end.typeId(), end.buffer(), end.offset(), end.length()));
+            doWork();
+            accepted.close();
+
+            // hang up readies every interest op, so a stale connect key would hand off the channel again
+            for (int cycle = 0; cycle < 100; cycle++)
+            {
+                doWork();
+            }
+
+            assertEquals(1L, context.counters().streamsSourced().get());
+        }
+    }
+
+    private <T> T await(
+        CompletableFuture<T> promise) throws Exception
+    {
+        final long deadline = System.nanoTime() + SECONDS.toNanos(10L);
+        while (!promise.isDone())
+        {
+            assertTrue(System.nanoTime() < deadline);
+            doWork();
+        }
+        return promise.get();
+    }
+
+    private void doWork()
+    {
+        conductor.process();
+        router.process();
+        connector.process();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetSocketAddress;
+
+import org.junit.Test;
+
+public class LocalAddressPoolTest
+{
+    @Test
+    public void shouldNotCreatePoolWhenUnconfigured()
+    {
+        assertNull(LocalAddressPool.parse("", ""));
+    }
+
+    @Test
+    public void shouldSpreadAcrossAddressesThenPorts()
+    {
+        LocalAddressPool pool = LocalAddressPool.parse("127.0.0.1, 127.0.0.2", "40000-40001");
+
+        assertEquals(4, pool.size());
+        assertEquals(new InetSocketAddress("127.0.0.1", 40000), pool.next());
+        assertEquals(new InetSocketAddress("127.0.0.2", 40000), pool.next());
+        assertEquals(new InetSocketAddress("127.0.0.1", 40001), pool.next());
+        assertEquals(new InetSocketAddress("127.0.0.2", 40001), pool.next());
+        assertEquals(new InetSocketAddress("127.0.0.1", 40000), pool.next());
+    }
+
+    @Test
+    public void shouldUseEphemeralPortWhenOnlyAddressesConfigured()
+    {
+        LocalAddressPool pool = LocalAddressPool.parse("127.0.0.1", "");
+
+        assertEquals(1, pool.size());
+        assertEquals(new InetSocketAddress("127.0.0.1", 0), pool.next());
+    }
+
+    @Test
+    public void shouldUseWildcardAddressWhenOnlyPortsConfigured()
+    {
+        LocalAddressPool pool = LocalAddressPool.parse("", "40000-40009");
+
+        assertEquals(10, pool.size());
+        assertEquals(new InetSocketAddress(40000), pool.next());
+        assertEquals(new InetSocketAddress(40001), pool.next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidPortRange()
+    {
+        LocalAddressPool.parse("127.0.0.1", "40001-40000");
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.events;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.ACCEPT;
+import static org.reaktivity.nukleus.tcp.internal.events.EventType.RESET;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reaktivity.nukleus.tcp.internal.layouts.EventsLayout;
+import org.reaktivity.nukleus.tcp.internal.tools.EventsDump;
+
+public class EventLogTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldOverwriteOldestEventsOnWrap() throws Exception
+    {
+        final Path path = folder.getRoot().toPath().resolve("events");
+        final int entries = 4;
+
+        try (EventsLayout layout = new EventsLayout.Builder()
+                .path(path)
+                .capacity(entries * EventLog.ENTRY_LENGTH)
+                .readonly(false)
+                .build())
+        {
+            EventLog events = new EventLog(layout);
+            for (int i = 1; i <= 6; i++)
+            {
+                events.record(i < 6 ? ACCEPT : RESET, i, 8080L);
+            }
+        }
+
+        // oldest slot may be mid-write by a live nukleus once wrapped, so it is skipped
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(entries - 1, EventsDump.dump(path, new PrintStream(out, true, UTF_8.name())));
+
+        String[] lines = new String(out.toByteArray(), UTF_8).split("\n");
+        assertEquals(entries - 1, lines.length);
+        assertTrue(lines[0].contains("ACCEPT") && lines[0].contains("stream=4"));
+        assertTrue(lines[2].contains("RESET") && lines[2].contains("stream=6"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectCapacityNotPowerOfTwo() throws Exception
+    {
+        new EventsLayout.Builder()
+                .path(folder.getRoot().toPath().resolve("events"))
+                .capacity(1000000)
+                .readonly(false)
+                .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectCapacityBelowOneEntry() throws Exception
+    {
+        try (EventsLayout layout = new EventsLayout.Builder()
+                .path(folder.getRoot().toPath().resolve("events"))
+                .capacity(EventLog.ENTRY_LENGTH / 2)
+                .readonly(false)
+                .build())
+        {
+            new EventLog(layout);
+        }
+    }
+}
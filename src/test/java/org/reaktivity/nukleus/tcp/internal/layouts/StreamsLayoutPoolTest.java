@@ -0,0 +1,73 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.layouts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamsLayoutPoolTest
+{
+    private static final int CAPACITY = 4096;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReuseReleasedLayout() throws Exception
+    {
+        final Path directory = folder.getRoot().toPath();
+        final Path first = directory.resolve("target/streams/tcp#first");
+        final Path second = directory.resolve("target/streams/tcp#second");
+
+        try (StreamsLayoutPool pool = new StreamsLayoutPool(directory.resolve("tcp/pool"), 1, true))
+        {
+            final StreamsLayout layout = pool.acquire(first, CAPACITY, CAPACITY, false);
+            assertTrue(layout.streamsBuffer().write(1, new UnsafeBuffer(new byte[8]), 0, 8));
+
+            assertEquals(0L, pool.release(first, layout, CAPACITY, CAPACITY));
+            assertFalse(Files.exists(first));
+
+            final StreamsLayout reused = pool.acquire(second, CAPACITY, CAPACITY, false);
+            assertSame(layout, reused);
+            assertTrue(Files.exists(second));
+            assertEquals(0, reused.streamsBuffer().read((t, b, i, l) -> { }));
+        }
+    }
+
+    @Test
+    public void shouldUnmapReleasedLayoutWhenPoolFull() throws Exception
+    {
+        final Path directory = folder.getRoot().toPath();
+        final Path path = directory.resolve("target/streams/tcp#source");
+
+        try (StreamsLayoutPool pool = new StreamsLayoutPool(directory.resolve("tcp/pool"), 0, false))
+        {
+            final StreamsLayout layout = pool.acquire(path, CAPACITY, CAPACITY, false);
+
+            assertEquals(layout.capacity(), pool.release(path, layout, CAPACITY, CAPACITY));
+        }
+    }
+}
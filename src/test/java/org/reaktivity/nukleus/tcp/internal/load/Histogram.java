@@ -0,0 +1,122 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.load;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of positive values, with 8 sub-buckets per power of two (relative error below 12.5%).
+ */
+public final class Histogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+
+    private long count;
+    private long max;
+
+    public void record(
+        long value)
+    {
+        final long positive = Math.max(value, 1L);
+        counts[index(positive)]++;
+        count++;
+        max = Math.max(max, positive);
+    }
+
+    public long count()
+    {
+        return count;
+    }
+
+    public long max()
+    {
+        return max;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile, capped at the maximum recorded value.
+     */
+    public long percentile(
+        double percentile)
+    {
+        if (count == 0L)
+        {
+            return 0L;
+        }
+
+        final long rank = Math.max((long) Math.ceil(count * percentile / 100.0), 1L);
+
+        long cumulative = 0L;
+        for (int i = 0; i < counts.length; i++)
+        {
+            cumulative += counts[i];
+            if (cumulative >= rank)
+            {
+                return Math.min(upperBound(i), max);
+            }
+        }
+
+        return max;
+    }
+
+    public void add(
+        Histogram other)
+    {
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset()
+    {
+        Arrays.fill(counts, 0L);
+        count = 0L;
+        max = 0L;
+    }
+
+    private static int index(
+        long value)
+    {
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude < SUB_BUCKET_BITS)
+        {
+            return (int) value;
+        }
+
+        final int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(
+        int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        final int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKETS;
+        final long base = (1L << magnitude) | ((long) subBucket << (magnitude - SUB_BUCKET_BITS));
+        return base + (1L << (magnitude - SUB_BUCKET_BITS)) - 1L;
+    }
+}
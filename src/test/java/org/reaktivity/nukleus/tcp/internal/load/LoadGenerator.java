@@ -0,0 +1,623 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.load;
+
+import static java.nio.channels.SelectionKey.OP_CONNECT;
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.nio.channels.SelectionKey.OP_WRITE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.agrona.CloseHelper;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.MessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpControllerFactorySpi;
+import org.reaktivity.nukleus.tcp.internal.TcpStreams;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.types.OctetsFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.DataFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.ResetFW;
+import org.reaktivity.nukleus.tcp.internal.types.stream.WindowFW;
+
+/**
+ * Open-loop load generator driving a running TCP nukleus via its control API and real loopback sockets.
+ * <p>
+ * Routes {@code any:port} to an echo application hosted by the generator, then opens connections at a fixed
+ * rate following a weighted mix of {@code weight:messages:size} profiles, sending each message at a fixed
+ * interval. Latency is measured from the intended send time, so stalls are not hidden by coordinated omission.
+ * <p>
+ * Configured by system properties, for example
+ * {@code -Dload.rate=500 -Dload.mix=80:1:64,20:100:1024 -Dload.duration.seconds=14400}.
+ */
+public final class LoadGenerator implements AutoCloseable
+{
+    private static final String ECHO_NAME = "load";
+    private static final int INGRESS_WINDOW = 64 * 1024;
+    private static final int TIMESTAMP_SIZE = Long.BYTES;
+
+    private final BeginFW beginRO = new BeginFW();
+    private final DataFW dataRO = new DataFW();
+    private final EndFW endRO = new EndFW();
+    private final WindowFW windowRO = new WindowFW();
+    private final ResetFW resetRO = new ResetFW();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final DataFW.Builder dataRW = new DataFW.Builder();
+    private final EndFW.Builder endRW = new EndFW.Builder();
+    private final WindowFW.Builder windowRW = new WindowFW.Builder();
+
+    private final MessageHandler ingressHandler = this::handleIngress;
+    private final MessageHandler egressThrottleHandler = this::handleEgressThrottle;
+
+    private final Random random = new Random();
+    private final long targetRef = random.nextLong();
+
+    private final InetAddress address;
+    private final int port;
+    private final long connectIntervalNanos;
+    private final long messageIntervalNanos;
+    private final long durationNanos;
+    private final long reportIntervalNanos;
+    private final Profile[] profiles;
+    private final int totalWeight;
+
+    private final TcpController controller;
+    private final TcpStreams ingress;
+    private final StreamsLayout egress;
+    private final RingBuffer egressStreams;
+    private final RingBuffer egressThrottle;
+    private final AtomicBuffer frameBuffer;
+    private final Selector selector;
+    private final List<Connection> connections;
+    private final Long2LongHashMap replyIdsByStreamId;
+    private final Long2LongHashMap replyWindowsById;
+
+    private final Histogram interval = new Histogram();
+    private final Histogram total = new Histogram();
+
+    private long nextReplyId;
+    private long opened;
+    private long completed;
+    private long intervalBytes;
+    private long totalBytes;
+    private long errors;
+    private long resets;
+    private long dropped;
+
+    public LoadGenerator(
+        Properties properties) throws Exception
+    {
+        this.address = InetAddress.getByName(properties.getProperty("load.address", "127.0.0.1"));
+        this.port = Integer.parseInt(properties.getProperty("load.port", "8080"));
+        this.connectIntervalNanos = SECONDS.toNanos(1L) / Long.parseLong(properties.getProperty("load.rate", "100"));
+        final String messageIntervalMillis = properties.getProperty("load.message.interval.millis", "10");
+        this.messageIntervalNanos = MILLISECONDS.toNanos(Long.parseLong(messageIntervalMillis));
+        this.durationNanos = SECONDS.toNanos(Long.parseLong(properties.getProperty("load.duration.seconds", "60")));
+        this.reportIntervalNanos = SECONDS.toNanos(Long.parseLong(properties.getProperty("load.report.seconds", "10")));
+        this.profiles = Profile.parse(properties.getProperty("load.mix", "1:10:64"));
+
+        int weights = 0;
+        for (Profile profile : profiles)
+        {
+            weights += profile.weight;
+        }
+        this.totalWeight = weights;
+
+        Properties config = new Properties(properties);
+        config.setProperty(DIRECTORY_PROPERTY_NAME, properties.getProperty("load.directory", "target/nukleus-load"));
+        Configuration configuration = new Configuration(config);
+
+        this.controller = new TcpControllerFactorySpi().create(TcpController.class, configuration);
+
+        this.egress = new StreamsLayout.Builder()
+                .path(configuration.directory().resolve(String.format("tcp/streams/%s", ECHO_NAME)))
+                .streamsCapacity(configuration.streamsBufferCapacity())
+                .throttleCapacity(configuration.throttleBufferCapacity())
+                .readonly(false)
+                .build();
+        this.egressStreams = egress.streamsBuffer();
+        this.egressThrottle = egress.throttleBuffer();
+
+        await(controller.route(INPUT, NEW, "any", port, ECHO_NAME, targetRef, address));
+
+        this.ingress = controller.streams("any", ECHO_NAME);
+        this.frameBuffer = new UnsafeBuffer(new byte[64 * 1024]);
+        this.selector = Selector.open();
+        this.connections = new ArrayList<>();
+        this.replyIdsByStreamId = new Long2LongHashMap(-1L);
+        this.replyWindowsById = new Long2LongHashMap(-1L);
+    }
+
+    public void run() throws IOException
+    {
+        final InetSocketAddress remoteAddress = new InetSocketAddress(address, port);
+        final long startedAt = System.nanoTime();
+        final long endAt = startedAt + durationNanos;
+
+        long nextConnectAt = startedAt;
+        long nextReportAt = startedAt + reportIntervalNanos;
+        long reportedAt = startedAt;
+
+        for (long now = startedAt; now - endAt < 0L; now = System.nanoTime())
+        {
+            // open-loop, independent of how quickly earlier connections complete
+            while (now - nextConnectAt >= 0L)
+            {
+                openConnection(remoteAddress, nextConnectAt);
+                nextConnectAt += connectIntervalNanos;
+            }
+
+            for (int i = 0; i < connections.size(); i++)
+            {
+                connections.get(i).sendIfDue(now);
+            }
+
+            selector.selectNow();
+            for (SelectionKey key : selector.selectedKeys())
+            {
+                ((Connection) key.attachment()).onReady(key);
+            }
+            selector.selectedKeys().clear();
+
+            ingress.readStreams(ingressHandler);
+            egressThrottle.read(egressThrottleHandler);
+
+            connections.removeIf(Connection::isClosed);
+
+            if (now - nextReportAt >= 0L)
+            {
+                report("interval", interval, intervalBytes, now - reportedAt);
+                total.add(interval);
+                interval.reset();
+                totalBytes += intervalBytes;
+                intervalBytes = 0L;
+                reportedAt = now;
+                nextReportAt += reportIntervalNanos;
+            }
+        }
+
+        total.add(interval);
+        totalBytes += intervalBytes;
+        report("total", total, totalBytes, System.nanoTime() - startedAt);
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        connections.forEach(c -> CloseHelper.quietClose(c.channel));
+        CloseHelper.quietClose(selector);
+
+        await(controller.unroute(INPUT, NEW, "any", port, ECHO_NAME, targetRef, address));
+
+        ingress.close();
+        egress.close();
+        controller.close();
+    }
+
+    private void openConnection(
+        InetSocketAddress remoteAddress,
+        long intendedAt)
+    {
+        final Profile profile = selectProfile();
+
+        try
+        {
+            final SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+
+            final Connection connection = new Connection(channel, profile, intendedAt);
+            connections.add(connection);
+            opened++;
+
+            if (channel.connect(remoteAddress))
+            {
+                connection.onConnected(channel.register(selector, OP_READ, connection));
+            }
+            else
+            {
+                channel.register(selector, OP_CONNECT, connection);
+            }
+        }
+        catch (IOException ex)
+        {
+            errors++;
+        }
+    }
+
+    private Profile selectProfile()
+    {
+        int weight = random.nextInt(totalWeight);
+        for (Profile profile : profiles)
+        {
+            weight -= profile.weight;
+            if (weight < 0)
+            {
+                return profile;
+            }
+        }
+        return profiles[profiles.length - 1];
+    }
+
+    private void report(
+        String label,
+        Histogram histogram,
+        long bytes,
+        long elapsedNanos)
+    {
+        final double seconds = Math.max(elapsedNanos, 1L) / (double) SECONDS.toNanos(1L);
+
+        System.out.format("%s: connections=%d/%d active=%d messages/s=%.0f bytes/s=%.0f " +
+                "latency[us] p50=%d p99=%d p99.9=%d max=%d errors=%d resets=%d dropped=%d%n",
+                label, completed, opened, connections.size(), histogram.count() / seconds, bytes / seconds,
+                NANOSECONDS.toMicros(histogram.percentile(50.0)), NANOSECONDS.toMicros(histogram.percentile(99.0)),
+                NANOSECONDS.toMicros(histogram.percentile(99.9)), NANOSECONDS.toMicros(histogram.max()),
+                errors, resets, dropped);
+    }
+
+    private void handleIngress(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case BeginFW.TYPE_ID:
+            beginRO.wrap(buffer, index, index + length);
+            onIngressBegin(beginRO.streamId(), beginRO.correlationId());
+            break;
+        case DataFW.TYPE_ID:
+            dataRO.wrap(buffer, index, index + length);
+            onIngressData(dataRO.streamId(), dataRO.payload());
+            break;
+        case EndFW.TYPE_ID:
+            endRO.wrap(buffer, index, index + length);
+            onIngressEnd(endRO.streamId());
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void onIngressBegin(
+        long streamId,
+        long correlationId)
+    {
+        final long replyId = ++nextReplyId;
+
+        // reference 0 replies on the accepted channel resolved by correlation
+        BeginFW begin = beginRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(replyId)
+                .referenceId(0L)
+                .correlationId(correlationId)
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        if (egressStreams.write(begin.typeId(), begin.buffer(), begin.offset(), begin.length()))
+        {
+            replyIdsByStreamId.put(streamId, replyId);
+            replyWindowsById.put(replyId, 0L);
+        }
+        else
+        {
+            dropped++;
+        }
+
+        doIngressWindow(streamId, INGRESS_WINDOW);
+    }
+
+    private void onIngressData(
+        long streamId,
+        OctetsFW payload)
+    {
+        final long replyId = replyIdsByStreamId.get(streamId);
+        final long replyWindow = replyId != -1L ? replyWindowsById.get(replyId) : -1L;
+
+        DataFW data = dataRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(replyId)
+                .payload(p -> p.set(payload.buffer(), payload.offset(), payload.length()))
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        // mirror window accounting in writer.stream.StreamFactory
+        final int writableBytes = Math.max(data.payload().length() - 1, 0);
+
+        if (replyWindow >= writableBytes &&
+            egressStreams.write(data.typeId(), data.buffer(), data.offset(), data.length()))
+        {
+            replyWindowsById.put(replyId, replyWindow - writableBytes);
+        }
+        else
+        {
+            dropped++;
+        }
+
+        doIngressWindow(streamId, payload.length());
+    }
+
+    private void onIngressEnd(
+        long streamId)
+    {
+        final long replyId = replyIdsByStreamId.remove(streamId);
+        if (replyId != -1L)
+        {
+            replyWindowsById.remove(replyId);
+
+            EndFW end = endRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                    .streamId(replyId)
+                    .extension(b -> b.set((buf, off, len) -> 0))
+                    .build();
+
+            if (!egressStreams.write(end.typeId(), end.buffer(), end.offset(), end.length()))
+            {
+                dropped++;
+            }
+        }
+    }
+
+    private void handleEgressThrottle(
+        int msgTypeId,
+        MutableDirectBuffer buffer,
+        int index,
+        int length)
+    {
+        switch (msgTypeId)
+        {
+        case WindowFW.TYPE_ID:
+            windowRO.wrap(buffer, index, index + length);
+            final long replyWindow = replyWindowsById.get(windowRO.streamId());
+            if (replyWindow != -1L)
+            {
+                replyWindowsById.put(windowRO.streamId(), replyWindow + windowRO.update());
+            }
+            break;
+        case ResetFW.TYPE_ID:
+            resetRO.wrap(buffer, index, index + length);
+            resets++;
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void doIngressWindow(
+        long streamId,
+        int update)
+    {
+        WindowFW window = windowRW.wrap(frameBuffer, 0, frameBuffer.capacity())
+                .streamId(streamId)
+                .update(update)
+                .build();
+
+        if (!ingress.writeThrottle(window.typeId(), window.buffer(), window.offset(), window.length()))
+        {
+            dropped++;
+        }
+    }
+
+    private <T> T await(
+        CompletableFuture<T> promise) throws Exception
+    {
+        while (!promise.isDone())
+        {
+            if (controller.process() == 0)
+            {
+                Thread.yield();
+            }
+        }
+        return promise.get();
+    }
+
+    private final class Connection
+    {
+        private final SocketChannel channel;
+        private final Profile profile;
+        private final ByteBuffer sendBuffer;
+        private final ByteBuffer receiveBuffer;
+
+        private SelectionKey key;
+        private long nextSendAt;
+        private int sent;
+        private int received;
+        private boolean closed;
+
+        private Connection(
+            SocketChannel channel,
+            Profile profile,
+            long intendedAt)
+        {
+            this.channel = channel;
+            this.profile = profile;
+            this.sendBuffer = ByteBuffer.allocate(profile.size);
+            this.receiveBuffer = ByteBuffer.allocate(profile.size);
+            this.nextSendAt = intendedAt;
+            this.sendBuffer.limit(0);
+        }
+
+        boolean isClosed()
+        {
+            return closed;
+        }
+
+        void onConnected(
+            SelectionKey key)
+        {
+            this.key = key;
+        }
+
+        void sendIfDue(
+            long now)
+        {
+            if (key != null && !closed && sent < profile.messages &&
+                !sendBuffer.hasRemaining() && now - nextSendAt >= 0L)
+            {
+                sendBuffer.clear();
+                sendBuffer.putLong(0, nextSendAt);
+                nextSendAt += messageIntervalNanos;
+                sent++;
+                write();
+            }
+        }
+
+        void onReady(
+            SelectionKey key)
+        {
+            try
+            {
+                if (key.isConnectable())
+                {
+                    channel.finishConnect();
+                    key.interestOps(OP_READ);
+                    onConnected(key);
+                }
+
+                if (key.isValid() && key.isWritable())
+                {
+                    write();
+                }
+
+                if (key.isValid() && key.isReadable())
+                {
+                    read();
+                }
+            }
+            catch (IOException ex)
+            {
+                errors++;
+                close();
+            }
+        }
+
+        private void write()
+        {
+            try
+            {
+                channel.write(sendBuffer);
+                key.interestOps(sendBuffer.hasRemaining() ? OP_READ | OP_WRITE : OP_READ);
+            }
+            catch (IOException ex)
+            {
+                errors++;
+                close();
+            }
+        }
+
+        private void read() throws IOException
+        {
+            int bytesRead;
+            while ((bytesRead = channel.read(receiveBuffer)) > 0)
+            {
+                intervalBytes += bytesRead;
+
+                if (!receiveBuffer.hasRemaining())
+                {
+                    interval.record(System.nanoTime() - receiveBuffer.getLong(0));
+                    receiveBuffer.clear();
+                    received++;
+                }
+            }
+
+            if (received == profile.messages)
+            {
+                completed++;
+                close();
+            }
+            else if (bytesRead == -1)
+            {
+                errors++;
+                close();
+            }
+        }
+
+        private void close()
+        {
+            closed = true;
+            CloseHelper.quietClose(channel);
+        }
+    }
+
+    private static final class Profile
+    {
+        private final int weight;
+        private final int messages;
+        private final int size;
+
+        private Profile(
+            int weight,
+            int messages,
+            int size)
+        {
+            if (weight <= 0 || messages <= 0 || size < TIMESTAMP_SIZE)
+            {
+                throw new IllegalArgumentException(String.format("Illegal profile: %d:%d:%d", weight, messages, size));
+            }
+
+            this.weight = weight;
+            this.messages = messages;
+            this.size = size;
+        }
+
+        static Profile[] parse(
+            String mix)
+        {
+            final List<Profile> profiles = new ArrayList<>();
+            for (String entry : mix.split(","))
+            {
+                final String[] fields = entry.trim().split(":");
+                if (fields.length != 3)
+                {
+                    throw new IllegalArgumentException("Illegal profile, expected weight:messages:size: " + entry);
+                }
+                profiles.add(new Profile(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2])));
+            }
+            return profiles.toArray(new Profile[0]);
+        }
+    }
+
+    public static void main(
+        String[] args) throws Exception
+    {
+        try (LoadGenerator generator = new LoadGenerator(System.getProperties()))
+        {
+            generator.run();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.reader;
+
+import static java.nio.channels.SelectionKey.OP_READ;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.agrona.CloseHelper.quietClose;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SourceTest
+{
+    private static final int READ_SIZE = 1024;
+
+    private final CountersManager counters =
+            new CountersManager(new UnsafeBuffer(new byte[64 * 1024]), new UnsafeBuffer(new byte[4 * 1024]));
+    private final AtomicCounter quotaExhausted = counters.newCounter("readQuotaExhausted");
+    private final List<SocketChannel> channels = new ArrayList<>();
+
+    private ServerSocketChannel server;
+    private Source source;
+
+    @Before
+    public void open() throws IOException
+    {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void close()
+    {
+        channels.forEach(c -> quietClose(c));
+        quietClose(source);
+        quietClose(server);
+    }
+
+    @Test
+    public void shouldNotStarveStreamWhenReadQuotaExhausted() throws Exception
+    {
+        source = new Source("any", READ_SIZE, READ_SIZE, quotaExhausted);
+
+        final Stream hot1 = newStream(64 * READ_SIZE);
+        final Stream hot2 = newStream(64 * READ_SIZE);
+        final Stream cold = newStream(16);
+        awaitReadable(hot1, hot2, cold);
+
+        // quota allows one full read per duty cycle, so each ready stream is read within three duty cycles
+        for (int cycle = 0; cycle < 3; cycle++)
+        {
+            assertTrue(source.process() >= 1);
+        }
+
+        assertEquals(16, cold.bytesRead);
+        assertTrue(hot1.bytesRead >= READ_SIZE);
+        assertTrue(hot2.bytesRead >= READ_SIZE);
+        assertEquals(3L, quotaExhausted.get());
+    }
+
+    @Test
+    public void shouldReadEveryReadyStreamWithinReadQuota() throws Exception
+    {
+        source = new Source("any", READ_SIZE, 4 * READ_SIZE, quotaExhausted);
+
+        final Stream first = newStream(16);
+        final Stream second = newStream(16);
+        awaitReadable(first, second);
+
+        assertEquals(2, source.process());
+
+        assertEquals(16, first.bytesRead);
+        assertEquals(16, second.bytesRead);
+        assertEquals(0L, quotaExhausted.get());
+    }
+
+    private Stream newStream(
+        int length) throws IOException
+    {
+        final SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        final SocketChannel accepted = server.accept();
+        channels.add(client);
+        channels.add(accepted);
+
+        accepted.configureBlocking(false);
+        client.write(ByteBuffer.allocate(length));
+
+        final Stream stream = new Stream(accepted);
+        final SelectionKey key = source.register(accepted);
+        key.interestOps(OP_READ);
+        key.attach(stream);
+
+        return stream;
+    }
+
+    private static void awaitReadable(
+        Stream... streams) throws IOException
+    {
+        final long deadline = System.nanoTime() + SECONDS.toNanos(10L);
+
+        try (Selector selector = Selector.open())
+        {
+            for (Stream stream : streams)
+            {
+                stream.channel.register(selector, OP_READ);
+            }
+
+            while (selector.selectedKeys().size() < streams.length)
+            {
+                selector.selectNow();
+                assertTrue("timed out", System.nanoTime() < deadline);
+                Thread.yield();
+            }
+        }
+    }
+
+    private static final class Stream implements IntSupplier
+    {
+        private final SocketChannel channel;
+        private final ByteBuffer buffer;
+
+        private int bytesRead;
+
+        private Stream(
+            SocketChannel channel)
+        {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(READ_SIZE);
+        }
+
+        @Override
+        public int getAsInt()
+        {
+            try
+            {
+                buffer.clear();
+                final int read = channel.read(buffer);
+                bytesRead += Math.max(read, 0);
+                return read;
+            }
+            catch (IOException ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.router;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RouteTableTest
+{
+    @Test
+    public void shouldPublishNewSnapshotOnUpdate()
+    {
+        final RouteTable<String> routes = new RouteTable<>();
+        routes.add(1L, "first");
+
+        final RouteTable.Snapshot<String> before = routes.snapshot();
+
+        routes.add(1L, "second");
+        routes.add(2L, "third");
+
+        assertEquals(asList("first"), before.lookup(1L));
+        assertTrue(before.lookup(2L).isEmpty());
+
+        assertEquals(asList("first", "second"), routes.lookup(1L));
+        assertEquals(asList("third"), routes.lookup(2L));
+        assertEquals(before.version() + 2L, routes.version());
+    }
+
+    @Test
+    public void shouldRemoveMatchingRoutes()
+    {
+        final RouteTable<String> routes = new RouteTable<>();
+        routes.add(1L, "first");
+        routes.add(1L, "second");
+
+        final long version = routes.version();
+
+        assertFalse(routes.removeIf(1L, "third"::equals));
+        assertEquals(version, routes.version());
+
+        assertTrue(routes.removeIf(1L, "first"::equals));
+        assertEquals(asList("second"), routes.stream().collect(toList()));
+
+        assertTrue(routes.removeIf(1L, "second"::equals));
+        assertTrue(routes.lookup(1L).isEmpty());
+        assertEquals(0L, routes.stream().count());
+    }
+
+    @Test
+    public void shouldPublishDeferredUpdatesOnce()
+    {
+        final RouteUpdates updates = new RouteUpdates();
+        final RouteTable<String> routes = new RouteTable<>(updates);
+        final long version = routes.version();
+
+        updates.begin();
+        for (int i = 0; i < 100; i++)
+        {
+            routes.add(i, "route" + i);
+        }
+        routes.removeIf(0L, "route0"::equals);
+
+        // writer sees the draft, published snapshot is unchanged until the bulk update ends
+        assertEquals(asList("route1"), routes.lookup(1L));
+        assertEquals(99L, routes.stream().count());
+        assertEquals(version, routes.version());
+        assertTrue(routes.snapshot().lookup(1L).isEmpty());
+
+        updates.end();
+
+        assertEquals(version + 1L, routes.version());
+        assertEquals(asList("route1"), routes.snapshot().lookup(1L));
+        assertTrue(routes.snapshot().lookup(0L).isEmpty());
+        assertEquals(99L, routes.snapshot().stream().count());
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.router;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.Configuration.DIRECTORY_PROPERTY_NAME;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.INPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.Role.OUTPUT;
+import static org.reaktivity.nukleus.tcp.internal.types.control.State.NEW;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reaktivity.nukleus.Configuration;
+import org.reaktivity.nukleus.tcp.internal.Context;
+import org.reaktivity.nukleus.tcp.internal.TcpController;
+import org.reaktivity.nukleus.tcp.internal.TcpControllerFactorySpi;
+import org.reaktivity.nukleus.tcp.internal.TcpStreams;
+import org.reaktivity.nukleus.tcp.internal.acceptor.Acceptor;
+import org.reaktivity.nukleus.tcp.internal.conductor.Conductor;
+import org.reaktivity.nukleus.tcp.internal.connector.Connector;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.splicer.Splicer;
+import org.reaktivity.nukleus.tcp.internal.types.stream.BeginFW;
+
+public class RouterTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final BeginFW.Builder beginRW = new BeginFW.Builder();
+    private final UnsafeBuffer writeBuffer = new UnsafeBuffer(new byte[1024]);
+
+    private Context context;
+    private Conductor conductor;
+    private Router router;
+    private Acceptor acceptor;
+    private Connector connector;
+    private Splicer splicer;
+    private TcpController controller;
+
+    private ServerSocketChannel server;
+    private InetAddress address;
+
+    @Before
+    public void open() throws Exception
+    {
+        Properties properties = new Properties();
+        properties.setProperty(DIRECTORY_PROPERTY_NAME, folder.getRoot().getAbsolutePath());
+        Configuration configuration = new Configuration(properties);
+
+        context = new Context();
+        context.conclude(configuration);
+
+        conductor = new Conductor(context);
+        router = new Router(context);
+        acceptor = new Acceptor(context);
+        connector = new Connector(context);
+        splicer = new Splicer(context);
+
+        router.setConductor(conductor);
+        router.setAcceptor(acceptor);
+        router.setConnector(connector);
+        acceptor.setConductor(conductor);
+        acceptor.setRouter(router);
+        connector.setRouter(router);
+        splicer.setConnector(connector);
+        conductor.setRouter(router);
+
+        controller = new TcpControllerFactorySpi().create(TcpController.class, configuration);
+
+        address = InetAddress.getLoopbackAddress();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(address, 0));
+        server.configureBlocking(false);
+    }
+
+    @After
+    public void close()
+    {
+        CloseHelper.quietClose(server);
+        CloseHelper.quietClose(controller);
+        CloseHelper.quietClose(splicer);
+        CloseHelper.quietClose(connector);
+        CloseHelper.quietClose(acceptor);
+        CloseHelper.quietClose(router);
+        CloseHelper.quietClose(conductor);
+        CloseHelper.quietClose(context);
+    }
+
+    @Test
+    public void shouldEndEstablishedStreamsAndReleaseReplyTargetWhenSourceExpires() throws Exception
+    {
+        final long sourceRef = await(controller.route(OUTPUT, NEW, "source", 0L, address.getHostAddress(), serverPort(), null));
+
+        try (StreamsLayout source = newSourceLayout("source"))
+        {
+            doBegin(source, 1L, sourceRef);
+
+            final SocketChannel accepted = awaitAccepted();
+            assertNotNull(accepted);
+            awaitUntil(() -> Files.exists(replyPath("source")));
+
+            Files.delete(sourcePath("source"));
+            router.onExpired(sourcePath("source").getFileName());
+
+            // END shuts down output, and the departed source no longer consumes reply streams
+            assertEquals(-1, awaitRead(accepted));
+            assertEquals(source.capacity() * 2, context.counters().reclaimedBytes().get());
+        }
+    }
+
+    @Test
+    public void shouldCloseStreamsStillConnectingWhenSourceExpires() throws Exception
+    {
+        final long sourceRef = await(controller.route(OUTPUT, NEW, "source", 0L, address.getHostAddress(), serverPort(), null));
+
+        try (StreamsLayout source = newSourceLayout("source"))
+        {
+            doBegin(source, 1L, sourceRef);
+
+            // connect initiated by the writer but not yet completed by the connector
+            while (router.process() != 0)
+            {
+                Thread.yield();
+            }
+
+            Files.delete(sourcePath("source"));
+            router.onExpired(sourcePath("source").getFileName());
+
+            final SocketChannel accepted = awaitAccepted();
+            assertNotNull(accepted);
+
+            // channel closed once connected, as the stream was already removed from the departed source
+            assertEquals(-1, awaitRead(accepted));
+            assertEquals(source.capacity() * 2, context.counters().reclaimedBytes().get());
+        }
+    }
+
+    @Test
+    public void shouldRetainTargetReferencedByInboundRouteWhenTargetExpires() throws Exception
+    {
+        final int port = serverPort();
+        server.close();
+
+        await(controller.route(INPUT, NEW, "any", port, "app", 0L, address));
+
+        final TcpStreams streams = controller.streams("any", "app");
+
+        try (StreamsLayout app = newSourceLayout("app");
+             SocketChannel client = SocketChannel.open(new InetSocketAddress(address, port)))
+        {
+            final int[] begins = new int[1];
+            awaitUntil(() -> streams.readStreams((t, b, i, l) -> begins[0] += t == BeginFW.TYPE_ID ? 1 : 0) != 0);
+            assertEquals(1, begins[0]);
+
+            Files.delete(sourcePath("app"));
+            router.onExpired(sourcePath("app").getFileName());
+
+            // streams to the departed target are aborted, but the in-bound route still uses its layout
+            assertEquals(app.capacity(), context.counters().reclaimedBytes().get());
+
+            try (SocketChannel next = SocketChannel.open(new InetSocketAddress(address, port)))
+            {
+                awaitUntil(() -> streams.readStreams((t, b, i, l) -> begins[0] += t == BeginFW.TYPE_ID ? 1 : 0) != 0);
+                assertEquals(2, begins[0]);
+            }
+        }
+        finally
+        {
+            streams.close();
+        }
+    }
+
+    private StreamsLayout newSourceLayout(
+        String sourceName)
+    {
+        final StreamsLayout layout = new StreamsLayout.Builder()
+                .path(sourcePath(sourceName))
+                .streamsCapacity(context.streamsCapacity(sourceName))
+                .throttleCapacity(context.throttleCapacity(sourceName))
+                .readonly(false)
+                .build();
+
+        router.onReadable(sourcePath(sourceName).getFileName());
+
+        return layout;
+    }
+
+    private Path sourcePath(
+        String sourceName)
+    {
+        return context.captureStreamsPath().apply(sourceName);
+    }
+
+    private Path replyPath(
+        String targetName)
+    {
+        return context.routeStreamsPath().apply("any", targetName);
+    }
+
+    private void doBegin(
+        StreamsLayout source,
+        long streamId,
+        long sourceRef)
+    {
+        final BeginFW begin = beginRW.wrap(writeBuffer, 0, writeBuffer.capacity())
+                .streamId(streamId)
+                .referenceId(sourceRef)
+                .correlationId(streamId)
+                .extension(b -> b.set((buf, off, len) -> 0))
+                .build();
+
+        assertTrue(source.streamsBuffer().write(begin.typeId(), begin.buffer(), begin.offset(), begin.length()));
+    }
+
+    private int serverPort() throws Exception
+    {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    private SocketChannel awaitAccepted() throws Exception
+    {
+        final SocketChannel[] accepted = new SocketChannel[1];
+        awaitUntil(() ->
+        {
+            try
+            {
+                accepted[0] = server.accept();
+            }
+            catch (Exception ex)
+            {
+                throw new AssertionError(ex);
+            }
+            return accepted[0] != null;
+        });
+        accepted[0].configureBlocking(false);
+        return accepted[0];
+    }
+
+    private int awaitRead(
+        SocketChannel channel) throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        final int[] read = new int[1];
+        awaitUntil(() ->
+        {
+            try
+            {
+                buffer.clear();
+                read[0] = channel.read(buffer);
+            }
+            catch (Exception ex)
+            {
+                read[0] = -1;
+            }
+            return read[0] != 0;
+        });
+        return read[0];
+    }
+
+    private <T> T await(
+        CompletableFuture<T> promise) throws Exception
+    {
+        awaitUntil(promise::isDone);
+        return promise.get();
+    }
+
+    private void awaitUntil(
+        BooleanSupplier condition)
+    {
+        final long deadline = System.nanoTime() + SECONDS.toNanos(10L);
+
+        while (!condition.getAsBoolean())
+        {
+            assertTrue(System.nanoTime() < deadline);
+
+            conductor.process();
+            router.process();
+            acceptor.process();
+            connector.process();
+        }
+    }
+}
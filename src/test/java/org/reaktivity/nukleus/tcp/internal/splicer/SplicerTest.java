@@ -0,0 +1,278 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.splicer;
+
+import static java.net.StandardSocketOptions.SO_RCVBUF;
+import static java.net.StandardSocketOptions.SO_SNDBUF;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.agrona.CloseHelper.quietClose;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.reaktivity.nukleus.tcp.internal.util.SocketOptions.NONE;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reaktivity.nukleus.tcp.internal.writer.Route;
+
+public class SplicerTest
+{
+    private static final int BUFFER_SIZE = 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+    private static final int SOCKET_BUFFER_SIZE = 64 * 1024;
+
+    private final CountersManager counters =
+            new CountersManager(new UnsafeBuffer(new byte[64 * 1024]), new UnsafeBuffer(new byte[4 * 1024]));
+    private final AtomicCounter splicedStreams = counters.newCounter("spliced.streams");
+    private final AtomicCounter splicedBytes = counters.newCounter("spliced.bytes");
+
+    private ServerSocketChannel listener;
+    private ServerSocketChannel upstream;
+    private Splicer splicer;
+
+    private SocketChannel client;
+    private SocketChannel server;
+
+    @Before
+    public void open() throws IOException
+    {
+        final InetAddress loopback = InetAddress.getLoopbackAddress();
+
+        listener = ServerSocketChannel.open();
+        listener.setOption(SO_RCVBUF, SOCKET_BUFFER_SIZE);
+        listener.bind(new InetSocketAddress(loopback, 0));
+
+        upstream = ServerSocketChannel.open();
+        upstream.setOption(SO_RCVBUF, SOCKET_BUFFER_SIZE);
+        upstream.bind(new InetSocketAddress(loopback, 0));
+
+        splicer = new Splicer(BUFFER_SIZE, MAX_POOLED_BUFFERS, 1, SECONDS.toNanos(10L), splicedStreams, splicedBytes);
+    }
+
+    @After
+    public void close()
+    {
+        quietClose(client);
+        quietClose(server);
+        quietClose(splicer);
+        quietClose(upstream);
+        quietClose(listener);
+    }
+
+    @Test
+    public void shouldSpliceBothDirections() throws Exception
+    {
+        final Route route = newRoute((InetSocketAddress) upstream.getLocalAddress());
+
+        splice(route);
+
+        assertArrayEquals("hello".getBytes(UTF_8), transfer(client, server, "hello".getBytes(UTF_8)));
+        assertArrayEquals("world".getBytes(UTF_8), transfer(server, client, "world".getBytes(UTF_8)));
+
+        assertEquals(1L, splicedStreams.get());
+        assertEquals(10L, splicedBytes.get());
+        assertEquals(1, route.outstanding());
+    }
+
+    @Test
+    public void shouldPreserveBytesWhenTargetWindowExhausted() throws Exception
+    {
+        final Route route = newRoute((InetSocketAddress) upstream.getLocalAddress());
+        final byte[] payload = new byte[8 * 1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        splice(route);
+
+        // server does not read, so the splice must stop reading the client instead of dropping bytes
+        final ByteBuffer data = ByteBuffer.wrap(payload);
+        int stalled = 0;
+        while (data.hasRemaining() && stalled < 100)
+        {
+            stalled = client.write(data) == 0 ? stalled + 1 : 0;
+            splicer.process();
+        }
+
+        assertTrue(data.hasRemaining());
+        assertTrue(splicedBytes.get() < payload.length);
+
+        final ByteBuffer received = ByteBuffer.allocate(payload.length);
+        await(() ->
+        {
+            client.write(data);
+            splicer.process();
+            server.read(received);
+            return !received.hasRemaining();
+        });
+
+        assertArrayEquals(payload, received.array());
+        assertEquals(payload.length, splicedBytes.get());
+    }
+
+    @Test
+    public void shouldHalfCloseEachDirectionThenRelease() throws Exception
+    {
+        final Route route = newRoute((InetSocketAddress) upstream.getLocalAddress());
+
+        splice(route);
+
+        client.shutdownOutput();
+        awaitEndOfInput(server);
+
+        // server can still respond after client half-close
+        assertArrayEquals("late".getBytes(UTF_8), transfer(server, client, "late".getBytes(UTF_8)));
+        assertEquals(1, route.outstanding());
+
+        server.shutdownOutput();
+        awaitEndOfInput(client);
+
+        await(() ->
+        {
+            splicer.process();
+            return route.outstanding() == 0;
+        });
+        assertEquals(1, splicer.pooledBuffers());
+    }
+
+    @Test
+    public void shouldEjectRouteAndReleaseWhenConnectFails() throws Exception
+    {
+        final ServerSocketChannel closed = ServerSocketChannel.open();
+        closed.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final InetSocketAddress address = (InetSocketAddress) closed.getLocalAddress();
+        closed.close();
+
+        final Route route = newRoute(address);
+
+        client = SocketChannel.open(listener.getLocalAddress());
+        final SocketChannel accepted = listener.accept();
+        accepted.configureBlocking(false);
+        client.configureBlocking(false);
+
+        route.onSelected(1L);
+        try
+        {
+            splicer.doSplice(accepted, NONE, route);
+        }
+        catch (Exception ex)
+        {
+            // connect may fail immediately on loopback
+        }
+
+        await(() ->
+        {
+            splicer.process();
+            return route.outstanding() == 0;
+        });
+
+        assertFalse(route.available(System.nanoTime()));
+        assertEquals(0L, splicedStreams.get());
+        assertEquals(1, splicer.pooledBuffers());
+        awaitEndOfInput(client);
+    }
+
+    private Route newRoute(
+        InetSocketAddress address)
+    {
+        return new Route("tcp", 1L, null, 0L, address, NONE);
+    }
+
+    private void splice(
+        Route route) throws Exception
+    {
+        client = SocketChannel.open();
+        client.setOption(SO_SNDBUF, SOCKET_BUFFER_SIZE);
+        client.connect(listener.getLocalAddress());
+        final SocketChannel accepted = listener.accept();
+        accepted.configureBlocking(false);
+
+        route.onSelected(1L);
+        assertTrue(splicer.doSplice(accepted, NONE, route));
+
+        server = upstream.accept();
+        server.configureBlocking(false);
+        client.configureBlocking(false);
+
+        await(() ->
+        {
+            splicer.process();
+            return splicedStreams.get() == 1L;
+        });
+    }
+
+    private byte[] transfer(
+        SocketChannel source,
+        SocketChannel target,
+        byte[] bytes) throws Exception
+    {
+        final ByteBuffer data = ByteBuffer.wrap(bytes);
+        final ByteBuffer received = ByteBuffer.allocate(bytes.length);
+
+        await(() ->
+        {
+            source.write(data);
+            splicer.process();
+            target.read(received);
+            return !received.hasRemaining();
+        });
+
+        return received.array();
+    }
+
+    private void awaitEndOfInput(
+        SocketChannel channel) throws Exception
+    {
+        final ByteBuffer discard = ByteBuffer.allocate(64);
+
+        await(() ->
+        {
+            splicer.process();
+            discard.clear();
+            return channel.read(discard) == -1;
+        });
+    }
+
+    private static void await(
+        Condition condition) throws Exception
+    {
+        final long deadline = System.nanoTime() + SECONDS.toNanos(10L);
+
+        while (!condition.test())
+        {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Condition
+    {
+        boolean test() throws IOException;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+import static java.nio.ByteBuffer.allocateDirect;
+import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.agrona.concurrent.AtomicBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.junit.Test;
+
+public class RingTailerTest
+{
+    private final AtomicBuffer buffer = new UnsafeBuffer(allocateDirect(1024 + TRAILER_LENGTH));
+    private final RingBuffer ring = new OneToOneRingBuffer(buffer);
+    private final AtomicBuffer message = new UnsafeBuffer(new byte[8]);
+
+    @Test
+    public void shouldTailWithoutConsuming()
+    {
+        RingTailer tailer = new RingTailer(buffer);
+
+        message.putLong(0, 42L);
+        ring.write(1, message, 0, 8);
+        ring.write(2, message, 0, 4);
+
+        List<Integer> tailed = new ArrayList<>();
+        assertEquals(2, tailer.read((t, b, i, l) -> tailed.add(t * 100 + l), 10));
+        assertEquals(2, tailed.size());
+        assertEquals(108, tailed.get(0).intValue());
+        assertEquals(204, tailed.get(1).intValue());
+
+        assertEquals(2, ring.read((t, b, i, l) -> { }));
+        assertEquals(0L, tailer.lostBytes());
+    }
+
+    @Test
+    public void shouldCountRecordsConsumedBeforeTailed()
+    {
+        RingTailer tailer = new RingTailer(buffer);
+
+        ring.write(1, message, 0, 8);
+        ring.read((t, b, i, l) -> { });
+        ring.write(2, message, 0, 8);
+
+        List<Integer> tailed = new ArrayList<>();
+        assertEquals(1, tailer.read((t, b, i, l) -> tailed.add(t), 10));
+        assertEquals(2, tailed.get(0).intValue());
+        assertTrue(tailer.lostBytes() > 0L);
+    }
+}
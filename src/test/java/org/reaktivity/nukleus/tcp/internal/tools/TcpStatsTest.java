@@ -0,0 +1,36 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TcpStatsTest
+{
+    @Test
+    public void shouldFormatPlainCounterAsPrometheusSeries()
+    {
+        assertEquals("nukleus_tcp_streamsSourced", TcpStats.prometheusSeries("streamsSourced"));
+    }
+
+    @Test
+    public void shouldFormatQualifiedCounterAsLabelledPrometheusSeries()
+    {
+        assertEquals("nukleus_tcp_connects{qualifier=\"127.0.0.1\"}", TcpStats.prometheusSeries("connects[127.0.0.1]"));
+        assertEquals("nukleus_tcp_reader_nanos{qualifier=\"any\"}", TcpStats.prometheusSeries("reader[any].nanos"));
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class CapacitiesTest
+{
+    @Test
+    public void shouldMatchFirstPattern()
+    {
+        Capacities capacities = Capacities.parse("bulk*=67108864, *control=65536, bulk-control=1024", 1048576);
+
+        assertEquals(67108864, capacities.capacity("bulk-control"));
+        assertEquals(65536, capacities.capacity("http-control"));
+        assertEquals(1048576, capacities.capacity("http"));
+        assertEquals(67108864, capacities.maxCapacity());
+    }
+
+    @Test
+    public void shouldParseEmptyCapacities()
+    {
+        Capacities capacities = Capacities.parse("", 1048576);
+
+        assertEquals(1048576, capacities.capacity("any"));
+        assertEquals(1048576, capacities.maxCapacity());
+    }
+
+    @Test
+    public void shouldNotTreatPatternAsRegex()
+    {
+        Capacities capacities = Capacities.parse("a.b=1024", 65536);
+
+        assertEquals(1024, capacities.capacity("a.b"));
+        assertEquals(65536, capacities.capacity("axb"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectCapacityNotPowerOfTwo()
+    {
+        Capacities.parse("bulk*=1000", 65536);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMissingCapacity()
+    {
+        Capacities.parse("bulk*", 65536);
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.util;
+
+import static java.net.StandardSocketOptions.SO_KEEPALIVE;
+import static java.net.StandardSocketOptions.SO_LINGER;
+import static java.net.StandardSocketOptions.TCP_NODELAY;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.channels.SocketChannel;
+
+import org.junit.Test;
+
+public class SocketOptionsTest
+{
+    @Test
+    public void shouldApplySocketOptions() throws Exception
+    {
+        SocketOptions options = SocketOptions.parse("nodelay, keepalive=true, linger=0");
+
+        try (SocketChannel channel = SocketChannel.open())
+        {
+            options.apply(channel);
+
+            assertEquals(Boolean.TRUE, channel.getOption(TCP_NODELAY));
+            assertEquals(Boolean.TRUE, channel.getOption(SO_KEEPALIVE));
+            assertEquals(Integer.valueOf(0), channel.getOption(SO_LINGER));
+        }
+    }
+
+    @Test
+    public void shouldParseEmptySocketOptions()
+    {
+        SocketOptions.parse("");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnrecognizedSocketOption()
+    {
+        SocketOptions.parse("nagle");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIllegalBufferSize()
+    {
+        SocketOptions.parse("rcvbuf=0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIllegalBooleanValue()
+    {
+        SocketOptions.parse("nodelay=yes");
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.reaktivity.nukleus.Nukleus;
+
+public class WeightedSchedulerTest
+{
+    @Test
+    public void shouldRunComponentsByWeight()
+    {
+        final CountingNukleus router = new CountingNukleus("router", 1);
+        final CountingNukleus acceptor = new CountingNukleus("acceptor", 1);
+        final CountingNukleus watcher = new CountingNukleus("watcher", 1);
+
+        final Map<String, Integer> weights = WeightedScheduler.parseWeights("router=4, acceptor=1");
+        final WeightedScheduler scheduler = new WeightedScheduler(weights, router, acceptor, watcher);
+
+        for (int i = 0; i < 8; i++)
+        {
+            scheduler.process();
+        }
+
+        assertEquals(8, router.cycles);
+        assertEquals(2, acceptor.cycles);
+        assertEquals(8, watcher.cycles);
+    }
+
+    @Test
+    public void shouldRunAllComponentsAfterIdleCycle()
+    {
+        final CountingNukleus router = new CountingNukleus("router", 0);
+        final CountingNukleus conductor = new CountingNukleus("conductor", 0);
+
+        final Map<String, Integer> weights = WeightedScheduler.parseWeights("router=4,conductor=1");
+        final WeightedScheduler scheduler = new WeightedScheduler(weights, router, conductor);
+
+        for (int i = 0; i < 4; i++)
+        {
+            scheduler.process();
+        }
+
+        assertEquals(4, router.cycles);
+        assertEquals(3, conductor.cycles);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveWeight()
+    {
+        WeightedScheduler.parseWeights("router=0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMissingWeight()
+    {
+        WeightedScheduler.parseWeights("router");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWeightForUnknownComponent()
+    {
+        final CountingNukleus router = new CountingNukleus("router", 1);
+        final CountingNukleus acceptor = new CountingNukleus("acceptor", 1);
+
+        final Map<String, Integer> weights = WeightedScheduler.parseWeights("routr=8");
+        new WeightedScheduler(weights, router, acceptor);
+    }
+
+    private static final class CountingNukleus implements Nukleus
+    {
+        private final String name;
+        private final int workCount;
+
+        private int cycles;
+
+        private CountingNukleus(
+            String name,
+            int workCount)
+        {
+            this.name = name;
+            this.workCount = workCount;
+        }
+
+        @Override
+        public int process()
+        {
+            cycles++;
+            return workCount;
+        }
+
+        @Override
+        public String name()
+        {
+            return name;
+        }
+    }
+}
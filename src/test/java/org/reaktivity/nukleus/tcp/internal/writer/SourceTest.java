@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.writer;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.RingBuffer;
+import org.agrona.concurrent.status.AtomicCounter;
+import org.agrona.concurrent.status.CountersManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.reaktivity.nukleus.tcp.internal.events.EventLog;
+import org.reaktivity.nukleus.tcp.internal.layouts.StreamsLayout;
+import org.reaktivity.nukleus.tcp.internal.types.stream.EndFW;
+import org.reaktivity.nukleus.tcp.internal.writer.balancer.Balancer;
+
+public class SourceTest
+{
+    private static final int CAPACITY = 4096;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final CountersManager counters =
+            new CountersManager(new UnsafeBuffer(new byte[64 * 1024]), new UnsafeBuffer(new byte[4 * 1024]));
+    private final AtomicCounter quotaExhausted = counters.newCounter("writeQuotaExhausted");
+
+    @Test
+    public void shouldDeferFramesBeyondWriteQuotaToNextDutyCycle() throws Exception
+    {
+        try (StreamsLayout layout = newLayout())
+        {
+            final Source source = newSource(layout, 4);
+            final RingBuffer streams = layout.streamsBuffer();
+
+            for (int i = 0; i < 10; i++)
+            {
+                assertTrue(streams.write(EndFW.TYPE_ID, new UnsafeBuffer(new byte[16]), 0, 16));
+            }
+
+            assertEquals(4, source.process());
+            assertEquals(1L, quotaExhausted.get());
+
+            assertEquals(4, source.process());
+            assertEquals(2L, quotaExhausted.get());
+
+            assertEquals(2, source.process());
+            assertEquals(2L, quotaExhausted.get());
+
+            assertEquals(0, source.process());
+        }
+    }
+
+    @Test
+    public void shouldNotCountExhaustedWriteQuotaWhenNoFramesRemain() throws Exception
+    {
+        try (StreamsLayout layout = newLayout())
+        {
+            final Source source = newSource(layout, 4);
+            final RingBuffer streams = layout.streamsBuffer();
+
+            for (int i = 0; i < 4; i++)
+            {
+                assertTrue(streams.write(EndFW.TYPE_ID, new UnsafeBuffer(new byte[16]), 0, 16));
+            }
+
+            assertEquals(4, source.process());
+            assertEquals(0L, quotaExhausted.get());
+        }
+    }
+
+    @Test
+    public void shouldReadAllFramesWithoutWriteQuota() throws Exception
+    {
+        try (StreamsLayout layout = newLayout())
+        {
+            final Source source = newSource(layout, 0);
+            final RingBuffer streams = layout.streamsBuffer();
+
+            for (int i = 0; i < 10; i++)
+            {
+                assertTrue(streams.write(EndFW.TYPE_ID, new UnsafeBuffer(new byte[16]), 0, 16));
+            }
+
+            assertEquals(10, source.process());
+            assertEquals(0L, quotaExhausted.get());
+        }
+    }
+
+    private StreamsLayout newLayout()
+    {
+        return new StreamsLayout.Builder()
+                .path(folder.getRoot().toPath().resolve("tcp/streams/source"))
+                .streamsCapacity(CAPACITY)
+                .throttleCapacity(CAPACITY)
+                .readonly(false)
+                .build();
+    }
+
+    private Source newSource(
+        StreamsLayout layout,
+        int writeQuota)
+    {
+        // frames for unknown streams are reset, which is enough to count frames per duty cycle
+        return new Source("source#part0", null, r -> emptyList(), c -> null, t -> null, layout,
+                new UnsafeBuffer(new byte[CAPACITY]), 8192, 0, Balancer.newBalancer("round-robin"), 3, 0L,
+                writeQuota, quotaExhausted, EventLog.NONE);
+    }
+}
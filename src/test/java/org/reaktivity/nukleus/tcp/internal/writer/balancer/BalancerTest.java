@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016-2017 The Reaktivity Project
+ *
+ * The Reaktivity Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.reaktivity.nukleus.tcp.internal.writer.balancer;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.reaktivity.nukleus.tcp.internal.util.SocketOptions.NONE;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import org.junit.Test;
+import org.reaktivity.nukleus.tcp.internal.writer.Route;
+
+public class BalancerTest
+{
+    private final Route route1 = new Route("source", 1L, null, 0L, new InetSocketAddress("localhost", 8081), NONE);
+    private final Route route2 = new Route("source", 1L, null, 0L, new InetSocketAddress("localhost", 8082), NONE);
+    private final List<Route> routes = asList(route1, route2);
+
+    @Test
+    public void shouldSelectRoundRobin()
+    {
+        Balancer balancer = Balancer.newBalancer("round-robin");
+
+        assertSame(route1, balancer.select(routes, 0L));
+        assertSame(route2, balancer.select(routes, 0L));
+        assertSame(route1, balancer.select(routes, 0L));
+    }
+
+    @Test
+    public void shouldSelectLeastStreams()
+    {
+        Balancer balancer = Balancer.newBalancer("least-streams");
+
+        assertSame(route1, balancer.select(routes, 0L));
+        assertSame(route2, balancer.select(routes, 0L));
+
+        route2.onReleased();
+
+        assertSame(route2, balancer.select(routes, 0L));
+    }
+
+    @Test
+    public void shouldSelectLowestLatency()
+    {
+        Balancer balancer = Balancer.newBalancer("ewma");
+
+        route1.onConnected(1000L);
+        route2.onConnected(100L);
+
+        assertSame(route2, balancer.select(routes, 0L));
+    }
+
+    @Test
+    public void shouldSkipEjectedRouteUntilRetry()
+    {
+        Balancer balancer = Balancer.newBalancer("round-robin");
+
+        route1.onConnectFailed(0L, 1, 100L);
+
+        assertSame(route2, balancer.select(routes, 50L));
+        assertSame(route2, balancer.select(routes, 50L));
+        assertSame(route1, balancer.select(routes, 100L));
+    }
+
+    @Test
+    public void shouldNotSelectWhenAllRoutesEjected()
+    {
+        Balancer balancer = Balancer.newBalancer("least-streams");
+
+        route1.onConnectFailed(0L, 1, 100L);
+        route2.onConnectFailed(0L, 1, 100L);
+
+        assertNull(balancer.select(routes, 50L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnrecognizedPolicy()
+    {
+        Balancer.newBalancer("random");
+    }
+}